@@ -0,0 +1,106 @@
+/**
+ * \file BulkKeyProvisioner.java
+ * \brief Headless tool generating many encrypted key pairs at once.
+ *
+ * This file contains the implementation of the `BulkKeyProvisioner` class, which provisions
+ * key pairs for test fleets without starting the JavaFX window.
+ */
+
+package org.example._2ndapp;
+
+import java.io.File;
+import java.security.KeyPair;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * \class BulkKeyProvisioner
+ * \brief Generates N key pairs in parallel and saves each of them to its own directory.
+ *
+ * The key pairs are generated on all processor cores by a `KeyPairPool` and saved with
+ * `KeyStorageUtil`, encrypted with the same PIN, to the directories "key-00001", "key-00002", ...
+ * inside the output directory. The PIN is taken from --pin or the PADES_PIN environment variable.
+ * The key type is chosen with --algorithm, 4096-bit RSA by default.
+ */
+public class BulkKeyProvisioner {
+    /**
+     * \brief Usage description printed on invalid arguments.
+     */
+    private static final String USAGE =
+            "Usage: bulk --count <n> --out <dir> [--pin <pin>] [--threads <n>] [--algorithm rsa|ecdsa|ed25519]";
+
+    /**
+     * \brief Runs the provisioning described by the arguments.
+     *
+     * \param args Command-line arguments, starting with "bulk", see USAGE.
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * \brief Generates and saves the key pairs.
+     *
+     * \param args Command-line arguments, starting with "bulk", see USAGE.
+     *
+     * \return 0 on success, 1 if a key pair couldn't be generated or saved, 2 on invalid arguments.
+     */
+    public static int run(String[] args) {
+        if (args.length == 0 || !args[0].equals("bulk")) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                System.err.println(USAGE);
+                return 2;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        int count;
+        int threads;
+        KeyAlgorithm algorithm;
+        try {
+            count = Integer.parseInt(options.getOrDefault("count", "0"));
+            threads = Integer.parseInt(options.getOrDefault("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            algorithm = KeyAlgorithm.fromOptionName(options.getOrDefault("algorithm", "rsa"));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + e.getMessage());
+            return 2;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        String pin = options.getOrDefault("pin", System.getenv("PADES_PIN"));
+        if (count < 1 || threads < 1 || options.get("out") == null || pin == null || pin.isEmpty()) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        File outputDirectory = new File(options.get("out"));
+        long start = System.nanoTime();
+        // the pool keeps one key pair per thread in flight, so all cores generate until the last one is taken
+        try (KeyPairPool pool = new KeyPairPool(algorithm, threads, threads)) {
+            for (int i = 1; i <= count; i++) {
+                KeyPair keyPair = pool.take();
+                File keyDirectory = new File(outputDirectory, String.format("key-%05d", i));
+                if (!keyDirectory.isDirectory() && !keyDirectory.mkdirs()) {
+                    System.err.println("Couldn't create directory: " + keyDirectory.getPath());
+                    return 1;
+                }
+                KeyStorageUtil.saveKeyPair(keyDirectory, keyPair, pin);
+                System.out.println(keyDirectory.getPath());
+            }
+        } catch (Exception e) {
+            System.err.println("Error provisioning keys: " + e.getMessage());
+            return 1;
+        }
+
+        System.err.printf("Provisioned %d key pairs in %.1f s%n", count, (System.nanoTime() - start) / 1e9);
+        return 0;
+    }
+}
@@ -3,18 +3,21 @@
  * \brief Controller class for handling GUI interactions.
  *
  * This file contains the implementation of the `GUIController` class, which provides
- * functionality for generating RSA key pairs, encrypting private keys, and saving them to files.
+ * functionality for generating RSA, ECDSA and Ed25519 key pairs, encrypting private keys, and saving them to files
+ * without blocking the JavaFX application thread.
  */
 
 package org.example._2ndapp;
 
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.stage.DirectoryChooser;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.security.KeyPair;
 
@@ -22,7 +25,7 @@ import java.security.KeyPair;
  * \class GUIController
  * \brief A controller class for managing GUI actions.
  *
- * This class handles user interactions for generating and saving RSA key pairs.
+ * This class handles user interactions for generating and saving key pairs of the selected type.
  */
 public class GUIController {
         /**
@@ -32,62 +35,92 @@ public class GUIController {
      */
     @FXML private TextField pinField;
     @FXML private Label statusLabel;
+    @FXML private Button generateButton;
+    @FXML private ComboBox<KeyAlgorithm> algorithmBox;
+
+    /**
+     * \brief RSA key pairs generated in the background while the window is open.
+     *
+     * Shared by all controllers, filling starts when the class is loaded with the window.
+     * ECDSA and Ed25519 key pairs are generated on demand, as that takes about a millisecond.
+     */
+    private static final KeyPairPool KEY_PAIR_POOL = new KeyPairPool();
+
+    /**
+     * \brief Fills the key type selection, 4096-bit RSA is selected by default.
+     */
+    @FXML
+    private void initialize() {
+        algorithmBox.getItems().setAll(KeyAlgorithm.values());
+        algorithmBox.getSelectionModel().select(KeyAlgorithm.RSA_4096);
+    }
 
     /**
      * \brief Handles the "Generate Keys" button action.
      *
-     * This method generates an RSA key pair, encrypts the private key using the provided PIN,
+     * This method generates a key pair of the selected type, encrypts the private key using the provided PIN,
      * and saves both the encrypted private key and the public key to files in a user-selected directory.
      * Details:
      * - Prompts the user to enter a PIN.
      * - Validates that the PIN is not empty.
      * - Opens a directory chooser for the user to select a folder to save the keys.
-     * - Uses the `KeyGeneratorApp` class to generate the RSA key pair and encode the keys to Base64.
-     * - Encrypts the private key using the `EncryptionUtil` class.
-     * - Saves the encrypted private key and public key to separate files.
+     * - Takes a pre-generated RSA key pair from the `KeyPairPool`, waiting for one only if the pool is empty,
+     *   or generates an ECDSA or Ed25519 key pair directly.
+     * - Encrypts and saves the keys with `KeyStorageUtil` on a background thread, so the window never freezes.
      * - Updates the status label with success or error messages.
      */
     @FXML
     private void handleGenerateKeys() {
-        try {
-            String pin = pinField.getText();
-            if (pin.isEmpty()) {
-                statusLabel.setText("PIN cannot be empty!");
-                return;
-            }
-
-            DirectoryChooser directoryChooser = new DirectoryChooser();
-            directoryChooser.setTitle("Select Folder to Save Keys");
-
-            File selectedDirectory = directoryChooser.showDialog(null);
-
-            if (selectedDirectory != null) {
-                KeyPair keyPair = KeyGeneratorApp.generateRSAKeyPair();
+        String pin = pinField.getText();
+        if (pin.isEmpty()) {
+            statusLabel.setText("PIN cannot be empty!");
+            return;
+        }
 
-                String encryptedPrivateKey = EncryptionUtil.encryptPrivateKey(
-                        KeyGeneratorApp.encodeKeyToBase64(keyPair.getPrivate()), pin);
-                String publicKey = KeyGeneratorApp.encodeKeyToBase64(
-                        keyPair.getPublic());
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Folder to Save Keys");
 
-                File outputFilePrivateKey = new File(selectedDirectory, "private_key.txt");
-                File outputFilePublicKey = new File(selectedDirectory, "public_key.txt");
+        File selectedDirectory = directoryChooser.showDialog(null);
+        if (selectedDirectory == null) {
+            statusLabel.setText("No folder selected.");
+            return;
+        }
 
-                try (FileWriter fileWriter = new FileWriter(outputFilePrivateKey)) {
-                    fileWriter.write(encryptedPrivateKey);
+        KeyAlgorithm algorithm = algorithmBox.getValue();
+        Task<File> task = new Task<>() {
+            @Override
+            protected File call() throws Exception {
+                KeyPair keyPair;
+                if (algorithm == KeyAlgorithm.RSA_4096) {
+                    if (KEY_PAIR_POOL.available() == 0) {
+                        updateMessage("Generating keys...");
+                    }
+                    keyPair = KEY_PAIR_POOL.take();
+                } else {
+                    keyPair = KeyGeneratorApp.generateKeyPair(algorithm);
                 }
-                try (FileWriter fileWriter = new FileWriter(outputFilePublicKey)) {
-                    fileWriter.write(publicKey);
-                }
-
-                statusLabel.setText("Keys generated and saved to " + outputFilePrivateKey.getAbsolutePath());
-            } else {
-                statusLabel.setText("No folder selected.");
+                updateMessage("Saving keys...");
+                return KeyStorageUtil.saveKeyPair(selectedDirectory, keyPair, pin);
             }
-        } catch (IOException e) {
-            statusLabel.setText("Error saving file: " + e.getMessage());
-        } catch (Exception e) {
-            statusLabel.setText("Error generating keys: " + e.getMessage());
-        }
+        };
+        statusLabel.textProperty().bind(task.messageProperty());
+        task.setOnSucceeded(event -> {
+            statusLabel.textProperty().unbind();
+            generateButton.setDisable(false);
+            statusLabel.setText("Keys generated and saved to " + task.getValue().getAbsolutePath());
+        });
+        task.setOnFailed(event -> {
+            statusLabel.textProperty().unbind();
+            generateButton.setDisable(false);
+            Throwable error = task.getException();
+            statusLabel.setText(error instanceof IOException
+                    ? "Error saving file: " + error.getMessage()
+                    : "Error generating keys: " + error.getMessage());
+        });
+
+        generateButton.setDisable(true);
+        Thread worker = new Thread(task, "key-saving");
+        worker.setDaemon(true);
+        worker.start();
     }
 }
-
@@ -0,0 +1,58 @@
+/**
+ * \file KeyAlgorithm.java
+ * \brief Key types offered by the key generator application.
+ *
+ * This file contains the `KeyAlgorithm` enum, listing the key pairs the application can generate
+ * and the names they are selected by in the GUI and on the command line.
+ */
+
+package org.example._2ndapp;
+
+/**
+ * \enum KeyAlgorithm
+ * \brief Type of the generated key pair.
+ *
+ * The signing application recognises the type of a key from the key files,
+ * so keys of all types are saved in the same format.
+ */
+public enum KeyAlgorithm {
+    RSA_4096("rsa", "RSA-4096"),          /**< 4096-bit RSA, slow to generate and to sign with. */
+    ECDSA_P256("ecdsa", "ECDSA P-256"),   /**< ECDSA on the NIST P-256 curve. */
+    ED25519("ed25519", "Ed25519");        /**< EdDSA on Curve25519. */
+
+    private final String optionName;
+    private final String displayName;
+
+    KeyAlgorithm(String optionName, String displayName) {
+        this.optionName = optionName;
+        this.displayName = displayName;
+    }
+
+    /**
+     * \brief Finds the algorithm selected by a command-line option value.
+     *
+     * \param name The option value, "rsa", "ecdsa" or "ed25519", case-insensitive.
+     *
+     * \return The matching algorithm.
+     *
+     * \throws IllegalArgumentException If no algorithm has the given name.
+     */
+    public static KeyAlgorithm fromOptionName(String name) {
+        for (KeyAlgorithm algorithm : values()) {
+            if (algorithm.optionName.equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unknown key algorithm: " + name);
+    }
+
+    /**
+     * \brief Returns the name shown in the GUI.
+     *
+     * \return The display name, e.g. "ECDSA P-256".
+     */
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
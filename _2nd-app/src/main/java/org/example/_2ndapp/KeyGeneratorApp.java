@@ -1,8 +1,8 @@
 /**
  * \file KeyGeneratorApp.java
- * \brief Utility class for generating RSA key pairs and encoding keys to Base64.
+ * \brief Utility class for generating key pairs and encoding keys to Base64.
  *
- * This class provides methods for generating RSA key pairs using the BouncyCastle library
+ * This class provides methods for generating RSA, ECDSA and Ed25519 key pairs using the BouncyCastle library
  * and encoding keys to Base64 format.
  */
 
@@ -10,14 +10,15 @@ package org.example._2ndapp;
 
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import java.security.*;
+import java.security.spec.ECGenParameterSpec;
 import java.security.spec.RSAKeyGenParameterSpec;
 import java.util.Base64;
 
 /**
  * \class KeyGeneratorApp
- * \brief A utility class for RSA key generation and encoding.
+ * \brief A utility class for key generation and encoding.
  *
- * This class uses the BouncyCastle library to generate RSA key pairs and provides
+ * This class uses the BouncyCastle library to generate RSA, ECDSA and Ed25519 key pairs and provides
  * functionality to encode keys in Base64 format.
  */
 public class KeyGeneratorApp {
@@ -25,6 +26,25 @@ public class KeyGeneratorApp {
         Security.addProvider(new BouncyCastleProvider());
     }
 
+    /**
+     * \brief Generates a key pair of the given type.
+     *
+     * \param algorithm The type of the key pair.
+     *
+     * \return A `KeyPair` object containing the generated public and private keys.
+     *
+     * \throws NoSuchAlgorithmException If the algorithm is not available.
+     * \throws NoSuchProviderException If the BouncyCastle provider is not available.
+     * \throws InvalidAlgorithmParameterException If the key generation parameters are invalid.
+     */
+    public static KeyPair generateKeyPair(KeyAlgorithm algorithm) throws NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException {
+        return switch (algorithm) {
+            case RSA_4096 -> generateRSAKeyPair();
+            case ECDSA_P256 -> generateECKeyPair();
+            case ED25519 -> generateEd25519KeyPair();
+        };
+    }
+
     /**
      * \brief Generates an RSA key pair.
      *
@@ -42,6 +62,38 @@ public class KeyGeneratorApp {
         return keyGen.generateKeyPair();
     }
 
+    /**
+     * \brief Generates an ECDSA key pair.
+     *
+     * This method generates a key pair on the NIST P-256 curve (secp256r1) using the BouncyCastle provider.
+     *
+     * \return A `KeyPair` object containing the generated EC public and private keys.
+     *
+     * \throws NoSuchAlgorithmException If the EC algorithm is not available.
+     * \throws NoSuchProviderException If the BouncyCastle provider is not available.
+     * \throws InvalidAlgorithmParameterException If the curve is not supported.
+     */
+    public static KeyPair generateECKeyPair() throws NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("EC", "BC");
+        keyGen.initialize(new ECGenParameterSpec("secp256r1"));
+        return keyGen.generateKeyPair();
+    }
+
+    /**
+     * \brief Generates an Ed25519 key pair.
+     *
+     * This method generates an EdDSA key pair on Curve25519 using the BouncyCastle provider.
+     *
+     * \return A `KeyPair` object containing the generated Ed25519 public and private keys.
+     *
+     * \throws NoSuchAlgorithmException If the Ed25519 algorithm is not available.
+     * \throws NoSuchProviderException If the BouncyCastle provider is not available.
+     */
+    public static KeyPair generateEd25519KeyPair() throws NoSuchAlgorithmException, NoSuchProviderException {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("Ed25519", "BC");
+        return keyGen.generateKeyPair();
+    }
+
     /**
      * \brief Encodes a key to Base64 format.
      *
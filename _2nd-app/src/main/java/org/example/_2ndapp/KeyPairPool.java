@@ -0,0 +1,169 @@
+/**
+ * \file KeyPairPool.java
+ * \brief Pool of key pairs generated in the background.
+ *
+ * This file contains the implementation of the `KeyPairPool` class, which keeps a number
+ * of freshly generated key pairs ready, so a key pair can be handed out without waiting.
+ */
+
+package org.example._2ndapp;
+
+import java.security.KeyPair;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * \class KeyPairPool
+ * \brief Keeps a configurable number of key pairs ready, generating them on background threads.
+ *
+ * Generating a 4096-bit RSA key pair takes from hundreds of milliseconds to seconds,
+ * ECDSA and Ed25519 key pairs take about a millisecond, so a pool pays off mainly for RSA.
+ * The pool generates key pairs in parallel on several threads until `capacity` of them are ready,
+ * and starts generating a replacement whenever one is taken.
+ * Every key pair is handed out only once. The ready key pairs live in memory only
+ * and are lost when the application exits.
+ */
+public class KeyPairPool implements AutoCloseable {
+    /**
+     * \brief Default number of ready key pairs.
+     */
+    public static final int DEFAULT_CAPACITY = 4;
+
+    private final KeyAlgorithm algorithm;
+    private final int capacity;
+    private final BlockingQueue<KeyPair> ready;
+    private final ExecutorService generators;
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private volatile Exception lastError;
+
+    /**
+     * \brief Creates a pool of RSA key pairs with the default capacity, using all but one processor core.
+     */
+    public KeyPairPool() {
+        this(KeyAlgorithm.RSA_4096, DEFAULT_CAPACITY, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * \brief Creates a pool of RSA key pairs and starts filling it.
+     *
+     * \param capacity The number of key pairs kept ready.
+     * \param threads The number of key pairs generated at the same time.
+     *
+     * \throws IllegalArgumentException If capacity or threads is not positive.
+     */
+    public KeyPairPool(int capacity, int threads) {
+        this(KeyAlgorithm.RSA_4096, capacity, threads);
+    }
+
+    /**
+     * \brief Creates a pool and starts filling it.
+     *
+     * \param algorithm The type of the generated key pairs.
+     * \param capacity The number of key pairs kept ready.
+     * \param threads The number of key pairs generated at the same time.
+     *
+     * \throws IllegalArgumentException If capacity or threads is not positive or algorithm is null.
+     */
+    public KeyPairPool(KeyAlgorithm algorithm, int capacity, int threads) {
+        if (algorithm == null || capacity < 1 || threads < 1) {
+            throw new IllegalArgumentException("algorithm must be given, capacity and threads must be positive");
+        }
+
+        this.algorithm = algorithm;
+        this.capacity = capacity;
+        this.ready = new ArrayBlockingQueue<>(capacity);
+        this.generators = Executors.newFixedThreadPool(threads, runnable -> {
+            // background generation must never keep the application from exiting
+            Thread thread = new Thread(runnable, "key-pair-pool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        refill();
+    }
+
+    /**
+     * \brief Takes a key pair, waiting for one to be generated if none is ready.
+     *
+     * \return A key pair that is not handed out to anyone else.
+     *
+     * \throws InterruptedException If the calling thread is interrupted while waiting.
+     * \throws IllegalStateException If the pool is closed or the key generation keeps failing.
+     */
+    public KeyPair take() throws InterruptedException {
+        if (generators.isShutdown()) {
+            throw new IllegalStateException("KeyPairPool already closed");
+        }
+
+        KeyPair keyPair = ready.poll();
+        while (keyPair == null) {
+            Exception error = lastError;
+            if (error != null && scheduled.get() == 0) {
+                throw new IllegalStateException("Key generation failed", error);
+            }
+            refill();
+            keyPair = ready.poll(100, TimeUnit.MILLISECONDS);
+        }
+        refill();
+        return keyPair;
+    }
+
+    /**
+     * \brief Returns the number of key pairs ready to be taken.
+     *
+     * \return The number of ready key pairs.
+     */
+    public int available() {
+        return ready.size();
+    }
+
+    /**
+     * \brief Stops generating key pairs and drops the ready ones.
+     */
+    @Override
+    public void close() {
+        generators.shutdownNow();
+        ready.clear();
+    }
+
+    /**
+     * \brief Schedules generation of the key pairs missing to fill the pool.
+     */
+    private void refill() {
+        while (!generators.isShutdown()) {
+            int current = scheduled.get();
+            if (ready.size() + current >= capacity) {
+                return;
+            }
+            if (scheduled.compareAndSet(current, current + 1)) {
+                try {
+                    generators.execute(this::generate);
+                } catch (RejectedExecutionException e) {
+                    // closed in the meantime
+                    scheduled.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * \brief Generates a single key pair and adds it to the ready ones.
+     */
+    private void generate() {
+        try {
+            KeyPair keyPair = KeyGeneratorApp.generateKeyPair(algorithm);
+            lastError = null;
+            ready.offer(keyPair);
+        } catch (Exception e) {
+            lastError = e;
+        } finally {
+            scheduled.decrementAndGet();
+        }
+    }
+}
@@ -7,16 +7,18 @@
 
 package org.example._2ndapp;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.security.KeyPair;
 
 /**
  * \class KeyStorageUtil
  * \brief A utility class for file storage operations.
  *
- * This class provides functionality to save data to files.
+ * This class provides functionality to save data and key pairs to files.
  */
 public class KeyStorageUtil {
     /**
@@ -33,4 +35,30 @@ public class KeyStorageUtil {
     public static void saveToFile(String filePath, String data) throws IOException {
         Files.write(Path.of(filePath), data.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
     }
+
+    /**
+     * \brief Saves a key pair as the files read by the signing application.
+     *
+     * The private key is encrypted with the PIN using `EncryptionUtil` and saved as "private_key.txt",
+     * the public key is saved as "public_key.txt". Existing files are overwritten.
+     *
+     * \param directory The directory where the key files will be saved.
+     * \param keyPair The key pair to save.
+     * \param pin The PIN used to encrypt the private key.
+     *
+     * \return The file containing the encrypted private key.
+     *
+     * \throws IOException If an error occurs while writing to the files.
+     * \throws Exception If an error occurs during encryption.
+     */
+    public static File saveKeyPair(File directory, KeyPair keyPair, String pin) throws Exception {
+        String encryptedPrivateKey = EncryptionUtil.encryptPrivateKey(
+                KeyGeneratorApp.encodeKeyToBase64(keyPair.getPrivate()), pin);
+        String publicKey = KeyGeneratorApp.encodeKeyToBase64(keyPair.getPublic());
+
+        File privateKeyFile = new File(directory, "private_key.txt");
+        saveToFile(privateKeyFile.getPath(), encryptedPrivateKey);
+        saveToFile(new File(directory, "public_key.txt").getPath(), publicKey);
+        return privateKeyFile;
+    }
 }
@@ -42,10 +42,15 @@ public class Main extends Application {
      * \brief The main method for launching the application.
      *
      * This method calls the `launch` method to start the JavaFX application.
+     * When arguments are given, the headless `BulkKeyProvisioner` is run instead.
      *
      * \param args Command-line arguments passed to the application.
      */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            BulkKeyProvisioner.main(args);
+            return;
+        }
         launch();
     }
 }
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.*;
+import service.crypto.CryptoEngine;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.Signature;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class CryptoProviderBenchmark
+ * \brief Compares JCA providers selectable in CryptoEngine for 4096-bit RSA signing and verification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoProviderBenchmark {
+    private static final String ALGORITHM = "SHA256withRSA";
+
+    @Param({"SunRsaSign", "BC"})
+    public String provider;
+
+    @Param({"32768"})
+    public int contentBytes;
+
+    private KeyPair keyPair;
+    private byte[] content;
+    private byte[] signatureBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        CryptoEngine.setProvider(provider);
+
+        keyPair = Fixtures.keyPair();
+        content = new byte[contentBytes];
+        new Random(42).nextBytes(content);
+        signatureBytes = sign();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CryptoEngine.setProvider(null);
+    }
+
+    @Benchmark
+    public byte[] sign() throws Exception {
+        Signature signature = CryptoEngine.signature(ALGORITHM);
+        signature.initSign(keyPair.getPrivate());
+        signature.update(content);
+        return signature.sign();
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        Signature signature = CryptoEngine.signature(ALGORITHM);
+        signature.initVerify(keyPair.getPublic());
+        signature.update(content);
+        return signature.verify(signatureBytes);
+    }
+}
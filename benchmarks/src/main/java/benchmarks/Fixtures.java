@@ -0,0 +1,148 @@
+package benchmarks;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
+import org.example._2ndapp.EncryptionUtil;
+import org.example._2ndapp.KeyAlgorithm;
+import org.example._2ndapp.KeyGeneratorApp;
+import org.example._2ndapp.KeyStorageUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * \class Fixtures
+ * \brief Generates the documents and keys used by the benchmarks.
+ *
+ * Keys are produced the same way the key generator application does it,
+ * so the key loading benchmarks exercise the real file format.
+ */
+public class Fixtures {
+    public static final String PIN = "1234";  /**< PIN protecting generated private keys. */
+
+    private static final Map<KeyAlgorithm, KeyPair> sharedKeyPairs = new EnumMap<>(KeyAlgorithm.class);
+
+    /**
+     * \brief Returns a 4096-bit RSA key pair shared by all benchmarks of the JVM.
+     *
+     * Generating the key takes seconds, so it is done once per fork.
+     *
+     * \return The key pair.
+     * \throws Exception If the key cannot be generated.
+     */
+    public static KeyPair keyPair() throws Exception {
+        return keyPair(KeyAlgorithm.RSA_4096);
+    }
+
+    /**
+     * \brief Returns a key pair of the given type shared by all benchmarks of the JVM.
+     * \param algorithm The type of the key pair.
+     * \return The key pair.
+     * \throws Exception If the key cannot be generated.
+     */
+    public static synchronized KeyPair keyPair(KeyAlgorithm algorithm) throws Exception {
+        KeyPair keyPair = sharedKeyPairs.get(algorithm);
+        if (keyPair == null) {
+            keyPair = KeyGeneratorApp.generateKeyPair(algorithm);
+            sharedKeyPairs.put(algorithm, keyPair);
+        }
+        return keyPair;
+    }
+
+    /**
+     * \brief Writes the key pair to the directory in the format produced by the key generator application.
+     * \param directory The directory the files are written to.
+     * \param keyPair The key pair to be written.
+     * \return Array of two files: the encrypted private key and the public key.
+     * \throws Exception If the key cannot be encrypted or the files cannot be written.
+     */
+    public static File[] writeKeyFiles(Path directory, KeyPair keyPair) throws Exception {
+        File privateKeyFile = directory.resolve("private_key.txt").toFile();
+        File publicKeyFile = directory.resolve("public_key.txt").toFile();
+        KeyStorageUtil.saveToFile(privateKeyFile.getPath(), EncryptionUtil.encryptPrivateKey(
+                KeyGeneratorApp.encodeKeyToBase64(keyPair.getPrivate()), PIN));
+        KeyStorageUtil.saveToFile(publicKeyFile.getPath(), KeyGeneratorApp.encodeKeyToBase64(keyPair.getPublic()));
+        return new File[]{privateKeyFile, publicKeyFile};
+    }
+
+    /**
+     * \brief Generates a PDF with the given number of pages, each with an uncompressed content stream.
+     *
+     * The content streams are filled with PDF comments, so the size of the file grows
+     * with the page count and content size without making rendering expensive.
+     *
+     * \param file The file the document is saved to.
+     * \param pages Number of pages (and content stream objects).
+     * \param pageContentBytes Approximate size of every content stream in bytes.
+     * \return The generated file.
+     * \throws IOException If the document cannot be saved.
+     */
+    public static File createPdf(File file, int pages, int pageContentBytes) throws IOException {
+        byte[] line = new byte[80];
+        Arrays.fill(line, (byte) 'x');
+        line[0] = '%';
+        line[line.length - 1] = '\n';
+
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(doc, page,
+                        PDPageContentStream.AppendMode.OVERWRITE, false)) {
+                    content.addComment("page " + i);
+                    for (int written = 0; written < pageContentBytes; written += line.length) {
+                        content.addComment(new String(line, 1, line.length - 2, StandardCharsets.US_ASCII));
+                    }
+                }
+            }
+            doc.save(file);
+        }
+        return file;
+    }
+
+    /**
+     * \brief Creates a signature configured like the one added by the application.
+     * \return The configured signature.
+     */
+    public static PDSignature createSignature() {
+        PDSignature signature = new PDSignature();
+        signature.setName("SIG TEST");
+        signature.setFilter(PDSignature.FILTER_ADOBE_PPKLITE);
+        signature.setSubFilter(PDSignature.SUBFILTER_ADBE_PKCS7_DETACHED);
+        return signature;
+    }
+
+    /**
+     * \brief Creates a temporary directory for the fixtures of a benchmark.
+     * \return The created directory.
+     * \throws IOException If the directory cannot be created.
+     */
+    public static Path createTempDirectory() throws IOException {
+        return Files.createTempDirectory("pades-bench");
+    }
+
+    /**
+     * \brief Deletes a fixture directory with all its contents.
+     * \param directory The directory to be deleted.
+     * \throws IOException If the directory cannot be listed.
+     */
+    public static void delete(Path directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
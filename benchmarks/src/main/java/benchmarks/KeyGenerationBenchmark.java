@@ -0,0 +1,28 @@
+package benchmarks;
+
+import org.example._2ndapp.KeyGeneratorApp;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class KeyGenerationBenchmark
+ * \brief Measures KeyGeneratorApp.generateRSAKeyPair.
+ *
+ * A single 4096-bit key takes seconds and the time varies a lot with the primes found,
+ * so the benchmark reports the average time of many single invocations.
+ * ECDSA and Ed25519 key generation is compared in SignatureAlgorithmBenchmark.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class KeyGenerationBenchmark {
+
+    @Benchmark
+    public KeyPair generateRSAKeyPair() throws Exception {
+        return KeyGeneratorApp.generateRSAKeyPair();
+    }
+}
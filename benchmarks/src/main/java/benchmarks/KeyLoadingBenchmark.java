@@ -0,0 +1,59 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import service.key_loading.CachingKeyLoader;
+import service.key_loading.KeyLoader;
+import service.key_loading.LocalKeyLoader;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class KeyLoadingBenchmark
+ * \brief Measures LocalKeyLoader reading keys written by the key generator application.
+ *
+ * With cached=true the loader is wrapped in a CachingKeyLoader, as in the GUI, so every call
+ * after the first one is a cache hit: the cost of checking the file and hashing the PIN.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyLoadingBenchmark {
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private Path directory;
+    private File privateKeyFile;
+    private File publicKeyFile;
+    private KeyLoader keyLoader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Fixtures.createTempDirectory();
+        File[] keyFiles = Fixtures.writeKeyFiles(directory, Fixtures.keyPair());
+        privateKeyFile = keyFiles[0];
+        publicKeyFile = keyFiles[1];
+        keyLoader = cached ? new CachingKeyLoader(new LocalKeyLoader()) : new LocalKeyLoader();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixtures.delete(directory);
+    }
+
+    @Benchmark
+    public PrivateKey loadPrivateKey() throws Exception {
+        return keyLoader.loadPrivateKey(privateKeyFile, Fixtures.PIN);
+    }
+
+    @Benchmark
+    public PublicKey loadPublicKey() throws Exception {
+        return keyLoader.loadPublicKey(publicKeyFile);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.*;
+import service.PdfLoaderWrapper;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class PdfLoadBenchmark
+ * \brief Measures PdfLoaderWrapper.loadPDF for documents of different size and object count,
+ * with the default and the memory-mapped reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfLoadBenchmark {
+    @Param({"1", "100", "1000"})
+    public int pages;
+
+    @Param({"1024", "65536"})
+    public int pageContentBytes;
+
+    @Param({"false", "true"})
+    public boolean memoryMapped;  /**< false: PDFBox's buffered file reader, true: MappedRandomAccessRead. */
+
+    private Path directory;
+    private File inputDoc;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        PdfLoaderWrapper.setMemoryMappedByDefault(memoryMapped);
+        directory = Fixtures.createTempDirectory();
+        inputDoc = Fixtures.createPdf(directory.resolve("input.pdf").toFile(), pages, pageContentBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        PdfLoaderWrapper.setMemoryMappedByDefault(false);
+        Fixtures.delete(directory);
+    }
+
+    @Benchmark
+    public int loadPDF() throws Exception {
+        try (PDDocument doc = PdfLoaderWrapper.loadPDF(inputDoc)) {
+            return doc.getNumberOfPages();
+        }
+    }
+}
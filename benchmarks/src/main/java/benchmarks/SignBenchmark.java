@@ -0,0 +1,50 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import service.Signer;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class SignBenchmark
+ * \brief Measures Signer.sign for documents of different size and object count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignBenchmark {
+    @Param({"1", "100", "1000"})
+    public int pages;
+
+    @Param({"1024", "65536"})
+    public int pageContentBytes;
+
+    private Path directory;
+    private File inputDoc;
+    private File outputDoc;
+    private PrivateKey key;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Fixtures.createTempDirectory();
+        inputDoc = Fixtures.createPdf(directory.resolve("input.pdf").toFile(), pages, pageContentBytes);
+        outputDoc = directory.resolve("output.pdf").toFile();
+        key = Fixtures.keyPair().getPrivate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixtures.delete(directory);
+    }
+
+    @Benchmark
+    public void sign() throws Exception {
+        Signer.sign(inputDoc, key, Fixtures.createSignature(), outputDoc);
+    }
+}
@@ -0,0 +1,100 @@
+package benchmarks;
+
+import org.example._2ndapp.KeyAlgorithm;
+import org.example._2ndapp.KeyGeneratorApp;
+import org.openjdk.jmh.annotations.*;
+import service.Signer;
+import service.Verifier;
+import service.crypto.CryptoEngine;
+import service.crypto.SignatureAlgorithm;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class SignatureAlgorithmBenchmark
+ * \brief Compares 4096-bit RSA, ECDSA P-256 and Ed25519 for key generation, raw signatures and whole documents.
+ *
+ * The raw benchmarks sign and verify a buffer in memory, the document benchmarks run Signer.sign
+ * and Verifier.verify on a small PDF, where parsing and saving the document adds the same cost to every algorithm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureAlgorithmBenchmark {
+    @Param({"RSA_4096", "ECDSA_P256", "ED25519"})
+    public KeyAlgorithm algorithm;
+
+    @Param({"32768"})
+    public int contentBytes;
+
+    private Path directory;
+    private File inputDoc;
+    private File signedDoc;
+    private File outputDoc;
+    private KeyPair keyPair;
+    private String signatureAlgorithm;
+    private byte[] content;
+    private byte[] signatureBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        keyPair = Fixtures.keyPair(algorithm);
+        signatureAlgorithm = SignatureAlgorithm.of(keyPair.getPrivate()).contentAlgorithm();
+        content = new byte[contentBytes];
+        new Random(42).nextBytes(content);
+        signatureBytes = signContent();
+
+        directory = Fixtures.createTempDirectory();
+        inputDoc = Fixtures.createPdf(directory.resolve("input.pdf").toFile(), 10, 1024);
+        signedDoc = directory.resolve("signed.pdf").toFile();
+        outputDoc = directory.resolve("output.pdf").toFile();
+        Signer.sign(inputDoc, keyPair.getPrivate(), Fixtures.createSignature(), signedDoc);
+        if (!Verifier.verify(signedDoc, keyPair.getPublic())) {
+            throw new IllegalStateException("Signed fixture doesn't verify with " + algorithm);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixtures.delete(directory);
+    }
+
+    @Benchmark
+    public KeyPair generateKeyPair() throws Exception {
+        return KeyGeneratorApp.generateKeyPair(algorithm);
+    }
+
+    @Benchmark
+    public byte[] signContent() throws Exception {
+        Signature signature = CryptoEngine.signature(signatureAlgorithm);
+        signature.initSign(keyPair.getPrivate());
+        signature.update(content);
+        return signature.sign();
+    }
+
+    @Benchmark
+    public boolean verifyContent() throws Exception {
+        Signature signature = CryptoEngine.signature(signatureAlgorithm);
+        signature.initVerify(keyPair.getPublic());
+        signature.update(content);
+        return signature.verify(signatureBytes);
+    }
+
+    @Benchmark
+    public void signDocument() throws Exception {
+        Signer.sign(inputDoc, keyPair.getPrivate(), Fixtures.createSignature(), outputDoc);
+    }
+
+    @Benchmark
+    public boolean verifyDocument() throws Exception {
+        return Verifier.verify(signedDoc, keyPair.getPublic());
+    }
+}
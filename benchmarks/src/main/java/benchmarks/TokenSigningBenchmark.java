@@ -0,0 +1,125 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import service.Signer;
+import service.key_loading.KeyStoreKeyLoader;
+import service.key_loading.Pkcs11KeyLoader;
+import service.key_loading.Pkcs12KeyLoader;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class TokenSigningBenchmark
+ * \brief Measures signing with keys of PKCS#12 keystores and PKCS#11 tokens, and the cost of opening their sessions.
+ *
+ * signDigest is the signature the token computes for every document (Signer.sign adds the same
+ * PDF parsing and saving to every key type), run it with -t to measure concurrent signing.
+ * reuseSession is a key lookup in an open session, openSession opens the keystore or logs in to the token
+ * and closes it again, as a loader without sessions would do for every document. openSession logs
+ * out of the whole token, so it is only meaningful with a single thread.
+ *
+ * The PKCS#12 keystore (4096-bit RSA) is generated with keytool. The PKCS#11 token is not created
+ * by the benchmark, its SunPKCS11 configuration, PIN and key label are given by the system properties
+ * pades.bench.pkcs11.config, pades.bench.pkcs11.pin (default 1234) and pades.bench.pkcs11.alias
+ * (default the first key), see the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenSigningBenchmark {
+    private static final String KEYSTORE_PIN = "123456";  /**< keytool requires at least six characters. */
+
+    @Param({"pkcs12"})
+    public String keystore;
+
+    private Path directory;
+    private File keyFile;
+    private String pin;
+    private String alias;
+    private KeyStoreKeyLoader keyLoader;
+    private PrivateKey key;
+    private byte[] digest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        switch (keystore) {
+            case "pkcs12" -> {
+                directory = Fixtures.createTempDirectory();
+                keyFile = directory.resolve("signer.p12").toFile();
+                createPkcs12(keyFile);
+                pin = KEYSTORE_PIN;
+            }
+            case "pkcs11" -> {
+                String config = System.getProperty("pades.bench.pkcs11.config");
+                if (config == null) {
+                    throw new IllegalStateException("Set pades.bench.pkcs11.config to the SunPKCS11 configuration of the token");
+                }
+                keyFile = new File(config);
+                pin = System.getProperty("pades.bench.pkcs11.pin", Fixtures.PIN);
+                alias = System.getProperty("pades.bench.pkcs11.alias");
+            }
+            default -> throw new IllegalArgumentException("Unknown keystore: " + keystore);
+        }
+        keyLoader = newKeyLoader();
+        key = keyLoader.loadPrivateKey(keyFile, pin);
+        digest = MessageDigest.getInstance("SHA-256").digest(new byte[1024]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        keyLoader.close();
+        if (directory != null) {
+            Fixtures.delete(directory);
+        }
+    }
+
+    @Benchmark
+    public byte[] signDigest() throws Exception {
+        return Signer.signDigest(digest, key);
+    }
+
+    @Benchmark
+    public PrivateKey reuseSession() throws Exception {
+        return keyLoader.loadPrivateKey(keyFile, pin);
+    }
+
+    @Benchmark
+    public PrivateKey openSession() throws Exception {
+        try (KeyStoreKeyLoader loader = newKeyLoader()) {
+            return loader.loadPrivateKey(keyFile, pin);
+        }
+    }
+
+    /**
+     * \brief Creates a loader of the benchmarked keystore type.
+     * \return The loader.
+     */
+    private KeyStoreKeyLoader newKeyLoader() {
+        return keystore.equals("pkcs11") ? new Pkcs11KeyLoader(alias) : new Pkcs12KeyLoader();
+    }
+
+    /**
+     * \brief Generates a PKCS#12 keystore with a 4096-bit RSA key and a self-signed certificate.
+     * \param file The keystore file to be created.
+     * \throws Exception If keytool fails.
+     */
+    private static void createPkcs12(File file) throws Exception {
+        String keytool = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(keytool, "-genkeypair", "-storetype", "PKCS12",
+                "-keystore", file.getPath(), "-storepass", KEYSTORE_PIN, "-alias", "signer",
+                "-keyalg", "RSA", "-keysize", "4096", "-dname", "CN=Benchmark")
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("keytool failed to create " + file);
+        }
+    }
+}
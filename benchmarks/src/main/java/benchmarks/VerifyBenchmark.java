@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import service.PdfLoaderWrapper;
+import service.Signer;
+import service.Verifier;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class VerifyBenchmark
+ * \brief Measures Verifier.verify for signed documents of different size and object count,
+ * with the default and the memory-mapped reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VerifyBenchmark {
+    @Param({"1", "100", "1000"})
+    public int pages;
+
+    @Param({"1024", "65536"})
+    public int pageContentBytes;
+
+    @Param({"false", "true"})
+    public boolean memoryMapped;  /**< false: PDFBox's buffered file reader, true: MappedRandomAccessRead. */
+
+    private Path directory;
+    private File signedDoc;
+    private PublicKey key;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        PdfLoaderWrapper.setMemoryMappedByDefault(memoryMapped);
+        directory = Fixtures.createTempDirectory();
+        File inputDoc = Fixtures.createPdf(directory.resolve("input.pdf").toFile(), pages, pageContentBytes);
+        signedDoc = directory.resolve("signed.pdf").toFile();
+        KeyPair keyPair = Fixtures.keyPair();
+        Signer.sign(inputDoc, keyPair.getPrivate(), Fixtures.createSignature(), signedDoc);
+        key = keyPair.getPublic();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        PdfLoaderWrapper.setMemoryMappedByDefault(false);
+        Fixtures.delete(directory);
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return Verifier.verify(signedDoc, key);
+    }
+}
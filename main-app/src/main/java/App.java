@@ -1,3 +1,4 @@
+import cli.CommandLineApp;
 import ui.MainFrame;
 
 import javax.swing.*;
@@ -14,8 +15,14 @@ public class App {
      * \param args Command line arguments.
      *
      * This method initializes the main frame of the application and makes it visible.
+     * When arguments are given, the headless command line tool is run instead.
      */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            CommandLineApp.main(args);
+            return;
+        }
+
         SwingUtilities.invokeLater(() -> {
             MainFrame mainFrame = new MainFrame();
             mainFrame.setVisible(true);
@@ -0,0 +1,781 @@
+package cli;
+
+import daemon.HotFolderDaemon;
+import daemon.SigningClient;
+import daemon.SigningDaemon;
+import daemon.VerificationServer;
+import exceptions.InvalidKeyFileException;
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
+import service.Signer;
+import service.VerificationCache;
+import service.VerificationOutcome;
+import service.Verifier;
+import service.batch.SigningJob;
+import service.batch.SigningResult;
+import service.key_loading.KeyLoader;
+import service.key_loading.LocalKeyLoader;
+import service.key_loading.Pkcs11KeyLoader;
+import service.key_loading.Pkcs12KeyLoader;
+import service.metrics.Metrics;
+
+import javax.management.JMException;
+
+import java.io.BufferedReader;
+import java.io.Console;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class CommandLineApp
+ * \brief Headless entry point signing and verifying PDF documents without the GUI.
+ *
+ * The class never touches AWT or Swing, so it starts fast and runs on machines without a display.
+ * Results are streamed to the standard output as JSON Lines or CSV, one record per document,
+ * as soon as the document is processed. Diagnostics go to the standard error.
+ */
+public class CommandLineApp {
+    public static final int EXIT_OK = 0;           /**< Every document was signed or has a valid signature. */
+    public static final int EXIT_FAILURES = 1;     /**< At least one document failed or has an invalid signature. */
+    public static final int EXIT_USAGE = 2;        /**< Invalid command line arguments or input files. */
+    public static final int EXIT_KEY_ERROR = 3;    /**< The key couldn't be loaded. */
+    public static final int EXIT_DAEMON_ERROR = 4; /**< The signing daemon couldn't be reached or the connection to it failed. */
+
+    public static final String PIN_ENVIRONMENT_VARIABLE = "PADES_PIN";  /**< Environment variable checked for the PIN when --pin is missing. */
+
+    private static final String USAGE = """
+            Usage:
+              sign   --key <private_key.txt> --out <dir> [--pin <pin>] [--threads <n>] [--format jsonl|csv] <inputs...>
+              sign   --socket <path> --out <dir> [--format jsonl|csv] <inputs...>
+              verify --key <public_key.txt> [--cache <file>] [--threads <n>] [--format jsonl|csv] <inputs...>
+              watch  --key <private_key.txt> --in <dir> --out <dir> --error <dir> [--pin <pin>] [--threads <n>]
+                     [--queue <n>] [--debounce <ms>] [--format jsonl|csv] [--metrics <seconds>]
+              daemon --key <private_key.txt> [--socket <path>] [--pin <pin>] [--threads <n>] [--metrics <seconds>]
+              serve  [--port <port>] [--bind <address>] [--key <public_key.txt>] [--cache <file>] [--threads <n>]
+                     [--metrics <seconds>]
+
+            Inputs are file paths, glob patterns (e.g. "scans/*.pdf") or @manifest files listing one input per line.
+            watch signs PDF files dropped into the --in directory until the process is stopped,
+            moving them to --out when signed or to --error when they couldn't be signed.
+            daemon unlocks the key once and signs documents sent to the Unix domain socket (default %s)
+            until the process is stopped, sign --socket sends the documents to it instead of loading the key.
+            serve answers HTTP verification requests (POST /keys, GET /keys, POST /verify?key=<fingerprint>)
+            until the process is stopped, --threads limits the documents verified at the same time.
+            --cache remembers verification results in the file, so unchanged documents are not checked again.
+            watch, daemon and serve publish their counters and latency percentiles as MBeans in the "pades" JMX domain,
+            --metrics additionally prints them to the standard error every given number of seconds.
+            --keystore pkcs12 reads --key as a PKCS#12 keystore, --keystore pkcs11 as the SunPKCS11 configuration
+            of a token whose user PIN is the PIN, --alias <alias> picks the key entry (the first one by default).
+            verify and serve then take a certificate as --key. The default --keystore local reads the text key files.
+            The PIN is taken from --pin, the %s environment variable or read from the terminal.
+            Exit codes: 0 all succeeded, 1 some documents failed, 2 usage error, 3 key loading error,
+            4 the signing daemon couldn't be reached or the connection to it failed.
+            """.formatted(SigningClient.defaultSocket(), PIN_ENVIRONMENT_VARIABLE);
+    private static final Map<String, Set<String>> OPTIONS = Map.of(
+            "sign", Set.of("key", "keystore", "alias", "out", "pin", "threads", "format", "socket"),
+            "verify", Set.of("key", "keystore", "alias", "cache", "threads", "format"),
+            "watch", Set.of("key", "keystore", "alias", "in", "out", "error", "pin", "threads", "queue", "debounce",
+                    "format", "metrics"),
+            "daemon", Set.of("key", "keystore", "alias", "socket", "pin", "threads", "metrics"),
+            "serve", Set.of("port", "bind", "key", "keystore", "alias", "cache", "threads", "metrics")
+    );  /**< Options accepted by each command. */
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private KeyLoader keyLoader;
+
+    /**
+     * \brief Constructor for CommandLineApp.
+     * \param out The stream the results are written to.
+     * \param err The stream diagnostics are written to.
+     */
+    public CommandLineApp(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+        this.keyLoader = new LocalKeyLoader();
+    }
+
+    /**
+     * \brief Main method of the headless tool.
+     * \param args Command line arguments, see USAGE.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(new CommandLineApp(System.out, System.err).run(args));
+    }
+
+    /**
+     * \brief Runs the command described by the arguments.
+     * \param args Command line arguments, see USAGE.
+     * \return The exit code, one of the EXIT_* constants.
+     */
+    public int run(String[] args) {
+        if (args.length == 0 || args[0].equals("help") || args[0].equals("--help")) {
+            err.print(USAGE);
+            return args.length == 0 ? EXIT_USAGE : EXIT_OK;
+        }
+
+        String command = args[0];
+        if (!OPTIONS.containsKey(command)) {
+            return usageError("Unknown command: " + command);
+        }
+
+        Map<String, String> options = new HashMap<>();
+        List<String> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                if (!OPTIONS.get(command).contains(args[i].substring(2))) {
+                    return usageError("Unknown option for " + command + ": " + args[i]);
+                }
+                if (i + 1 >= args.length) {
+                    return usageError("Missing value for " + args[i]);
+                }
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                inputs.add(args[i]);
+            }
+        }
+
+        ResultWriter writer;
+        String format = options.getOrDefault("format", "jsonl");
+        switch (format) {
+            case "jsonl" -> writer = new JsonLinesResultWriter(out);
+            case "csv" -> writer = new CsvResultWriter(out);
+            default -> {
+                return usageError("Unknown format: " + format);
+            }
+        }
+
+        int threads;
+        try {
+            threads = Integer.parseInt(options.getOrDefault("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+        } catch (NumberFormatException e) {
+            return usageError("Invalid number of threads: " + options.get("threads"));
+        }
+        if (threads < 1) {
+            return usageError("Number of threads must be positive");
+        }
+
+        String keystore = options.getOrDefault("keystore", "local");
+        switch (keystore) {
+            case "local" -> keyLoader = new LocalKeyLoader();
+            case "pkcs12" -> keyLoader = new Pkcs12KeyLoader(options.get("alias"));
+            case "pkcs11" -> keyLoader = new Pkcs11KeyLoader(options.get("alias"));
+            default -> {
+                return usageError("Unknown keystore type: " + keystore);
+            }
+        }
+
+        if (List.of("watch", "serve", "daemon").contains(command)) {
+            long metricsSeconds;
+            try {
+                metricsSeconds = Long.parseLong(options.getOrDefault("metrics", "0"));
+            } catch (NumberFormatException e) {
+                return usageError("Invalid metrics interval: " + options.get("metrics"));
+            }
+            if (metricsSeconds < 0) {
+                return usageError("Metrics interval must not be negative");
+            }
+            publishMetrics(metricsSeconds);
+        }
+
+        if (command.equals("serve")) {
+            return inputs.isEmpty() ? serve(options, threads) : usageError("serve takes no input files");
+        }
+        if (command.equals("sign") && options.get("socket") != null) {
+            if (inputs.isEmpty()) {
+                return usageError("No input files given");
+            }
+            try {
+                return signWithDaemon(InputResolver.resolve(inputs), options, writer);
+            } catch (IOException e) {
+                return usageError(e.getMessage());
+            }
+        }
+        if (options.get("key") == null) {
+            return usageError("Missing --key");
+        }
+        if (command.equals("daemon")) {
+            return inputs.isEmpty() ? daemon(options, threads) : usageError("daemon takes no input files");
+        }
+        if (command.equals("watch")) {
+            return inputs.isEmpty() ? watch(options, threads, writer) : usageError("watch takes no input files");
+        }
+        if (inputs.isEmpty()) {
+            return usageError("No input files given");
+        }
+        List<File> files;
+        try {
+            files = InputResolver.resolve(inputs);
+        } catch (IOException e) {
+            return usageError(e.getMessage());
+        }
+
+        return command.equals("sign")
+                ? sign(files, options, threads, writer)
+                : verify(files, options, threads, writer);
+    }
+
+    /**
+     * \brief Signs the files with the private key from the options.
+     * \param files The PDF files to be signed.
+     * \param options Parsed command line options.
+     * \param threads Number of worker threads.
+     * \param writer The writer the results are streamed to.
+     * \return The exit code.
+     */
+    private int sign(List<File> files, Map<String, String> options, int threads, ResultWriter writer) {
+        if (options.get("out") == null) {
+            return usageError("Missing --out");
+        }
+        File outputDir = new File(options.get("out"));
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            return usageError("Couldn't create output directory: " + outputDir.getPath());
+        }
+
+        String pin = readPin(options);
+        if (pin == null) {
+            return usageError("PIN is required to sign the documents");
+        }
+        PrivateKey key = unlockPrivateKey(options, pin);
+        if (key == null) {
+            return EXIT_KEY_ERROR;
+        }
+
+        writer.writeHeader();
+        List<SigningJob> jobs = planSigningJobs(files, outputDir, writer);
+        boolean allSucceeded = jobs.size() == files.size();
+        for (SigningResult result : Signer.signAll(jobs, key, CommandLineApp::createSignature, threads,
+                result -> writer.write(signingResult(result)))) {
+            allSucceeded &= result.isSuccess();
+        }
+        return allSucceeded ? EXIT_OK : EXIT_FAILURES;
+    }
+
+    /**
+     * \brief Pairs every file with its output file in the output directory, rejecting the pairs that cannot be signed.
+     *
+     * Rejected files are written as errors right away, before any document is signed.
+     *
+     * \param files The PDF files to be signed.
+     * \param outputDir The directory the signed documents are saved to.
+     * \param writer The writer the rejected files are reported to.
+     * \return The jobs of the files that can be signed, in the order of the files.
+     */
+    private static List<SigningJob> planSigningJobs(List<File> files, File outputDir, ResultWriter writer) {
+        List<SigningJob> jobs = new ArrayList<>(files.size());
+        Set<File> outputs = new HashSet<>();
+        for (File file : files) {
+            File outputDoc = new File(outputDir, file.getName());
+            String problem = checkSigningJob(file, outputDoc, outputs);
+            if (problem == null) {
+                jobs.add(new SigningJob(file, outputDoc));
+            } else {
+                writer.write(new DocumentResult("sign", file, outputDoc, DocumentResult.STATUS_ERROR, problem, 0));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * \brief Finds problems that keep a document from being signed before any work is done.
+     * \param inputDoc The document to be signed.
+     * \param outputDoc The file the signed document would be saved to.
+     * \param outputs Canonical output files of the documents accepted so far, the output file is added when accepted.
+     * \return Description of the problem, or null if the document can be signed.
+     */
+    private static String checkSigningJob(File inputDoc, File outputDoc, Set<File> outputs) {
+        if (!inputDoc.isFile()) {
+            return "File not found";
+        }
+        try {
+            File canonicalOutput = outputDoc.getCanonicalFile();
+            if (canonicalOutput.equals(inputDoc.getCanonicalFile())) {
+                return "Output file would overwrite the input";
+            }
+            // inputs with the same name from different directories share the output file
+            if (!outputs.add(canonicalOutput)) {
+                return "Output file is already written for another input of the same name";
+            }
+        } catch (IOException e) {
+            return describe(e);
+        }
+        return null;
+    }
+
+    /**
+     * \brief Signs files dropped into the input directory until the process is stopped.
+     * \param options Parsed command line options.
+     * \param threads Number of worker threads.
+     * \param writer The writer the results are streamed to.
+     * \return The exit code.
+     */
+    private int watch(Map<String, String> options, int threads, ResultWriter writer) {
+        if (options.get("in") == null || options.get("out") == null || options.get("error") == null) {
+            return usageError("watch requires --in, --out and --error");
+        }
+        int queueCapacity;
+        long debounceMillis;
+        try {
+            queueCapacity = Integer.parseInt(options.getOrDefault("queue",
+                    String.valueOf(HotFolderDaemon.DEFAULT_QUEUE_CAPACITY)));
+            debounceMillis = Long.parseLong(options.getOrDefault("debounce",
+                    String.valueOf(HotFolderDaemon.DEFAULT_DEBOUNCE.toMillis())));
+        } catch (NumberFormatException e) {
+            return usageError("Invalid number: " + e.getMessage());
+        }
+        if (queueCapacity < 1 || debounceMillis < 0) {
+            return usageError("Queue size must be positive and debounce must not be negative");
+        }
+
+        String pin = readPin(options);
+        if (pin == null) {
+            return usageError("PIN is required to sign the documents");
+        }
+        PrivateKey key = unlockPrivateKey(options, pin);
+        if (key == null) {
+            return EXIT_KEY_ERROR;
+        }
+
+        HotFolderDaemon daemon;
+        try {
+            daemon = new HotFolderDaemon(new File(options.get("in")), new File(options.get("out")),
+                    new File(options.get("error")), key, CommandLineApp::createSignature, threads,
+                    queueCapacity, Duration.ofMillis(debounceMillis),
+                    result -> writer.write(signingResult(result)));
+        } catch (FileNotFoundException | IllegalArgumentException e) {
+            return usageError(e.getMessage());
+        }
+
+        // stop cleanly on Ctrl+C or SIGTERM, letting the workers finish or cancel their files
+        CountDownLatch stopped = new CountDownLatch(1);
+        Thread shutdownHook = new Thread(() -> {
+            try {
+                daemon.close();
+                stopped.await(1, TimeUnit.MINUTES);
+            } catch (IOException | InterruptedException e) {
+                // the JVM is exiting anyway
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        writer.writeHeader();
+        err.println("Watching " + options.get("in") + ", stop with Ctrl+C");
+        try {
+            daemon.run();
+            return EXIT_OK;
+        } catch (IOException e) {
+            err.println("Couldn't watch the input directory: " + e.getMessage());
+            return EXIT_USAGE;
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * \brief Publishes the metrics of a long-running command over JMX and optionally as a periodic dump.
+     *
+     * The dump runs on a daemon thread and ends with the process.
+     *
+     * \param dumpSeconds Seconds between two dumps to the error stream, 0 to disable the dump.
+     */
+    private void publishMetrics(long dumpSeconds) {
+        try {
+            Metrics.registry().registerMBeans();
+        } catch (JMException e) {
+            err.println("Couldn't register the metrics MBeans: " + e.getMessage());
+        }
+        if (dumpSeconds > 0) {
+            Metrics.registry().startDump(Duration.ofSeconds(dumpSeconds), err);
+        }
+    }
+
+    /**
+     * \brief Runs the HTTP verification server until the process is stopped.
+     * \param options Parsed command line options.
+     * \param threads Maximal number of documents verified at the same time.
+     * \return The exit code.
+     */
+    private int serve(Map<String, String> options, int threads) {
+        int port;
+        try {
+            port = Integer.parseInt(options.getOrDefault("port", "8080"));
+        } catch (NumberFormatException e) {
+            return usageError("Invalid port: " + options.get("port"));
+        }
+        if (port < 0 || port > 65535) {
+            return usageError("Invalid port: " + port);
+        }
+
+        VerificationCache cache = null;
+        VerificationServer server = null;
+        try {
+            if (options.get("cache") != null) {
+                cache = new VerificationCache(new File(options.get("cache")));
+            }
+            server = new VerificationServer(new InetSocketAddress(options.getOrDefault("bind", "127.0.0.1"), port),
+                    cache, threads, VerificationServer.DEFAULT_MAX_DOCUMENT_SIZE);
+            if (options.get("key") != null) {
+                PublicKey key = keyLoader.loadPublicKey(new File(options.get("key")));
+                err.println("Registered key " + server.registerKey(key));
+            }
+
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(stopped::countDown));
+            server.start();
+            err.println("Listening on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                    + ", stop with Ctrl+C");
+            stopped.await();
+            return EXIT_OK;
+        } catch (InvalidKeyFileException e) {
+            err.println("Couldn't load the public key: " + e.getMessage());
+            return EXIT_KEY_ERROR;
+        } catch (IOException e) {
+            err.println("Couldn't start the server: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_OK;
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+            if (cache != null) {
+                try {
+                    cache.close();
+                } catch (IOException e) {
+                    err.println("Couldn't close the verification cache: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * \brief Signs the files through a running signing daemon, which holds the unlocked key.
+     * \param files The PDF files to be signed.
+     * \param options Parsed command line options.
+     * \param writer The writer the results are streamed to.
+     * \return The exit code.
+     */
+    private int signWithDaemon(List<File> files, Map<String, String> options, ResultWriter writer) {
+        if (options.get("out") == null) {
+            return usageError("Missing --out");
+        }
+        File outputDir = new File(options.get("out"));
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            return usageError("Couldn't create output directory: " + outputDir.getPath());
+        }
+
+        Path socket = Path.of(options.get("socket"));
+        SigningClient client;
+        try {
+            client = new SigningClient(socket);
+        } catch (IOException e) {
+            err.println("Couldn't connect to the signing daemon at " + socket + ": " + e.getMessage());
+            return EXIT_DAEMON_ERROR;
+        }
+
+        writer.writeHeader();
+        List<SigningJob> jobs = planSigningJobs(files, outputDir, writer);
+        boolean allSucceeded = jobs.size() == files.size();
+        Set<SigningJob> answered = new HashSet<>();
+        try (client) {
+            for (SigningResult result : client.signAll(jobs, result -> {
+                answered.add(result.job());
+                writer.write(signingResult(result));
+            })) {
+                allSucceeded &= result.isSuccess();
+            }
+        } catch (IOException e) {
+            // the documents answered before the connection failed are reported already
+            for (SigningJob job : jobs) {
+                if (!answered.contains(job)) {
+                    writer.write(new DocumentResult("sign", job.inputDoc(), job.outputDoc(),
+                            DocumentResult.STATUS_ERROR, describe(e), 0));
+                }
+            }
+            err.println("Connection to the signing daemon failed: " + e.getMessage());
+            return EXIT_DAEMON_ERROR;
+        }
+        return allSucceeded ? EXIT_OK : EXIT_FAILURES;
+    }
+
+    /**
+     * \brief Runs the signing daemon until the process is stopped.
+     * \param options Parsed command line options.
+     * \param threads Number of documents signed at the same time.
+     * \return The exit code.
+     */
+    private int daemon(Map<String, String> options, int threads) {
+        String pin = readPin(options);
+        if (pin == null) {
+            return usageError("PIN is required to sign the documents");
+        }
+        PrivateKey key = unlockPrivateKey(options, pin);
+        if (key == null) {
+            return EXIT_KEY_ERROR;
+        }
+
+        Path socket = options.get("socket") != null ? Path.of(options.get("socket")) : SigningClient.defaultSocket();
+        SigningDaemon daemon;
+        try {
+            daemon = new SigningDaemon(socket, key, CommandLineApp::createSignature, threads,
+                    SigningDaemon.DEFAULT_MAX_DOCUMENT_SIZE);
+        } catch (IOException e) {
+            err.println("Couldn't start the signing daemon: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+                stopped.await(1, TimeUnit.MINUTES);
+            } catch (IOException | InterruptedException e) {
+                // the JVM is exiting anyway
+            }
+        }));
+
+        err.println("Signing daemon listening on " + socket + ", stop with Ctrl+C");
+        try {
+            daemon.run();
+            return EXIT_OK;
+        } catch (IOException e) {
+            err.println("Signing daemon failed: " + e.getMessage());
+            return EXIT_FAILURES;
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * \brief Verifies the files with the public key from the options.
+     * \param files The signed PDF files to be verified.
+     * \param options Parsed command line options.
+     * \param threads Number of worker threads.
+     * \param writer The writer the results are streamed to.
+     * \return The exit code.
+     */
+    private int verify(List<File> files, Map<String, String> options, int threads, ResultWriter writer) {
+        PublicKey key;
+        try {
+            key = keyLoader.loadPublicKey(new File(options.get("key")));
+        } catch (InvalidKeyFileException e) {
+            err.println("Couldn't load the public key: " + e.getMessage());
+            return EXIT_KEY_ERROR;
+        }
+
+        VerificationCache cache = null;
+        if (options.get("cache") != null) {
+            try {
+                cache = new VerificationCache(new File(options.get("cache")));
+            } catch (IOException e) {
+                return usageError("Couldn't open the verification cache: " + e.getMessage());
+            }
+        }
+
+        VerificationCache resultCache = cache;
+        try {
+            return process(files, threads, writer, file -> {
+                long start = System.nanoTime();
+                if (!file.isFile()) {
+                    return new DocumentResult("verify", file, null, DocumentResult.STATUS_ERROR,
+                            "File not found", 0);
+                }
+                try {
+                    // unsigned and damaged documents are ordinary results here, not exceptions
+                    VerificationOutcome outcome = resultCache == null
+                            ? Verifier.verifyOutcome(file, key)
+                            : Verifier.verifyOutcome(file, key, resultCache);
+                    return switch (outcome) {
+                        case VerificationOutcome.Valid valid -> new DocumentResult("verify", file, null,
+                                DocumentResult.STATUS_VALID, null, System.nanoTime() - start);
+                        case VerificationOutcome.Invalid invalid -> new DocumentResult("verify", file, null,
+                                DocumentResult.STATUS_INVALID, null, System.nanoTime() - start);
+                        case VerificationOutcome.NotSigned notSigned -> new DocumentResult("verify", file, null,
+                                DocumentResult.STATUS_ERROR, "No signature found", System.nanoTime() - start);
+                        case VerificationOutcome.Failed failed -> new DocumentResult("verify", file, null,
+                                DocumentResult.STATUS_ERROR, describe(failed.exception()), System.nanoTime() - start);
+                    };
+                } catch (Exception e) {
+                    return new DocumentResult("verify", file, null, DocumentResult.STATUS_ERROR,
+                            describe(e), System.nanoTime() - start);
+                }
+            });
+        } finally {
+            if (cache != null) {
+                try {
+                    cache.close();
+                } catch (IOException e) {
+                    err.println("Couldn't close the verification cache: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * \brief Operation performed on a single document.
+     */
+    private interface DocumentTask {
+        /**
+         * \brief Processes the document, never throwing.
+         * \param file The document to be processed.
+         * \return The result of the operation.
+         */
+        DocumentResult process(File file);
+    }
+
+    /**
+     * \brief Runs the task for every file on a worker pool, writing results in completion order.
+     * \param files The documents to be processed.
+     * \param threads Number of worker threads.
+     * \param writer The writer the results are streamed to.
+     * \param task The operation performed on each document.
+     * \return EXIT_OK if every document succeeded, EXIT_FAILURES otherwise.
+     */
+    private int process(List<File> files, int threads, ResultWriter writer, DocumentTask task) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(files.size(), 1)));
+        try {
+            CompletionService<DocumentResult> completionService = new ExecutorCompletionService<>(executor);
+            for (File file : files) {
+                completionService.submit(() -> task.process(file));
+            }
+
+            writer.writeHeader();
+            boolean allSucceeded = true;
+            for (int i = 0; i < files.size(); i++) {
+                DocumentResult result;
+                try {
+                    result = completionService.take().get();
+                } catch (ExecutionException e) {
+                    err.println("Unexpected error: " + e.getCause());
+                    allSucceeded = false;
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    err.println("Interrupted");
+                    return EXIT_FAILURES;
+                }
+                writer.write(result);
+                allSucceeded &= result.isSuccess();
+            }
+            return allSucceeded ? EXIT_OK : EXIT_FAILURES;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * \brief Turns the result of a batch signing job into the record written for the document.
+     * \param result The result of the job.
+     * \return The document result.
+     */
+    private static DocumentResult signingResult(SigningResult result) {
+        return new DocumentResult("sign", result.job().inputDoc(), result.job().outputDoc(),
+                result.isSuccess() ? DocumentResult.STATUS_SIGNED : DocumentResult.STATUS_ERROR,
+                result.isSuccess() ? null : describe(result.error()), result.durationNanos());
+    }
+
+    /**
+     * \brief Creates and configures the signature added to every signed document.
+     * \return The configured signature.
+     */
+    private static PDSignature createSignature() {
+        PDSignature signature = new PDSignature();
+        signature.setName("SIG TEST");
+        signature.setFilter(PDSignature.FILTER_ADOBE_PPKLITE);
+        signature.setSubFilter(PDSignature.SUBFILTER_ADBE_PKCS7_DETACHED);
+        return signature;
+    }
+
+    /**
+     * \brief Loads and decrypts the private key named by the --key option, reporting failures.
+     *
+     * A keystore or token stays open for the rest of the process, so its key can be used by all workers.
+     *
+     * \param options Parsed command line options.
+     * \param pin The PIN of the private key.
+     * \return The private key, or null if it couldn't be loaded.
+     */
+    private PrivateKey unlockPrivateKey(Map<String, String> options, String pin) {
+        try {
+            return keyLoader.loadPrivateKey(new File(options.get("key")), pin);
+        } catch (InvalidKeyFileException e) {
+            err.println("Couldn't load the private key: " + e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            // LocalKeyLoader reports a wrong PIN as an unchecked decryption failure
+            err.println("Couldn't decrypt the private key, maybe the PIN is wrong?");
+            return null;
+        }
+    }
+
+    /**
+     * \brief Reads the PIN from the options, the environment or the terminal.
+     * \param options Parsed command line options.
+     * \return The PIN, or null if none was provided.
+     */
+    private String readPin(Map<String, String> options) {
+        String pin = options.get("pin");
+        if (pin == null) {
+            pin = System.getenv(PIN_ENVIRONMENT_VARIABLE);
+        }
+        if (pin == null) {
+            Console console = System.console();
+            if (console != null) {
+                char[] password = console.readPassword("Enter PIN for private key: ");
+                pin = password == null ? null : new String(password);
+            } else {
+                try {
+                    pin = new BufferedReader(new InputStreamReader(System.in)).readLine();
+                } catch (IOException e) {
+                    pin = null;
+                }
+            }
+        }
+        return pin == null || pin.isEmpty() ? null : pin;
+    }
+
+    /**
+     * \brief Builds a one-line description of an exception.
+     * \param e The exception to be described.
+     * \return The exception type followed by its message.
+     */
+    private static String describe(Exception e) {
+        return e.getMessage() == null
+                ? e.getClass().getSimpleName()
+                : e.getClass().getSimpleName() + ": " + e.getMessage().replace('\n', ' ');
+    }
+
+    /**
+     * \brief Reports a usage error.
+     * \param message Description of the error.
+     * \return EXIT_USAGE.
+     */
+    private int usageError(String message) {
+        err.println(message);
+        err.print(USAGE);
+        return EXIT_USAGE;
+    }
+}
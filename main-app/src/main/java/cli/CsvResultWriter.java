@@ -0,0 +1,57 @@
+package cli;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * \class CsvResultWriter
+ * \brief ResultWriter producing comma-separated values with a header row (RFC 4180 quoting).
+ */
+public class CsvResultWriter implements ResultWriter {
+    private final PrintStream out;
+
+    /**
+     * \brief Constructor for CsvResultWriter.
+     * \param out The stream the results are written to.
+     */
+    public CsvResultWriter(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * \brief Writes the column names.
+     */
+    @Override
+    public synchronized void writeHeader() {
+        out.println("operation,input,output,status,duration_ms,message");
+        out.flush();
+    }
+
+    /**
+     * \brief Writes a single document result as a CSV row.
+     * \param result The result to be written.
+     */
+    @Override
+    public synchronized void write(DocumentResult result) {
+        out.println(String.join(",",
+                result.operation(),
+                quote(result.inputDoc().getPath()),
+                result.outputDoc() == null ? "" : quote(result.outputDoc().getPath()),
+                result.status(),
+                String.format(Locale.ROOT, "%.3f", result.durationMillis()),
+                result.message() == null ? "" : quote(result.message())));
+        out.flush();
+    }
+
+    /**
+     * \brief Quotes a CSV field if it contains separators, quotes or line breaks.
+     * \param value The field value.
+     * \return The field ready to be written.
+     */
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
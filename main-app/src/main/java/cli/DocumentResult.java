@@ -0,0 +1,42 @@
+package cli;
+
+import java.io.File;
+
+/**
+ * \class DocumentResult
+ * \brief Outcome of processing a single document from the command line.
+ *
+ * \param operation The performed operation ("sign" or "verify").
+ * \param inputDoc The processed PDF file.
+ * \param outputDoc The signed PDF file, null for verification.
+ * \param status One of the STATUS_* constants.
+ * \param message Error description, null if the operation succeeded.
+ * \param durationNanos Wall-clock time spent on the document in nanoseconds.
+ */
+public record DocumentResult(String operation,
+                             File inputDoc,
+                             File outputDoc,
+                             String status,
+                             String message,
+                             long durationNanos) {
+    public static final String STATUS_SIGNED = "signed";    /**< Document was signed. */
+    public static final String STATUS_VALID = "valid";      /**< Signature is valid. */
+    public static final String STATUS_INVALID = "invalid";  /**< Signature doesn't match the document or the key. */
+    public static final String STATUS_ERROR = "error";      /**< Document couldn't be processed. */
+
+    /**
+     * \brief Checks whether the document was processed successfully.
+     * \return true if the document was signed or its signature is valid, false otherwise.
+     */
+    public boolean isSuccess() {
+        return STATUS_SIGNED.equals(status) || STATUS_VALID.equals(status);
+    }
+
+    /**
+     * \brief Returns the duration in milliseconds.
+     * \return Wall-clock time spent on the document in milliseconds.
+     */
+    public double durationMillis() {
+        return durationNanos / 1_000_000.0;
+    }
+}
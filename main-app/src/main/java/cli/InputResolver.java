@@ -0,0 +1,125 @@
+package cli;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * \class InputResolver
+ * \brief Utility class turning command line arguments into a list of input files.
+ *
+ * Every argument can be:
+ * - a path to a file,
+ * - a glob pattern, e.g. "scans/*.pdf" or "archive/**.pdf",
+ * - "@" followed by a path to a manifest file listing one input per line (empty lines and lines starting with # are skipped).
+ *
+ * A plain path is returned even if the file doesn't exist, so that a single missing document
+ * is reported as a failure of that document rather than of the whole batch.
+ */
+public class InputResolver {
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /**
+     * \brief Resolves the arguments into files, keeping their order and dropping duplicates.
+     * \param arguments Paths, glob patterns and manifest references.
+     * \return The resolved files.
+     * \throws FileNotFoundException If a manifest doesn't exist.
+     * \throws IOException If a manifest or a directory cannot be read.
+     */
+    public static List<File> resolve(List<String> arguments) throws IOException {
+        Set<File> files = new LinkedHashSet<>();
+        for (String argument : arguments) {
+            resolve(argument, files);
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * \brief Resolves a single argument and adds the result to the set.
+     * \param argument A path, glob pattern or manifest reference.
+     * \param files The set collecting the resolved files.
+     * \throws FileNotFoundException If a manifest doesn't exist.
+     * \throws IOException If a manifest or a directory cannot be read.
+     */
+    private static void resolve(String argument, Set<File> files) throws IOException {
+        if (argument.startsWith("@")) {
+            Path manifest = Path.of(argument.substring(1));
+            if (!Files.isRegularFile(manifest)) {
+                throw new FileNotFoundException("Manifest not found: " + manifest);
+            }
+            for (String line : Files.readAllLines(manifest)) {
+                String entry = line.strip();
+                if (!entry.isEmpty() && !entry.startsWith("#")) {
+                    resolve(entry, files);
+                }
+            }
+        } else if (isGlob(argument)) {
+            files.addAll(expandGlob(argument));
+        } else {
+            files.add(new File(argument));
+        }
+    }
+
+    /**
+     * \brief Checks whether the argument contains glob special characters.
+     * \param argument The argument to be checked.
+     * \return true if the argument is a glob pattern, false otherwise.
+     */
+    private static boolean isGlob(String argument) {
+        for (int i = 0; i < argument.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(argument.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * \brief Lists the regular files matching a glob pattern, sorted by path.
+     *
+     * The directory tree is walked from the longest leading part of the pattern without special characters.
+     *
+     * \param pattern The glob pattern.
+     * \return The matching files, possibly none.
+     * \throws IOException If a directory cannot be read.
+     */
+    private static List<File> expandGlob(String pattern) throws IOException {
+        Path patternPath = Path.of(pattern);
+        Path base = Path.of("");
+        int firstGlobSegment = 0;
+        for (; firstGlobSegment < patternPath.getNameCount(); firstGlobSegment++) {
+            String segment = patternPath.getName(firstGlobSegment).toString();
+            if (isGlob(segment)) {
+                break;
+            }
+            base = base.resolve(segment);
+        }
+        if (patternPath.getRoot() != null) {
+            base = patternPath.getRoot().resolve(base);
+        }
+        if (!Files.isDirectory(base)) {
+            return List.of();
+        }
+
+        int maxDepth = pattern.contains("**")
+                ? Integer.MAX_VALUE
+                : patternPath.getNameCount() - firstGlobSegment;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (Stream<Path> paths = Files.walk(base, maxDepth)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .map(Path::toFile)
+                    .toList();
+        }
+    }
+}
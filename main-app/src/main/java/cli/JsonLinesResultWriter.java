@@ -0,0 +1,45 @@
+package cli;
+
+import service.Json;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * \class JsonLinesResultWriter
+ * \brief ResultWriter producing one JSON object per line (JSON Lines).
+ */
+public class JsonLinesResultWriter implements ResultWriter {
+    private final PrintStream out;
+
+    /**
+     * \brief Constructor for JsonLinesResultWriter.
+     * \param out The stream the results are written to.
+     */
+    public JsonLinesResultWriter(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * \brief JSON Lines have no header, nothing is written.
+     */
+    @Override
+    public void writeHeader() {
+    }
+
+    /**
+     * \brief Writes a single document result as a JSON object.
+     * \param result The result to be written.
+     */
+    @Override
+    public synchronized void write(DocumentResult result) {
+        out.println("{\"operation\":" + Json.quote(result.operation())
+                + ",\"input\":" + Json.quote(result.inputDoc().getPath())
+                + ",\"output\":" + (result.outputDoc() == null ? "null" : Json.quote(result.outputDoc().getPath()))
+                + ",\"status\":" + Json.quote(result.status())
+                + ",\"durationMs\":" + String.format(Locale.ROOT, "%.3f", result.durationMillis())
+                + ",\"message\":" + (result.message() == null ? "null" : Json.quote(result.message()))
+                + "}");
+        out.flush();
+    }
+}
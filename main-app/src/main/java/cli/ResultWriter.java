@@ -0,0 +1,20 @@
+package cli;
+
+/**
+ * \interface ResultWriter
+ * \brief Interface for writing document results to the output stream of the command line tool.
+ *
+ * Results are written one by one as soon as they are available.
+ */
+public interface ResultWriter {
+    /**
+     * \brief Writes the header of the output, if the format has one.
+     */
+    void writeHeader();
+
+    /**
+     * \brief Writes a single document result.
+     * \param result The result to be written.
+     */
+    void write(DocumentResult result);
+}
@@ -0,0 +1,456 @@
+package daemon;
+
+import exceptions.OperationCancelledException;
+import exceptions.SigningException;
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
+import service.ProgressListener;
+import service.Signer;
+import service.batch.SigningJob;
+import service.batch.SigningResult;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * \class HotFolderDaemon
+ * \brief Signs PDF files as soon as they are dropped into a watched directory.
+ *
+ * The input directory is watched with a WatchService, so new files are noticed without polling.
+ * A file is signed only after it stopped changing for the debounce time, which keeps partially
+ * written files (e.g. from a scanner) from being picked up. Settled files are put on a bounded
+ * queue served by a pool of workers; when the queue is full the watcher waits for the workers.
+ *
+ * A signed copy is written to the output directory under the same name (a number is appended
+ * if the name is taken) and the input file is deleted. A file that couldn't be signed is moved
+ * to the error directory together with a ".error.txt" file describing the failure.
+ * Files already present at startup are processed too, files left in the queue at shutdown stay
+ * in the input directory and are picked up on the next start.
+ */
+public class HotFolderDaemon implements AutoCloseable {
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofSeconds(1);  /**< Default time a file must stay unchanged. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;  /**< Default number of settled files waiting for a worker. */
+    public static final Duration SHUTDOWN_TIMEOUT = Duration.ofMinutes(1);  /**< Time the workers get to cancel or finish their files. */
+
+    private static final String PART_SUFFIX = ".part";  /**< Suffix of signed files still being written. */
+    private static final String ERROR_SUFFIX = ".error.txt";  /**< Suffix of the files describing failures. */
+    private static final long WORKER_POLL_MILLIS = 100;  /**< Time an idle worker waits for a file before checking for shutdown. */
+
+    private final Path inputDir;
+    private final Path outputDir;
+    private final Path errorDir;
+    private final PrivateKey key;
+    private final Supplier<PDSignature> signatureFactory;
+    private final int workers;
+    private final long debounceNanos;
+    private final Consumer<SigningResult> listener;
+
+    private final BlockingQueue<Path> queue;
+    private final Set<Path> queued = ConcurrentHashMap.newKeySet();
+    private final Map<Path, Pending> pending = new HashMap<>();
+    private volatile WatchService watchService;
+    private volatile boolean closed;
+    private final ProgressListener cancelOnClose = new ProgressListener() {
+        @Override
+        public void onProgress(long processed, long total) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return closed;
+        }
+    };
+
+    /**
+     * \brief State of a file that is still being written.
+     * \param size Size of the file when it was last seen.
+     * \param lastModified Modification time of the file when it was last seen.
+     * \param seenAt Value of System.nanoTime() when the file was last seen changing.
+     */
+    private record Pending(long size, long lastModified, long seenAt) {}
+
+    /**
+     * \brief Constructor for HotFolderDaemon.
+     *
+     * \param inputDir The watched directory.
+     * \param outputDir The directory the signed files are written to, created if missing.
+     * \param errorDir The directory failed files are moved to, created if missing.
+     * \param key The private key used for all documents, loaded once by the caller.
+     * \param signatureFactory Factory creating a configured signature for each document.
+     * \param workers Number of worker threads.
+     * \param queueCapacity Maximal number of settled files waiting for a worker.
+     * \param debounce Time a file must stay unchanged before it is signed.
+     * \param listener Called from the worker threads with the result of every signed or failed file,
+     *                 the output of a failed job is its location in the error directory.
+     *
+     * \throws FileNotFoundException If the input directory doesn't exist or the other directories cannot be created.
+     * \throws IllegalStateException If any of the required input parameters are null.
+     * \throws IllegalArgumentException If a number is not positive, the debounce is negative or the directories are not distinct.
+     */
+    public HotFolderDaemon(File inputDir,
+                           File outputDir,
+                           File errorDir,
+                           PrivateKey key,
+                           Supplier<PDSignature> signatureFactory,
+                           int workers,
+                           int queueCapacity,
+                           Duration debounce,
+                           Consumer<SigningResult> listener) throws FileNotFoundException {
+        if (inputDir == null || outputDir == null || errorDir == null || key == null
+                || signatureFactory == null || debounce == null || listener == null) {
+            throw new IllegalStateException("Directories, key, signatureFactory, debounce and listener must not be NULL");
+        }
+        if (workers < 1 || queueCapacity < 1 || debounce.isNegative()) {
+            throw new IllegalArgumentException("workers and queueCapacity must be positive, debounce must not be negative");
+        }
+        if (!inputDir.isDirectory()) {
+            throw new FileNotFoundException("Not a directory: " + inputDir.getPath());
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new FileNotFoundException("Couldn't create output directory: " + outputDir.getPath());
+        }
+        if (!errorDir.isDirectory() && !errorDir.mkdirs()) {
+            throw new FileNotFoundException("Couldn't create error directory: " + errorDir.getPath());
+        }
+
+        this.inputDir = inputDir.toPath().toAbsolutePath().normalize();
+        this.outputDir = outputDir.toPath().toAbsolutePath().normalize();
+        this.errorDir = errorDir.toPath().toAbsolutePath().normalize();
+        if (this.inputDir.equals(this.outputDir) || this.inputDir.equals(this.errorDir)) {
+            throw new IllegalArgumentException("Output and error directories must differ from the input directory");
+        }
+
+        this.key = key;
+        this.signatureFactory = signatureFactory;
+        this.workers = workers;
+        this.debounceNanos = debounce.toNanos();
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * \brief Watches the input directory and signs incoming files until the daemon is closed.
+     *
+     * Blocks the calling thread. Files being hashed when the daemon is closed are cancelled
+     * and left in the input directory, files already being saved are finished. The workers are
+     * not interrupted, as an interrupt closes the file channels they write to.
+     *
+     * \throws IOException If the input directory cannot be watched.
+     * \throws IllegalStateException If the daemon was already closed.
+     */
+    public void run() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("HotFolderDaemon already closed");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try (WatchService service = inputDir.getFileSystem().newWatchService()) {
+            watchService = service;
+            inputDir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            for (int i = 0; i < workers; i++) {
+                executor.execute(this::work);
+            }
+
+            // files dropped while the daemon wasn't running
+            scan();
+            while (!closed) {
+                WatchKey watchKey = pending.isEmpty()
+                        ? service.take()
+                        : service.poll(nextDeadline(), TimeUnit.NANOSECONDS);
+                if (watchKey != null) {
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // events were lost, look at the whole directory again
+                            scan();
+                        } else {
+                            touch(inputDir.resolve((Path) event.context()));
+                        }
+                    }
+                    watchKey.reset();
+                }
+                dispatchSettled();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // close() was called
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed = true;
+            // the workers see closed and stop after their current file, which is cancelled by its listener
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            queue.clear();
+            queued.clear();
+            pending.clear();
+        }
+    }
+
+    /**
+     * \brief Stops watching the directory, making run return.
+     * \throws IOException If the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        WatchService service = watchService;
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    /**
+     * \brief Registers every PDF file currently in the input directory as pending.
+     * \throws IOException If the directory cannot be listed.
+     */
+    private void scan() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDir)) {
+            for (Path file : files) {
+                touch(file);
+            }
+        }
+    }
+
+    /**
+     * \brief Records that a file was created or changed, restarting its debounce time.
+     * \param file The file from the input directory.
+     */
+    private void touch(Path file) {
+        if (!isCandidate(file) || queued.contains(file)) {
+            return;
+        }
+        try {
+            pending.put(file, new Pending(Files.size(file), Files.getLastModifiedTime(file).toMillis(), System.nanoTime()));
+        } catch (IOException e) {
+            // the file was removed or renamed in the meantime
+            pending.remove(file);
+        }
+    }
+
+    /**
+     * \brief Moves the files that stopped changing from the pending set to the work queue.
+     * \throws InterruptedException If interrupted while waiting for space in the queue.
+     */
+    private void dispatchSettled() throws InterruptedException {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Pending>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Pending> entry = iterator.next();
+            Path file = entry.getKey();
+            Pending state = entry.getValue();
+            if (now - state.seenAt() < debounceNanos) {
+                continue;
+            }
+
+            long size;
+            long lastModified;
+            try {
+                size = Files.size(file);
+                lastModified = Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                iterator.remove();
+                continue;
+            }
+            if (size != state.size() || lastModified != state.lastModified()) {
+                // changed without an event reaching us yet, wait another debounce time
+                entry.setValue(new Pending(size, lastModified, now));
+                continue;
+            }
+
+            iterator.remove();
+            queued.add(file);
+            // blocks while the workers are busy, events pile up in the watch service meanwhile
+            queue.put(file);
+        }
+    }
+
+    /**
+     * \brief Computes how long the watcher may wait for events before a pending file settles.
+     * \return Time in nanoseconds until the earliest pending file settles, at least one millisecond.
+     */
+    private long nextDeadline() {
+        long now = System.nanoTime();
+        long earliest = Long.MAX_VALUE;
+        for (Pending state : pending.values()) {
+            earliest = Math.min(earliest, state.seenAt() + debounceNanos - now);
+        }
+        return Math.max(earliest, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * \brief Worker loop taking settled files from the queue until the daemon is closed.
+     */
+    private void work() {
+        try {
+            while (!closed) {
+                Path file = queue.poll(WORKER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (file == null) {
+                    continue;
+                }
+                try {
+                    process(file);
+                } finally {
+                    queued.remove(file);
+                }
+            }
+        } catch (InterruptedException e) {
+            // the shutdown timed out
+        }
+    }
+
+    /**
+     * \brief Signs a single file and moves it out of the input directory.
+     * \param file The settled file from the input directory.
+     */
+    private void process(Path file) {
+        String name = file.getFileName().toString();
+        Path outputDoc = outputDir.resolve(name);
+        Path partDoc = outputDir.resolve("." + name + PART_SUFFIX);
+        long start = System.nanoTime();
+        try {
+            // signed into a hidden file first, so consumers of the output directory never see partial files
+            Signer.sign(file.toFile(), key, signatureFactory.get(), partDoc.toFile(), cancelOnClose);
+            outputDoc = moveUnique(partDoc, outputDir, name);
+            Files.delete(file);
+            listener.accept(new SigningResult(new SigningJob(file.toFile(), outputDoc.toFile()), null,
+                    System.nanoTime() - start));
+        } catch (OperationCancelledException e) {
+            // cancelled by close(), the file stays in the input directory
+            deleteQuietly(partDoc);
+        } catch (Exception e) {
+            deleteQuietly(partDoc);
+            if (isInterruption(e)) {
+                // the shutdown timed out and interrupted the worker, the file itself is fine
+                return;
+            }
+            Exception error = e;
+            try {
+                if (Files.exists(file)) {
+                    Path failed = moveUnique(file, errorDir, name);
+                    outputDoc = failed;
+                    Files.writeString(failed.resolveSibling(failed.getFileName() + ERROR_SUFFIX),
+                            e + System.lineSeparator(), StandardCharsets.UTF_8);
+                }
+            } catch (IOException moveError) {
+                error = new SigningException("Couldn't move " + name + " to the error directory", e);
+            }
+            listener.accept(new SigningResult(new SigningJob(file.toFile(), outputDoc.toFile()), error,
+                    System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * \brief Moves a file into a directory, appending a number to its name if the name is taken.
+     *
+     * A rename replaces an existing target on Linux, so the name is taken with a hard link first,
+     * which fails if the name exists. Where hard links are not possible (e.g. another file system)
+     * the name is reserved with an empty file that the move then replaces.
+     *
+     * \param source The file to be moved.
+     * \param directory The target directory.
+     * \param name The preferred name in the target directory.
+     * \return The path the file was moved to.
+     * \throws IOException If the file cannot be moved.
+     */
+    private static Path moveUnique(Path source, Path directory, String name) throws IOException {
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+
+        for (int i = 0; ; i++) {
+            Path target = directory.resolve(i == 0 ? name : base + "-" + i + extension);
+            try {
+                Files.createLink(target, source);
+                Files.delete(source);
+                return target;
+            } catch (FileAlreadyExistsException e) {
+                // taken, try the next name
+                continue;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                // no hard link possible, reserve the name instead
+            }
+
+            try {
+                Files.createFile(target);
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            try {
+                return Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                deleteQuietly(target);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * \brief Checks whether a failure was caused by interrupting the worker.
+     * \param e The failure.
+     * \return true if an interrupt closed a channel or aborted a wait somewhere in the cause chain.
+     */
+    private static boolean isInterruption(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ClosedByInterruptException || cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * \brief Deletes a file, ignoring failures.
+     * \param file The file to be deleted.
+     */
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // nothing to clean up
+        }
+    }
+
+    /**
+     * \brief Checks whether a file in the input directory should be signed.
+     * \param file The file to be checked.
+     * \return true for regular, non-hidden PDF files, false otherwise.
+     */
+    private static boolean isCandidate(Path file) {
+        String name = file.getFileName().toString();
+        // scanners often write to a hidden or temporary name and rename the file when done
+        return !name.startsWith(".") && name.toLowerCase().endsWith(".pdf") && Files.isRegularFile(file);
+    }
+}
@@ -0,0 +1,205 @@
+package daemon;
+
+import exceptions.SigningException;
+import service.batch.SigningJob;
+import service.batch.SigningResult;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * \class SigningClient
+ * \brief Client of SigningDaemon, signing documents with the key unlocked by the daemon.
+ *
+ * Requests are pipelined: the documents are sent by a background thread while the responses
+ * are read on the calling thread, so the daemon can sign several documents of one batch in parallel.
+ * A client holds a single connection and must not be used by several threads at once.
+ */
+public class SigningClient implements AutoCloseable {
+    public static final String SOCKET_PROPERTY = "pades.signing.socket";  /**< System property overriding the default socket path. */
+
+    private final SocketChannel channel;
+
+    /**
+     * \brief Constructor for SigningClient, connects to the daemon.
+     * \param socketPath Path of the daemon's socket file.
+     * \throws IOException If no daemon is listening on the socket.
+     */
+    public SigningClient(Path socketPath) throws IOException {
+        this.channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            this.channel.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * \brief Returns the socket path used when none is given explicitly.
+     * \return The value of the "pades.signing.socket" system property, or ".pades-signing.sock" in the user's home directory.
+     */
+    public static Path defaultSocket() {
+        String configured = System.getProperty(SOCKET_PROPERTY);
+        return configured != null && !configured.isBlank()
+                ? Path.of(configured)
+                : Path.of(System.getProperty("user.home"), ".pades-signing.sock");
+    }
+
+    /**
+     * \brief Checks whether a daemon socket exists at the path.
+     * \param socketPath Path of the socket file.
+     * \return true if the socket file exists, the daemon may still have exited without removing it.
+     */
+    public static boolean isAvailable(Path socketPath) {
+        return socketPath != null && Files.exists(socketPath) && !Files.isRegularFile(socketPath);
+    }
+
+    /**
+     * \brief Signs a single document.
+     * \param inputDoc The PDF file to be signed.
+     * \param outputDoc The file the signed PDF is written to.
+     * \throws SigningException If the daemon couldn't sign the document.
+     * \throws IOException If the connection to the daemon fails or the files cannot be accessed.
+     */
+    public void sign(File inputDoc, File outputDoc) throws SigningException, IOException {
+        SigningResult result = signAll(List.of(new SigningJob(inputDoc, outputDoc))).getFirst();
+        if (result.error() instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (result.error() instanceof SigningException signingException) {
+            throw signingException;
+        }
+    }
+
+    /**
+     * \brief Signs many documents, sending all of them before waiting for the signed ones.
+     *
+     * A document the daemon couldn't sign doesn't stop the others, its result carries a SigningException
+     * with the daemon's description of the failure. The duration of a result is the time between
+     * its response and the previous one.
+     *
+     * \param jobs The input/output pairs to be signed.
+     * \return Results in the same order as the jobs.
+     * \throws IOException If the connection to the daemon fails or an output cannot be written,
+     *                    the client is closed then.
+     * \throws IllegalStateException If jobs is null.
+     */
+    public List<SigningResult> signAll(List<SigningJob> jobs) throws IOException {
+        return signAll(jobs, result -> {});
+    }
+
+    /**
+     * \brief Signs many documents like signAll(List), reporting every result as soon as it is known.
+     *
+     * Results already reported stay valid when the connection fails later, their documents are signed.
+     *
+     * \param jobs The input/output pairs to be signed.
+     * \param resultListener Called on the calling thread with the result of every job, in the order of the responses.
+     * \return Results in the same order as the jobs.
+     * \throws IOException If the connection to the daemon fails or an output cannot be written,
+     *                    the client is closed then.
+     * \throws IllegalStateException If jobs or resultListener is null.
+     */
+    public List<SigningResult> signAll(List<SigningJob> jobs, Consumer<SigningResult> resultListener) throws IOException {
+        if (jobs == null || resultListener == null) {
+            throw new IllegalStateException("jobs and resultListener must not be NULL");
+        }
+
+        // inputs that cannot be read fail on their own instead of breaking the connection
+        SigningResult[] results = new SigningResult[jobs.size()];
+        List<Integer> sent = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            if (Files.isReadable(jobs.get(i).inputDoc().toPath())) {
+                sent.add(i);
+            } else {
+                results[i] = new SigningResult(jobs.get(i),
+                        new FileNotFoundException("Couldn't read: " + jobs.get(i).inputDoc().getPath()), 0);
+                resultListener.accept(results[i]);
+            }
+        }
+
+        AtomicReference<IOException> sendError = new AtomicReference<>();
+        Thread sender = Thread.ofVirtual().start(() -> {
+            try {
+                for (int index : sent) {
+                    Path inputDoc = jobs.get(index).inputDoc().toPath();
+                    SigningProtocol.writeHeader(channel, SigningProtocol.OP_SIGN, Files.size(inputDoc));
+                    SigningProtocol.sendFile(inputDoc, channel);
+                }
+            } catch (IOException e) {
+                sendError.set(e);
+                // unblock the reader, the daemon won't answer a truncated request
+                try {
+                    channel.shutdownOutput();
+                } catch (IOException ignored) {
+                    // the connection is broken anyway
+                }
+            }
+        });
+
+        try {
+            long last = System.nanoTime();
+            for (int index : sent) {
+                SigningJob job = jobs.get(index);
+                SigningProtocol.Header header = SigningProtocol.readHeader(channel);
+                if (header == null) {
+                    throw new EOFException("The signing daemon closed the connection");
+                }
+
+                Exception error = null;
+                if (header.type() == SigningProtocol.STATUS_OK) {
+                    try {
+                        SigningProtocol.receiveFile(channel, header.length(), job.outputDoc().toPath());
+                    } catch (IOException e) {
+                        Files.deleteIfExists(job.outputDoc().toPath());
+                        throw e;
+                    }
+                } else if (header.type() == SigningProtocol.STATUS_ERROR) {
+                    error = new SigningException(new String(SigningProtocol.receiveBytes(channel, header.length()),
+                            StandardCharsets.UTF_8));
+                } else {
+                    throw new IOException("Unexpected response type " + header.type());
+                }
+
+                long now = System.nanoTime();
+                results[index] = new SigningResult(job, error, now - last);
+                resultListener.accept(results[index]);
+                last = now;
+            }
+        } catch (IOException e) {
+            // the position in the stream is lost, so is the connection; this also stops the sender
+            channel.close();
+            IOException cause = sendError.get();
+            throw cause != null ? cause : e;
+        } finally {
+            try {
+                sender.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return List.of(results);
+    }
+
+    /**
+     * \brief Closes the connection to the daemon.
+     * \throws IOException If the connection cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,366 @@
+package daemon;
+
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
+import service.Signer;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * \class SigningDaemon
+ * \brief Long-running process signing PDF documents sent over a Unix domain socket.
+ *
+ * The private key is unlocked once when the daemon starts, so local clients (the command line tool,
+ * the GUI) get signatures without locating the key, asking for the PIN and decrypting it every time.
+ * The wire format is described in SigningProtocol.
+ *
+ * Each connection is served by a reader receiving the documents into temporary files and handing them
+ * to a shared pool of signing workers, and a writer sending the signed documents back in request order.
+ * A client may therefore pipeline many requests on one connection and they are signed in parallel.
+ *
+ * The socket file is made accessible to its owner only where the file system supports POSIX permissions.
+ * Anyone who can connect to it can sign with the unlocked key.
+ */
+public class SigningDaemon implements AutoCloseable {
+    public static final long DEFAULT_MAX_DOCUMENT_SIZE = 512L * 1024 * 1024;  /**< Default limit of a document in bytes. */
+    public static final Duration SHUTDOWN_TIMEOUT = Duration.ofMinutes(1);  /**< Time the requests in progress get to be answered on close. */
+
+    private static final int MAX_PIPELINED = 16;  /**< Requests of one connection signed or waiting at once. */
+
+    private final Path socketPath;
+    private final PrivateKey key;
+    private final Supplier<PDSignature> signatureFactory;
+    private final long maxDocumentSize;
+    private final ExecutorService workers;
+    private final ExecutorService connections;
+    private final Path spoolDir;
+    private final ServerSocketChannel server;
+    private final Object answeredLock = new Object();
+    private int unanswered;  /**< Requests received but not answered yet, guarded by answeredLock. */
+
+    /**
+     * \brief Response prepared for a single request.
+     * \param signedDoc The signed document, null if signing failed.
+     * \param error Description of the failure, null if the document was signed.
+     */
+    private record Response(Path signedDoc, String error) {}
+
+    /**
+     * \brief Marks the end of the requests of a connection.
+     */
+    private static final Future<Response> END = CompletableFuture.completedFuture(null);
+
+    /**
+     * \brief Constructor for SigningDaemon, binds the socket without accepting connections yet.
+     * \param socketPath Path of the socket file, a stale file left by a crashed daemon is replaced.
+     * \param key The private key used for all documents, loaded once by the caller.
+     * \param signatureFactory Factory creating a configured signature for each document.
+     * \param threads Number of documents signed at the same time.
+     * \param maxDocumentSize Maximal size of a document in bytes.
+     * \throws IOException If another daemon is listening on the socket or the socket cannot be bound.
+     * \throws IllegalStateException If any of the required input parameters are null.
+     * \throws IllegalArgumentException If threads or maxDocumentSize is not positive.
+     */
+    public SigningDaemon(Path socketPath, PrivateKey key, Supplier<PDSignature> signatureFactory,
+                         int threads, long maxDocumentSize) throws IOException {
+        if (socketPath == null || key == null || signatureFactory == null) {
+            throw new IllegalStateException("socketPath, key and signatureFactory must not be NULL");
+        }
+        if (threads < 1 || maxDocumentSize < 1) {
+            throw new IllegalArgumentException("threads and maxDocumentSize must be positive");
+        }
+
+        this.socketPath = socketPath;
+        this.key = key;
+        this.signatureFactory = signatureFactory;
+        this.maxDocumentSize = maxDocumentSize;
+
+        if (Files.exists(socketPath)) {
+            if (isListening(socketPath)) {
+                throw new IOException("A signing daemon is already listening on " + socketPath);
+            }
+            // the file was left behind by a daemon that didn't shut down
+            Files.delete(socketPath);
+        }
+
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        this.spoolDir = posix
+                ? Files.createTempDirectory("pades-daemon-",
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")))
+                : Files.createTempDirectory("pades-daemon-");
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        this.server.bind(UnixDomainSocketAddress.of(socketPath));
+        if (posix) {
+            Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+        }
+
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.connections = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * \brief Accepts connections until the daemon is closed.
+     *
+     * Blocks the calling thread.
+     *
+     * \throws IOException If accepting a connection fails for another reason than closing the daemon.
+     */
+    public void run() throws IOException {
+        try {
+            while (true) {
+                SocketChannel client = server.accept();
+                connections.execute(() -> serve(client));
+            }
+        } catch (ClosedChannelException e) {
+            // close() was called
+        }
+    }
+
+    /**
+     * \brief Stops accepting connections, answers the requests in progress, closes the connections
+     * and removes the socket file.
+     *
+     * Documents being signed are finished and sent back, requests arriving meanwhile are answered
+     * with an error. Workers are not interrupted, as an interrupt closes the file channels they use.
+     * Only requests not answered within SHUTDOWN_TIMEOUT are aborted.
+     *
+     * \throws IOException If the socket or the temporary files cannot be removed.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        workers.shutdown();
+        try {
+            long deadline = System.nanoTime() + SHUTDOWN_TIMEOUT.toNanos();
+            if (workers.awaitTermination(SHUTDOWN_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS)) {
+                awaitAnswered(deadline);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // connections idle in reading the next request are closed by the interrupt
+            connections.shutdownNow();
+            workers.shutdownNow();
+        }
+        Files.deleteIfExists(socketPath);
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(spoolDir);
+    }
+
+    /**
+     * \brief Serves the requests of a single connection until the client closes it.
+     * \param client The connected client.
+     */
+    private void serve(SocketChannel client) {
+        BlockingQueue<Future<Response>> pending = new ArrayBlockingQueue<>(MAX_PIPELINED);
+        Thread writer = Thread.ofVirtual().start(() -> writeResponses(client, pending));
+        try (client) {
+            try {
+                SigningProtocol.Header header;
+                while ((header = SigningProtocol.readHeader(client)) != null) {
+                    if (header.type() != SigningProtocol.OP_SIGN) {
+                        // the stream can't be trusted anymore, drop the connection
+                        break;
+                    }
+                    if (header.length() > maxDocumentSize) {
+                        SigningProtocol.skip(client, header.length());
+                        received();
+                        pending.put(CompletableFuture.completedFuture(new Response(null,
+                                "Document larger than " + maxDocumentSize + " bytes")));
+                        continue;
+                    }
+
+                    Path inputDoc = Files.createTempFile(spoolDir, "in-", ".pdf");
+                    try {
+                        SigningProtocol.receiveFile(client, header.length(), inputDoc);
+                    } catch (IOException e) {
+                        Files.deleteIfExists(inputDoc);
+                        throw e;
+                    }
+                    Future<Response> response;
+                    try {
+                        response = workers.submit(() -> sign(inputDoc));
+                    } catch (RejectedExecutionException e) {
+                        Files.deleteIfExists(inputDoc);
+                        response = CompletableFuture.completedFuture(new Response(null, "The signing daemon is shutting down"));
+                    }
+                    received();
+                    // blocks when the client pipelines more requests than are being signed
+                    pending.put(response);
+                }
+            } catch (IOException e) {
+                // the client went away, the requests received so far are still answered if possible
+            } finally {
+                pending.put(END);
+                writer.join();
+            }
+        } catch (InterruptedException e) {
+            // the daemon is shutting down
+            writer.interrupt();
+        } catch (IOException e) {
+            // closing the connection failed, nothing left to do
+        }
+    }
+
+    /**
+     * \brief Sends the responses of a connection in request order.
+     * \param client The connected client.
+     * \param pending The responses in request order, terminated by END.
+     */
+    private void writeResponses(SocketChannel client, BlockingQueue<Future<Response>> pending) {
+        boolean connected = true;
+        try {
+            Future<Response> next;
+            while ((next = pending.take()) != END) {
+                Response response;
+                try {
+                    response = next.get();
+                } catch (ExecutionException e) {
+                    response = new Response(null, String.valueOf(e.getCause()));
+                }
+
+                try {
+                    if (connected) {
+                        send(client, response);
+                    }
+                } catch (IOException e) {
+                    // keep draining so the temporary files are deleted
+                    connected = false;
+                } finally {
+                    answered();
+                    if (response.signedDoc() != null) {
+                        Files.deleteIfExists(response.signedDoc());
+                    }
+                }
+            }
+        } catch (InterruptedException | IOException e) {
+            // the daemon is shutting down, close() removes the remaining files
+        }
+    }
+
+    /**
+     * \brief Writes a single response.
+     * \param client The connected client.
+     * \param response The response to be sent.
+     * \throws IOException If the response cannot be written.
+     */
+    private static void send(SocketChannel client, Response response) throws IOException {
+        if (response.signedDoc() != null) {
+            SigningProtocol.writeHeader(client, SigningProtocol.STATUS_OK, Files.size(response.signedDoc()));
+            SigningProtocol.sendFile(response.signedDoc(), client);
+        } else {
+            byte[] message = response.error().getBytes(StandardCharsets.UTF_8);
+            SigningProtocol.writeHeader(client, SigningProtocol.STATUS_ERROR, message.length);
+            ByteBuffer buffer = ByteBuffer.wrap(message);
+            while (buffer.hasRemaining()) {
+                client.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * \brief Signs a received document, turning any failure into an error response.
+     * \param inputDoc The received document, deleted afterwards.
+     * \return The response for the client.
+     */
+    private Response sign(Path inputDoc) {
+        Path signedDoc = null;
+        try {
+            signedDoc = Files.createTempFile(spoolDir, "out-", ".pdf");
+            Signer.sign(inputDoc.toFile(), key, signatureFactory.get(), signedDoc.toFile());
+            return new Response(signedDoc, null);
+        } catch (Exception e) {
+            if (signedDoc != null) {
+                try {
+                    Files.deleteIfExists(signedDoc);
+                } catch (IOException deleteError) {
+                    // close() removes it
+                }
+            }
+            return new Response(null, e.getMessage() == null
+                    ? e.getClass().getSimpleName()
+                    : e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(inputDoc);
+            } catch (IOException e) {
+                // close() removes it
+            }
+        }
+    }
+
+    /**
+     * \brief Counts a request whose response has been queued for the writer.
+     */
+    private void received() {
+        synchronized (answeredLock) {
+            unanswered++;
+        }
+    }
+
+    /**
+     * \brief Counts a response that was sent or dropped because the client went away.
+     */
+    private void answered() {
+        synchronized (answeredLock) {
+            unanswered--;
+            answeredLock.notifyAll();
+        }
+    }
+
+    /**
+     * \brief Waits until every received request has been answered.
+     * \param deadline System.nanoTime() value after which the daemon stops waiting.
+     * \throws InterruptedException If interrupted while waiting.
+     */
+    private void awaitAnswered(long deadline) throws InterruptedException {
+        synchronized (answeredLock) {
+            long remaining;
+            while (unanswered > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(answeredLock, remaining);
+            }
+        }
+    }
+
+    /**
+     * \brief Checks whether a daemon accepts connections on the socket.
+     * \param socketPath Path of the socket file.
+     * \return true if a connection could be made, false otherwise.
+     */
+    private static boolean isListening(Path socketPath) {
+        try {
+            SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+            probe.close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
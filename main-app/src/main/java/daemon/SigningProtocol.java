@@ -0,0 +1,155 @@
+package daemon;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * \class SigningProtocol
+ * \brief Framing shared by SigningDaemon and SigningClient.
+ *
+ * Every message is a 9-byte header (1 byte of type, 8 bytes of payload length, big-endian)
+ * followed by the payload. A request has the type OP_SIGN and carries the PDF to be signed.
+ * A response has the type STATUS_OK and carries the signed PDF, or STATUS_ERROR and carries
+ * a UTF-8 description of the failure. Responses come in the order of the requests,
+ * so a client may send many requests before reading the first response.
+ */
+class SigningProtocol {
+    static final byte OP_SIGN = 'S';       /**< Request to sign the PDF in the payload. */
+    static final byte STATUS_OK = 'K';     /**< Response carrying the signed PDF. */
+    static final byte STATUS_ERROR = 'E';  /**< Response carrying an error message. */
+
+    static final int HEADER_LENGTH = 1 + Long.BYTES;
+
+    /**
+     * \brief Header of a message.
+     * \param type The message type.
+     * \param length Length of the payload in bytes.
+     */
+    record Header(byte type, long length) {}
+
+    /**
+     * \brief Writes a message header.
+     * \param channel The channel to be written to.
+     * \param type The message type.
+     * \param length Length of the payload in bytes.
+     * \throws IOException If the header cannot be written.
+     */
+    static void writeHeader(WritableByteChannel channel, byte type, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH).put(type).putLong(length).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * \brief Reads a message header.
+     * \param channel The channel to be read from.
+     * \return The header, or null if the peer closed the connection between messages.
+     * \throws IOException If the header cannot be read or the connection ends inside it.
+     */
+    static Header readHeader(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (buffer.position() == 0) {
+                    return null;
+                }
+                throw new EOFException("Connection closed inside a message header");
+            }
+        }
+        buffer.flip();
+        Header header = new Header(buffer.get(), buffer.getLong());
+        if (header.length() < 0) {
+            throw new IOException("Invalid payload length " + header.length());
+        }
+        return header;
+    }
+
+    /**
+     * \brief Sends a whole file as the payload, letting the kernel copy the bytes where possible.
+     * \param file The file to be sent.
+     * \param channel The channel to be written to.
+     * \throws IOException If the file cannot be read or the payload cannot be written.
+     */
+    static void sendFile(Path file, WritableByteChannel channel) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, channel);
+            }
+        }
+    }
+
+    /**
+     * \brief Receives a payload of known length into a file.
+     * \param channel The channel to be read from.
+     * \param length Length of the payload in bytes.
+     * \param file The file to be written, truncated first.
+     * \throws IOException If the payload cannot be read or the file cannot be written.
+     */
+    static void receiveFile(ReadableByteChannel channel, long length, Path file) throws IOException {
+        try (FileChannel target = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            while (position < length) {
+                long transferred = target.transferFrom(channel, position, length - position);
+                if (transferred == 0) {
+                    // transferFrom doesn't report the end of the stream, check it with a plain read
+                    ByteBuffer probe = ByteBuffer.allocate(1);
+                    if (channel.read(probe) < 0) {
+                        throw new EOFException("Connection closed inside a payload");
+                    }
+                    target.write(probe.flip(), position);
+                    transferred = 1;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * \brief Reads a small payload into memory.
+     * \param channel The channel to be read from.
+     * \param length Length of the payload in bytes.
+     * \return The payload.
+     * \throws IOException If the payload cannot be read or is larger than 1 MiB.
+     */
+    static byte[] receiveBytes(ReadableByteChannel channel, long length) throws IOException {
+        if (length > 1024 * 1024) {
+            throw new IOException("Payload of " + length + " bytes too large");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Connection closed inside a payload");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * \brief Reads and throws away a payload.
+     * \param channel The channel to be read from.
+     * \param length Length of the payload in bytes.
+     * \throws IOException If the payload cannot be read.
+     */
+    static void skip(ReadableByteChannel channel, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long remaining = length;
+        while (remaining > 0) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+            int read = channel.read(buffer);
+            if (read < 0) {
+                throw new EOFException("Connection closed inside a payload");
+            }
+            remaining -= read;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package daemon;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import exceptions.InvalidKeyFileException;
+import service.Json;
+import service.VerificationCache;
+import service.VerificationOutcome;
+import service.Verifier;
+import service.crypto.KeyFingerprint;
+import service.key_loading.LocalKeyLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * \class VerificationServer
+ * \brief Embedded HTTP server verifying signed PDF documents.
+ *
+ * Every request is handled on its own virtual thread, so thousands of slow uploads
+ * can be in flight at once without tying up platform threads.
+ * Public keys are registered once and referenced by their fingerprint afterwards.
+ *
+ * Endpoints:
+ *  - POST /keys with a public key (text of a public key file) as the body, responds with its fingerprint.
+ *  - GET /keys lists the fingerprints of the registered keys.
+ *  - POST /verify?key=<fingerprint> with the PDF as the body, responds with the verification result.
+ *
+ * The document is streamed to a temporary file, as PDFBox needs random access to it, and deleted afterwards.
+ * Parsing and hashing are CPU bound, so the documents are verified by a fixed pool of platform threads,
+ * the remaining requests wait after their upload is complete. The pool threads live as long as the server,
+ * so the JCA objects CryptoEngine and Signer keep per thread are reused across requests. All responses are JSON objects,
+ * failures carry an "error" member.
+ */
+public class VerificationServer implements AutoCloseable {
+    public static final long DEFAULT_MAX_DOCUMENT_SIZE = 512L * 1024 * 1024;  /**< Default limit of an uploaded document in bytes. */
+
+    private static final int MAX_KEY_SIZE = 64 * 1024;  /**< Limit of an uploaded public key in bytes. */
+    private static final int BACKLOG = 1024;  /**< Number of pending connections the socket accepts. */
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, PublicKey> keys = new ConcurrentHashMap<>();
+    private final VerificationCache cache;
+    private final ExecutorService verifiers;
+    private final long maxDocumentSize;
+
+    /**
+     * \brief Constructor for VerificationServer, binds the socket without accepting requests yet.
+     * \param address The address to listen on, port 0 picks a free port.
+     * \param cache Cache of earlier verification results, may be null.
+     * \param maxConcurrentVerifications Maximal number of documents verified at the same time, the size of the verification pool.
+     * \param maxDocumentSize Maximal size of an uploaded document in bytes.
+     * \throws IOException If the socket cannot be bound.
+     * \throws IllegalStateException If the address is null.
+     * \throws IllegalArgumentException If a limit is not positive.
+     */
+    public VerificationServer(InetSocketAddress address, VerificationCache cache,
+                              int maxConcurrentVerifications, long maxDocumentSize) throws IOException {
+        if (address == null) {
+            throw new IllegalStateException("address must not be NULL");
+        }
+        if (maxConcurrentVerifications < 1 || maxDocumentSize < 1) {
+            throw new IllegalArgumentException("maxConcurrentVerifications and maxDocumentSize must be positive");
+        }
+
+        this.cache = cache;
+        this.verifiers = Executors.newFixedThreadPool(maxConcurrentVerifications,
+                Thread.ofPlatform().name("pades-verify-", 0).daemon().factory());
+        this.maxDocumentSize = maxDocumentSize;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, BACKLOG);
+        this.server.setExecutor(executor);
+        this.server.createContext("/keys", this::handleKeys);
+        this.server.createContext("/verify", this::handleVerify);
+    }
+
+    /**
+     * \brief Starts accepting requests in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * \brief Returns the address the server listens on.
+     * \return The bound address, with the actual port if port 0 was requested.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * \brief Registers a public key so requests can refer to it.
+     * \param key The public key.
+     * \return The fingerprint identifying the key in requests.
+     */
+    public String registerKey(PublicKey key) {
+        String fingerprint = KeyFingerprint.hex(key);
+        keys.put(fingerprint, key);
+        return fingerprint;
+    }
+
+    /**
+     * \brief Stops the server, closing the connections of requests still in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        verifiers.shutdownNow();
+    }
+
+    /**
+     * \brief Handles the /keys endpoint.
+     * \param exchange The HTTP exchange.
+     * \throws IOException If the response cannot be sent.
+     */
+    private void handleKeys(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> {
+                    StringBuilder json = new StringBuilder("{\"keys\":[");
+                    String separator = "";
+                    for (String fingerprint : new TreeMap<>(keys).keySet()) {
+                        json.append(separator).append(Json.quote(fingerprint));
+                        separator = ",";
+                    }
+                    respond(exchange, 200, json.append("]}").toString());
+                }
+                case "POST" -> {
+                    byte[] body = exchange.getRequestBody().readNBytes(MAX_KEY_SIZE + 1);
+                    if (body.length > MAX_KEY_SIZE) {
+                        respondError(exchange, 413, "Key too large");
+                        return;
+                    }
+                    try {
+                        PublicKey key = LocalKeyLoader.parsePublicKey(new String(body, StandardCharsets.US_ASCII));
+                        respond(exchange, 201, "{\"fingerprint\":" + Json.quote(registerKey(key)) + "}");
+                    } catch (InvalidKeyFileException e) {
+                        respondError(exchange, 400, "Invalid public key: " + e.getMessage());
+                    }
+                }
+                default -> respondError(exchange, 405, "Use GET or POST");
+            }
+        }
+    }
+
+    /**
+     * \brief Handles the /verify endpoint.
+     * \param exchange The HTTP exchange.
+     * \throws IOException If the response cannot be sent.
+     */
+    private void handleVerify(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respondError(exchange, 405, "Use POST");
+                return;
+            }
+            String fingerprint = queryParameter(exchange, "key");
+            if (fingerprint == null) {
+                respondError(exchange, 400, "Missing key parameter");
+                return;
+            }
+            PublicKey key = keys.get(fingerprint.toLowerCase(Locale.ROOT));
+            if (key == null) {
+                respondError(exchange, 404, "Unknown key: " + fingerprint);
+                return;
+            }
+
+            long start = System.nanoTime();
+            Path document = Files.createTempFile("pades-verify-", ".pdf");
+            try {
+                if (!spool(exchange.getRequestBody(), document)) {
+                    respondError(exchange, 413, "Document larger than " + maxDocumentSize + " bytes");
+                    return;
+                }
+
+                VerificationOutcome outcome;
+                try {
+                    outcome = verifiers.submit(() -> cache == null
+                            ? Verifier.verifyOutcome(document.toFile(), key)
+                            : Verifier.verifyOutcome(document.toFile(), key, cache)).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error error) {
+                        throw error;
+                    }
+                    throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+                }
+                switch (outcome) {
+                    case VerificationOutcome.NotSigned notSigned ->
+                            respondError(exchange, 422, "No signature found in the provided PDF file");
+                    case VerificationOutcome.Failed failed when failed.reason() == VerificationOutcome.Reason.UNSUPPORTED_KEY ->
+                            respondError(exchange, 422, "Key doesn't fit the signature: " + failed.message());
+                    case VerificationOutcome.Failed failed -> respondError(exchange, 422, failed.message());
+                    default -> respond(exchange, 200, "{\"valid\":" + outcome.isValid()
+                            + ",\"key\":" + Json.quote(fingerprint.toLowerCase(Locale.ROOT))
+                            + ",\"durationMs\":" + String.format(Locale.ROOT, "%.3f", (System.nanoTime() - start) / 1_000_000.0)
+                            + "}");
+                }
+            } catch (InterruptedException e) {
+                // the server is shutting down
+                Thread.currentThread().interrupt();
+            } catch (RejectedExecutionException e) {
+                respondError(exchange, 503, "The server is shutting down");
+            } catch (RuntimeException e) {
+                respondError(exchange, 500, e.toString());
+            } finally {
+                Files.deleteIfExists(document);
+            }
+        }
+    }
+
+    /**
+     * \brief Copies the request body to a file, stopping at the size limit.
+     * \param body The request body.
+     * \param target The file to be written.
+     * \return true if the whole body was copied, false if it exceeds the limit.
+     * \throws IOException If the body cannot be read or the file written.
+     */
+    private boolean spool(InputStream body, Path target) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > maxDocumentSize) {
+                    return false;
+                }
+                out.write(buffer, 0, read);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * \brief Returns a parameter from the query string of the request.
+     * \param exchange The HTTP exchange.
+     * \param name Name of the parameter.
+     * \return The decoded value, or null if the parameter is missing.
+     */
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8).equals(name)) {
+                return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * \brief Sends an error response.
+     * \param exchange The HTTP exchange.
+     * \param status The HTTP status code.
+     * \param message Description of the error.
+     * \throws IOException If the response cannot be sent.
+     */
+    private static void respondError(HttpExchange exchange, int status, String message) throws IOException {
+        respond(exchange, status, "{\"error\":" + Json.quote(message == null ? "Unknown error" : message) + "}");
+    }
+
+    /**
+     * \brief Sends a JSON response.
+     * \param exchange The HTTP exchange.
+     * \param status The HTTP status code.
+     * \param json The response body.
+     * \throws IOException If the response cannot be sent.
+     */
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  * \file InvalidKeyFileException.java
- * \brief Defines the InvalidKeyFileException class thrown when a file containing RSA key is invalid for some reason.
+ * \brief Defines the InvalidKeyFileException class thrown when a file containing a key is invalid for some reason.
  */
 
 package exceptions;
@@ -9,7 +9,7 @@ import java.io.IOException;
 
 /**
  * \class InvalidKeyFileException
- * \brief Exception thrown when an invalid file that should contain RSA key is encountered.
+ * \brief Exception thrown when an invalid file that should contain a key is encountered.
  *
  * Extends the IOException
  */
@@ -39,4 +39,14 @@ public class InvalidKeyFileException extends IOException {
     public InvalidKeyFileException(Throwable cause) {
         super(cause);
     }
-}
\ No newline at end of file
+
+    /**
+     * \brief Skips the stack trace unless StackTraces.PROPERTY is set, as the failure is expected
+     * (a wrong PIN or a damaged key file).
+     * \return This exception.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return StackTraces.CAPTURED ? super.fillInStackTrace() : this;
+    }
+}
@@ -0,0 +1,38 @@
+package exceptions;
+
+/**
+ * \class OperationCancelledException
+ * \brief Exception thrown when signing or verification is aborted by its ProgressListener.
+ *
+ * This class extends the RuntimeException and provides constructors to handle
+ * different scenarios of cancelled operations.
+ */
+public class OperationCancelledException extends RuntimeException {
+
+    /**
+     * \brief Constructs an OperationCancelledException with the specified detail message.
+     * \param message The detail message.
+     */
+    public OperationCancelledException(String message) {
+        super(message);
+    }
+
+    /**
+     * \brief Constructs an OperationCancelledException with the specified detail message and cause.
+     * \param message The detail message.
+     * \param cause The cause of the exception.
+     */
+    public OperationCancelledException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * \brief Skips the stack trace unless StackTraces.PROPERTY is set, as the failure is expected
+     * (the user or a shutting down daemon stopping the operation).
+     * \return This exception.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return StackTraces.CAPTURED ? super.fillInStackTrace() : this;
+    }
+}
@@ -35,4 +35,14 @@ public class PdfFileOpeningException extends IOException {
     public PdfFileOpeningException(Throwable cause) {
         super(cause);
     }
-}
\ No newline at end of file
+
+    /**
+     * \brief Skips the stack trace unless StackTraces.PROPERTY is set, as the failure is expected
+     * (a damaged or non-PDF file).
+     * \return This exception.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return StackTraces.CAPTURED ? super.fillInStackTrace() : this;
+    }
+}
@@ -33,4 +33,14 @@ public class SignatureVerificationException extends RuntimeException {
     public SignatureVerificationException(Throwable cause) {
         super(cause);
     }
-}
\ No newline at end of file
+
+    /**
+     * \brief Skips the stack trace unless StackTraces.PROPERTY is set, as the failure is expected
+     * (an unsigned document or a malformed signature).
+     * \return This exception.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return StackTraces.CAPTURED ? super.fillInStackTrace() : this;
+    }
+}
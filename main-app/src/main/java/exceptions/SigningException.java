@@ -33,4 +33,14 @@ public class SigningException extends RuntimeException {
     public SigningException(String message, Throwable cause) {
         super(message, cause);
     }
-}
\ No newline at end of file
+
+    /**
+     * \brief Skips the stack trace unless StackTraces.PROPERTY is set, as the failure is expected
+     * (e.g. a document that is already signed).
+     * \return This exception.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return StackTraces.CAPTURED ? super.fillInStackTrace() : this;
+    }
+}
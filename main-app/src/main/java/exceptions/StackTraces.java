@@ -0,0 +1,18 @@
+package exceptions;
+
+/**
+ * \class StackTraces
+ * \brief Decides whether the expected-failure exceptions capture their stack trace.
+ *
+ * Damaged, unsigned or foreign documents are routine in batch runs, and filling in the stack trace
+ * of every exception reporting them costs more than detecting the failure itself.
+ * Those exceptions therefore skip the stack trace, the message and the cause (which keeps its own trace)
+ * describe the failure. Running with -Dpades.exceptions.stackTraces=true captures them again for debugging.
+ */
+final class StackTraces {
+    static final String PROPERTY = "pades.exceptions.stackTraces";  /**< System property enabling the stack traces. */
+    static final boolean CAPTURED = Boolean.getBoolean(PROPERTY);    /**< true if the stack traces are captured. */
+
+    private StackTraces() {
+    }
+}
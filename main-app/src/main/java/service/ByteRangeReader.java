@@ -0,0 +1,175 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.SignatureException;
+
+import exceptions.OperationCancelledException;
+import exceptions.SignatureVerificationException;
+
+/**
+ * \class ByteRangeReader
+ * \brief Utility class feeding the signed byte ranges of a PDF file to a signature or digest object.
+ *
+ * The ranges are read straight from the file channel in fixed-size chunks,
+ * so memory use doesn't depend on the size of the document.
+ */
+public class ByteRangeReader {
+    public static final int CHUNK_SIZE = 64 * 1024;  /**< Size of the buffer used to read the file. */
+
+    /**
+     * \brief Updates the signature with every range listed in the PDF /ByteRange array.
+     * \param signature The initialized signature object to be updated.
+     * \param channel The channel of the signed PDF file.
+     * \param byteRange The /ByteRange array of the signature dictionary (pairs of offset and length).
+     * \return Total number of bytes fed to the signature.
+     * \throws IOException If an error occurs while reading the file.
+     * \throws SignatureException If the signature object is not initialized.
+     * \throws SignatureVerificationException If the byte ranges are malformed or point outside the file.
+     */
+    public static long update(Signature signature, FileChannel channel, int[] byteRange)
+            throws IOException, SignatureException {
+        return update(signature, channel, byteRange, ProgressListener.NONE);
+    }
+
+    /**
+     * \brief Updates the signature with every range listed in the PDF /ByteRange array, reporting progress.
+     * \param signature The initialized signature object to be updated.
+     * \param channel The channel of the signed PDF file.
+     * \param byteRange The /ByteRange array of the signature dictionary (pairs of offset and length).
+     * \param listener The listener notified about the bytes hashed and asked for cancellation.
+     * \return Total number of bytes fed to the signature.
+     * \throws IOException If an error occurs while reading the file.
+     * \throws SignatureException If the signature object is not initialized.
+     * \throws SignatureVerificationException If the byte ranges are malformed or point outside the file.
+     * \throws OperationCancelledException If the listener cancelled the operation.
+     */
+    public static long update(Signature signature, FileChannel channel, int[] byteRange, ProgressListener listener)
+            throws IOException, SignatureException {
+        return read(signature::update, channel, byteRange, listener);
+    }
+
+    /**
+     * \brief Updates the digest with every range listed in the PDF /ByteRange array.
+     * \param digest The message digest to be updated.
+     * \param channel The channel of the signed PDF file.
+     * \param byteRange The /ByteRange array of the signature dictionary (pairs of offset and length).
+     * \return Total number of bytes fed to the digest.
+     * \throws IOException If an error occurs while reading the file.
+     * \throws SignatureVerificationException If the byte ranges are malformed or point outside the file.
+     */
+    public static long update(MessageDigest digest, FileChannel channel, int[] byteRange) throws IOException {
+        try {
+            return read(digest::update, channel, byteRange, ProgressListener.NONE);
+        } catch (SignatureException e) {
+            // a message digest never throws it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * \brief Counts the bytes covered by a /ByteRange array without checking it against a file.
+     * \param byteRange The /ByteRange array of the signature dictionary (pairs of offset and length), may be null.
+     * \return Sum of the range lengths, 0 for a missing or malformed array.
+     */
+    public static long coveredBytes(int[] byteRange) {
+        if (byteRange == null || byteRange.length % 2 != 0) {
+            return 0;
+        }
+        long covered = 0;
+        for (int i = 1; i < byteRange.length; i += 2) {
+            covered += byteRange[i];
+        }
+        return covered;
+    }
+
+    /**
+     * \brief Receiver of the chunks read from the signed ranges.
+     */
+    private interface ChunkConsumer {
+        /**
+         * \brief Consumes the remaining bytes of the buffer.
+         * \param chunk The buffer holding the next part of the signed content.
+         * \throws SignatureException If the signature object is not initialized.
+         */
+        void accept(ByteBuffer chunk) throws SignatureException;
+    }
+
+    /**
+     * \brief Passes every range listed in the PDF /ByteRange array to the consumer in fixed-size chunks.
+     * \param consumer The receiver of the chunks.
+     * \param channel The channel of the signed PDF file.
+     * \param byteRange The /ByteRange array of the signature dictionary (pairs of offset and length).
+     * \param listener The listener notified about the bytes read and asked for cancellation.
+     * \return Total number of bytes passed to the consumer.
+     * \throws IOException If an error occurs while reading the file.
+     * \throws SignatureException If the consumer fails.
+     * \throws SignatureVerificationException If the byte ranges are malformed or point outside the file.
+     * \throws OperationCancelledException If the listener cancelled the operation.
+     */
+    private static long read(ChunkConsumer consumer, FileChannel channel, int[] byteRange, ProgressListener listener)
+            throws IOException, SignatureException {
+        if (byteRange == null || byteRange.length == 0 || byteRange.length % 2 != 0) {
+            throw new SignatureVerificationException("Malformed /ByteRange in the signature dictionary");
+        }
+
+        long fileSize = channel.size();
+        long total = 0;
+        for (int i = 0; i < byteRange.length; i += 2) {
+            long offset = byteRange[i];
+            long length = byteRange[i + 1];
+            if (offset < 0 || length < 0 || offset + length > fileSize) {
+                throw new SignatureVerificationException("/ByteRange points outside of the file");
+            }
+            total += length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long processed = 0;
+        for (int i = 0; i < byteRange.length; i += 2) {
+            processed += read(consumer, channel, byteRange[i], byteRange[i + 1], buffer, listener, processed, total);
+        }
+        return processed;
+    }
+
+    /**
+     * \brief Passes a single range of the file to the consumer.
+     * \param consumer The receiver of the chunks.
+     * \param channel The channel of the file.
+     * \param offset Position of the first byte of the range.
+     * \param length Number of bytes in the range.
+     * \param buffer Reusable buffer the file is read through.
+     * \param listener The listener notified about the bytes hashed and asked for cancellation.
+     * \param processed Number of bytes hashed before this range.
+     * \param total Total number of bytes in all ranges.
+     * \return Number of bytes passed to the consumer.
+     * \throws IOException If an error occurs while reading the file or it ends prematurely.
+     * \throws SignatureException If the consumer fails.
+     * \throws OperationCancelledException If the listener cancelled the operation.
+     */
+    private static long read(ChunkConsumer consumer, FileChannel channel, long offset, long length, ByteBuffer buffer,
+                               ProgressListener listener, long processed, long total)
+            throws IOException, SignatureException {
+        long position = offset;
+        long end = offset + length;
+        while (position < end) {
+            if (listener.isCancelled()) {
+                throw new OperationCancelledException("Verification was cancelled");
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file while reading signed content");
+            }
+            buffer.flip();
+            consumer.accept(buffer);
+            position += read;
+            listener.onProgress(processed + position - offset, total);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,97 @@
+package service;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * \class IncrementalFileOutputStream
+ * \brief Output stream of an incremental save that copies the original document inside the kernel.
+ *
+ * PDFBox writes an incremental update as the whole original file followed by the appended objects.
+ * This stream copies the original file into the output with FileChannel.transferTo when it is opened,
+ * which the operating system can do without moving the data through the JVM (copy_file_range,
+ * or a block clone on file systems supporting it). The original bytes PDFBox writes afterwards
+ * are only counted and dropped, so just the appended update is written by Java.
+ *
+ * The document must have been loaded from the original file as a whole, so the prefix PDFBox writes
+ * is exactly the original file.
+ */
+class IncrementalFileOutputStream extends OutputStream {
+    private final FileChannel channel;
+    private final long prefixLength;
+    private long position;
+
+    /**
+     * \brief Constructor for IncrementalFileOutputStream, creates the output and copies the original into it.
+     * \param original The file the document was loaded from.
+     * \param output The file the saved document is written to, truncated first.
+     * \throws FileNotFoundException If the output file cannot be created.
+     * \throws IOException If the original file cannot be copied.
+     */
+    IncrementalFileOutputStream(File original, File output) throws IOException {
+        // opened like before through FileOutputStream, so a missing directory is still a FileNotFoundException
+        this.channel = new FileOutputStream(output).getChannel();
+        try (FileChannel source = FileChannel.open(original.toPath(), StandardOpenOption.READ)) {
+            this.prefixLength = source.size();
+            long copied = 0;
+            while (copied < prefixLength) {
+                long transferred = source.transferTo(copied, prefixLength - copied, channel);
+                if (transferred <= 0) {
+                    throw new IOException("Original document shrank while saving: " + original.getPath());
+                }
+                copied += transferred;
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position < prefixLength) {
+            position++;
+            return;
+        }
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (position < prefixLength) {
+            // the original bytes are already in place
+            int skipped = (int) Math.min(len, prefixLength - position);
+            position += skipped;
+            off += skipped;
+            len -= skipped;
+        }
+        if (len == 0) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        position += len;
+    }
+
+    /**
+     * \brief Returns the size of the saved document so far.
+     * \return Number of bytes written to the stream, including the copied original.
+     */
+    long size() {
+        return Math.max(position, prefixLength);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
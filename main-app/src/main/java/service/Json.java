@@ -0,0 +1,44 @@
+package service;
+
+/**
+ * \class Json
+ * \brief Helpers for writing JSON by hand, shared by the command line output and the verification server.
+ */
+public final class Json {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private Json() {
+    }
+
+    /**
+     * \brief Quotes and escapes a string as a JSON string literal.
+     * \param value The string to be quoted.
+     * \return The JSON string literal.
+     * \throws IllegalStateException If the value is null.
+     */
+    public static String quote(String value) {
+        if (value == null) {
+            throw new IllegalStateException("value must not be NULL");
+        }
+
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,135 @@
+package service;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadView;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * \class MappedRandomAccessRead
+ * \brief PDFBox RandomAccessRead reading a file through memory-mapped segments.
+ *
+ * The file is mapped read-only in segments of up to 1 GiB, so reads and seeks go straight to the
+ * operating system page cache instead of being copied through a Java-side buffer first.
+ * Useful for large documents with many random cross-reference lookups.
+ * The mapping is released by the garbage collector after the reader is closed and unreachable,
+ * on systems locking mapped files (Windows) the file cannot be deleted until then.
+ */
+public class MappedRandomAccessRead implements RandomAccessRead {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private ByteBuffer[] segments;
+    private final long length;
+    private long position;
+
+    /**
+     * \brief Constructor for MappedRandomAccessRead, maps the whole file.
+     * \param file The file to be read.
+     * \throws IOException If the file cannot be opened or mapped.
+     */
+    public MappedRandomAccessRead(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            length = channel.size();
+            int count = (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+            segments = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, length - start));
+            }
+        }
+        // the mapping stays valid after the channel is closed
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        if (position >= length) {
+            return -1;
+        }
+        int value = segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK)) & 0xff;
+        position++;
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+
+        int toRead = (int) Math.min(len, length - position);
+        int done = 0;
+        while (done < toRead) {
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+            int index = (int) (position & SEGMENT_MASK);
+            int chunk = Math.min(toRead - done, segment.limit() - index);
+            segment.get(index, b, off + done, chunk);
+            done += chunk;
+            position += chunk;
+        }
+        return done;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        checkClosed();
+        return position;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        checkClosed();
+        if (position < 0) {
+            throw new IOException("Invalid position " + position);
+        }
+        this.position = Math.min(position, length);
+    }
+
+    @Override
+    public long length() throws IOException {
+        checkClosed();
+        return length;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return segments == null;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException {
+        checkClosed();
+        return position >= length;
+    }
+
+    @Override
+    public RandomAccessReadView createView(long startPosition, long streamLength) throws IOException {
+        checkClosed();
+        return new RandomAccessReadView(this, startPosition, streamLength);
+    }
+
+    @Override
+    public void close() {
+        segments = null;
+    }
+
+    /**
+     * \brief Throws if the reader was closed.
+     * \throws IOException If the reader was closed.
+     */
+    private void checkClosed() throws IOException {
+        if (segments == null) {
+            throw new IOException("MappedRandomAccessRead already closed");
+        }
+    }
+}
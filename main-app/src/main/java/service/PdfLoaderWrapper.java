@@ -5,8 +5,13 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import exceptions.PdfFileOpeningException;
+import service.jfr.PdfLoadEvent;
 
 /**
  * \class PdfLoaderWrapper
@@ -15,6 +20,33 @@ import exceptions.PdfFileOpeningException;
  * This class provides a method to load PDF documents and handle exceptions that may occur during the process.
  */
 public class PdfLoaderWrapper {
+    private static final int HEADER_SEARCH_LENGTH = 1024;   /**< The header may be preceded by garbage, as tolerated by readers. */
+    private static final int TRAILER_SEARCH_LENGTH = 2048;  /**< Tail of the file searched for startxref and %%EOF. */
+    private static final Pattern STARTXREF = Pattern.compile("startxref\\s+(\\d+)\\s+%%EOF");
+    private static final Pattern XREF_SECTION = Pattern.compile("^\\s*(xref|\\d+\\s+\\d+\\s+obj)");
+
+    public static final String MEMORY_MAPPED_PROPERTY = "pades.pdf.mmap";  /**< System property enabling memory-mapped reading by default. */
+
+    private static volatile PdfMemorySetting defaultMemorySetting = memorySettingFromProperties();
+    private static volatile boolean memoryMappedByDefault = Boolean.getBoolean(MEMORY_MAPPED_PROPERTY);
+
+    /**
+     * \brief Reads the default memory setting from the system properties.
+     *
+     * Runs in the static initializer, where an exception would make the class unusable for the rest
+     * of the process, so invalid values are reported as a warning and the default is used instead.
+     *
+     * \return The configured setting, main memory only if the properties are invalid.
+     */
+    private static PdfMemorySetting memorySettingFromProperties() {
+        try {
+            return PdfMemorySetting.fromSystemProperties();
+        } catch (IllegalArgumentException e) {
+            System.getLogger(PdfLoaderWrapper.class.getName()).log(System.Logger.Level.WARNING,
+                    "Ignoring invalid PDF memory setting, documents are kept in main memory: " + e.getMessage());
+            return PdfMemorySetting.mainMemoryOnly();
+        }
+    }
 
     /**
      * \brief Loads a PDF document from the specified file.
@@ -23,10 +55,152 @@ public class PdfLoaderWrapper {
      * \throws PdfFileOpeningException If an error occurs while opening the PDF file.
      */
     public static PDDocument loadPDF(File file) throws PdfFileOpeningException {
+        return loadPDF(file, defaultMemorySetting);
+    }
+
+    /**
+     * \brief Loads a PDF document from the specified file with the given memory setting.
+     * \param file The file from which the PDF document is to be loaded.
+     * \param memorySetting Where the document keeps its scratch data while open.
+     * \return The loaded PDDocument.
+     * \throws PdfFileOpeningException If an error occurs while opening the PDF file.
+     */
+    public static PDDocument loadPDF(File file, PdfMemorySetting memorySetting) throws PdfFileOpeningException {
+        return loadPDF(file, memorySetting, memoryMappedByDefault);
+    }
+
+    /**
+     * \brief Loads a PDF document from the specified file with the given memory setting and reader.
+     * \param file The file from which the PDF document is to be loaded.
+     * \param memorySetting Where the document keeps its scratch data while open.
+     * \param memoryMapped true to read the file through MappedRandomAccessRead, false for PDFBox's buffered file reader.
+     * \return The loaded PDDocument, closing it also closes the reader.
+     * \throws PdfFileOpeningException If an error occurs while opening the PDF file.
+     */
+    public static PDDocument loadPDF(File file, PdfMemorySetting memorySetting, boolean memoryMapped)
+            throws PdfFileOpeningException {
+        PdfLoadEvent event = new PdfLoadEvent();
+        event.begin();
+        event.outcome = "error";
         try {
-            return Loader.loadPDF(file);
+            PDDocument doc;
+            if (memoryMapped) {
+                MappedRandomAccessRead source = new MappedRandomAccessRead(file);
+                try {
+                    doc = Loader.loadPDF(source, memorySetting.streamCache());
+                } catch (IOException e) {
+                    source.close();
+                    throw e;
+                }
+            } else {
+                doc = Loader.loadPDF(file, memorySetting.streamCache());
+            }
+            event.outcome = "loaded";
+            return doc;
         } catch (IOException e) {
             throw new PdfFileOpeningException("Couldn't open: " + file.getName());
+        } finally {
+            // the file attributes are only looked up while recording
+            if (event.shouldCommit()) {
+                event.path = file.getPath();
+                event.fileSize = file.length();
+                event.memorySetting = memorySetting.mode().name();
+                event.memoryMapped = memoryMapped;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * \brief Sets the memory setting used by loadPDF(File), and so by Signer and Verifier.
+     * \param memorySetting The new default setting.
+     * \throws IllegalStateException If the setting is null.
+     */
+    public static void setDefaultMemorySetting(PdfMemorySetting memorySetting) {
+        if (memorySetting == null) {
+            throw new IllegalStateException("memorySetting must not be NULL");
+        }
+        defaultMemorySetting = memorySetting;
+    }
+
+    /**
+     * \brief Returns the memory setting used by loadPDF(File).
+     * \return The default setting, initially read from the pades.pdf.memory and pades.pdf.maxMainMemory system properties.
+     */
+    public static PdfMemorySetting getDefaultMemorySetting() {
+        return defaultMemorySetting;
+    }
+
+    /**
+     * \brief Chooses whether loadPDF(File), and so Signer and Verifier, read files through memory mapping.
+     * \param memoryMapped true to use MappedRandomAccessRead, false for PDFBox's buffered file reader.
+     */
+    public static void setMemoryMappedByDefault(boolean memoryMapped) {
+        memoryMappedByDefault = memoryMapped;
+    }
+
+    /**
+     * \brief Checks whether loadPDF(File) reads files through memory mapping.
+     * \return true if MappedRandomAccessRead is used, initially the value of the pades.pdf.mmap system property.
+     */
+    public static boolean isMemoryMappedByDefault() {
+        return memoryMappedByDefault;
+    }
+
+    /**
+     * \brief Checks whether the file looks like a well-formed PDF without parsing it.
+     *
+     * Only the header, the trailer and the start of the last cross-reference section are read,
+     * so the check takes the same time for any document size. A file passing the check may still
+     * turn out to be broken when it is loaded, and PDFBox can open some files failing it.
+     *
+     * \param file The file to be checked.
+     * \return true if the file has a PDF header and its last startxref points to a cross-reference section.
+     */
+    public static boolean probePDF(File file) {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            long length = input.length();
+
+            byte[] head = new byte[(int) Math.min(HEADER_SEARCH_LENGTH, length)];
+            input.readFully(head);
+            int headerOffset = new String(head, StandardCharsets.ISO_8859_1).indexOf("%PDF-");
+            if (headerOffset < 0) {
+                return false;
+            }
+
+            byte[] tail = new byte[(int) Math.min(TRAILER_SEARCH_LENGTH, length)];
+            input.seek(length - tail.length);
+            input.readFully(tail);
+            Matcher trailer = STARTXREF.matcher(new String(tail, StandardCharsets.ISO_8859_1));
+            long xrefOffset = -1;
+            while (trailer.find()) {
+                xrefOffset = Long.parseLong(trailer.group(1));
+            }
+            if (xrefOffset < 0) {
+                return false;
+            }
+
+            // offsets are usually absolute, but some writers count them from the header
+            return isXrefSection(input, xrefOffset) || isXrefSection(input, xrefOffset + headerOffset);
+        } catch (IOException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * \brief Checks whether a cross-reference table or stream starts at the given offset.
+     * \param input The opened file.
+     * \param offset The offset to be checked.
+     * \return true if a cross-reference section starts there.
+     * \throws IOException If an error occurs while reading the file.
+     */
+    private static boolean isXrefSection(RandomAccessFile input, long offset) throws IOException {
+        if (offset < 0 || offset >= input.length()) {
+            return false;
         }
+        byte[] section = new byte[(int) Math.min(64, input.length() - offset)];
+        input.seek(offset);
+        input.readFully(section);
+        return XREF_SECTION.matcher(new String(section, StandardCharsets.ISO_8859_1)).find();
     }
-}
\ No newline at end of file
+}
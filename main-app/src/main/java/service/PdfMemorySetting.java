@@ -0,0 +1,98 @@
+package service;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+
+/**
+ * \class PdfMemorySetting
+ * \brief Describes where PDFBox keeps the streams it creates or decodes while a document is open.
+ *
+ * Main memory only is the fastest but heap use grows with the document. Mixed mode keeps up to
+ * maxMainMemoryBytes on the heap per document and spills the rest to temporary files,
+ * temp-file mode keeps everything on disk.
+ *
+ * \param mode Where the data is kept.
+ * \param maxMainMemoryBytes Heap limit per document in MIXED mode, ignored otherwise.
+ */
+public record PdfMemorySetting(Mode mode, long maxMainMemoryBytes) {
+    public static final String MODE_PROPERTY = "pades.pdf.memory";                 /**< System property with the default mode: memory, mixed or tempfile. */
+    public static final String MAX_MAIN_MEMORY_PROPERTY = "pades.pdf.maxMainMemory"; /**< System property with the heap limit of mixed mode in bytes. */
+    public static final long DEFAULT_MAX_MAIN_MEMORY = 16L * 1024 * 1024;          /**< Default heap limit of mixed mode. */
+
+    /**
+     * \enum Mode
+     * \brief Storage used for the document's scratch data.
+     */
+    public enum Mode {
+        MAIN_MEMORY_ONLY,  /**< Everything on the heap. */
+        MIXED,             /**< Heap up to a limit, temporary files beyond it. */
+        TEMP_FILE_ONLY     /**< Everything in temporary files. */
+    }
+
+    /**
+     * \brief Creates a setting, rejecting invalid values.
+     * \throws IllegalStateException If the mode is null.
+     * \throws IllegalArgumentException If the heap limit of mixed mode is not positive.
+     */
+    public PdfMemorySetting {
+        if (mode == null) {
+            throw new IllegalStateException("mode must not be NULL");
+        }
+        if (mode == Mode.MIXED && maxMainMemoryBytes <= 0) {
+            throw new IllegalArgumentException("maxMainMemoryBytes must be positive in MIXED mode");
+        }
+    }
+
+    /**
+     * \brief Keeps everything on the heap, the behaviour of PDFBox's Loader.loadPDF(File).
+     * \return The setting.
+     */
+    public static PdfMemorySetting mainMemoryOnly() {
+        return new PdfMemorySetting(Mode.MAIN_MEMORY_ONLY, -1);
+    }
+
+    /**
+     * \brief Keeps up to the given number of bytes per document on the heap, the rest in temporary files.
+     * \param maxMainMemoryBytes The heap limit per document.
+     * \return The setting.
+     */
+    public static PdfMemorySetting mixed(long maxMainMemoryBytes) {
+        return new PdfMemorySetting(Mode.MIXED, maxMainMemoryBytes);
+    }
+
+    /**
+     * \brief Keeps everything in temporary files.
+     * \return The setting.
+     */
+    public static PdfMemorySetting tempFileOnly() {
+        return new PdfMemorySetting(Mode.TEMP_FILE_ONLY, -1);
+    }
+
+    /**
+     * \brief Reads the setting from the system properties, main memory only if none is set.
+     * \return The configured setting.
+     * \throws IllegalArgumentException If the properties have invalid values.
+     */
+    public static PdfMemorySetting fromSystemProperties() {
+        String mode = System.getProperty(MODE_PROPERTY, "memory");
+        return switch (mode) {
+            case "memory" -> mainMemoryOnly();
+            case "mixed" -> mixed(Long.getLong(MAX_MAIN_MEMORY_PROPERTY, DEFAULT_MAX_MAIN_MEMORY));
+            case "tempfile" -> tempFileOnly();
+            default -> throw new IllegalArgumentException("Unknown " + MODE_PROPERTY + ": " + mode);
+        };
+    }
+
+    /**
+     * \brief Translates the setting to the PDFBox stream cache factory.
+     * \return The factory passed to the PDFBox loader.
+     */
+    public StreamCacheCreateFunction streamCache() {
+        return switch (mode) {
+            case MAIN_MEMORY_ONLY -> IOUtils.createMemoryOnlyStreamCache();
+            case MIXED -> MemoryUsageSetting.setupMixed(maxMainMemoryBytes).streamCache;
+            case TEMP_FILE_ONLY -> IOUtils.createTempFileOnlyStreamCache();
+        };
+    }
+}
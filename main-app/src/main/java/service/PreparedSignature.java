@@ -0,0 +1,34 @@
+package service;
+
+import java.io.File;
+
+/**
+ * \class PreparedSignature
+ * \brief Result of the first phase of two-phase signing.
+ *
+ * Describes a document saved with an empty signature placeholder. The digest can be signed anywhere,
+ * e.g. with Signer.signDigest on another machine, and the signature injected later with Signer.complete.
+ * No PDDocument is kept open between the phases.
+ *
+ * \param document The prepared PDF file containing the empty placeholder.
+ * \param byteRange The /ByteRange of the signature (pairs of offset and length of the signed content).
+ * \param digest SHA-256 of the content covered by the byte range.
+ */
+public record PreparedSignature(File document, int[] byteRange, byte[] digest) {
+    /**
+     * \brief Returns the offset of the first hex digit of the /Contents placeholder.
+     * \return The offset in the prepared file.
+     */
+    public long contentsOffset() {
+        // the gap between the ranges is the hex string including the enclosing "<" and ">"
+        return (long) byteRange[0] + byteRange[1] + 1;
+    }
+
+    /**
+     * \brief Returns the number of hex digits reserved for the signature.
+     * \return The size of the placeholder in characters.
+     */
+    public int contentsLength() {
+        return byteRange[2] - (byteRange[0] + byteRange[1]) - 2;
+    }
+}
@@ -0,0 +1,30 @@
+package service;
+
+/**
+ * \interface ProgressListener
+ * \brief Interface for observing and cancelling long-running signing and verification.
+ *
+ * The listener is called from the thread performing the operation, so implementations
+ * updating a user interface have to pass the values to the right thread themselves.
+ */
+public interface ProgressListener {
+    /**
+     * \brief Called whenever another part of the document was processed.
+     * \param processed Number of bytes processed so far.
+     * \param total Expected total number of bytes, processed never exceeds it.
+     */
+    void onProgress(long processed, long total);
+
+    /**
+     * \brief Checked between chunks, the operation is aborted with OperationCancelledException when true.
+     * \return true if the operation should be aborted, false otherwise.
+     */
+    default boolean isCancelled() {
+        return Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * \brief Listener ignoring progress and never cancelling.
+     */
+    ProgressListener NONE = (processed, total) -> {};
+}
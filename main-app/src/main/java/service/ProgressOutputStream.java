@@ -0,0 +1,66 @@
+package service;
+
+import exceptions.OperationCancelledException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * \class ProgressOutputStream
+ * \brief Output stream reporting the number of written bytes to a ProgressListener.
+ *
+ * Writing is aborted with OperationCancelledException as soon as the listener asks for it.
+ */
+class ProgressOutputStream extends FilterOutputStream {
+    private final ProgressListener listener;
+    private final long offset;
+    private final long total;
+    private long written;
+
+    /**
+     * \brief Constructor for ProgressOutputStream.
+     * \param out The stream the data is written to.
+     * \param listener The listener to be notified.
+     * \param offset Progress already reported before writing started.
+     * \param total Expected total progress.
+     */
+    ProgressOutputStream(OutputStream out, ProgressListener listener, long offset, long total) {
+        super(out);
+        this.listener = listener;
+        this.offset = offset;
+        this.total = total;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        advance(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkCancelled();
+        out.write(b, off, len);
+        advance(len);
+    }
+
+    /**
+     * \brief Reports written bytes to the listener.
+     * \param count Number of bytes just written.
+     */
+    private void advance(int count) {
+        written += count;
+        listener.onProgress(Math.min(offset + written, total), total);
+    }
+
+    /**
+     * \brief Aborts writing if the listener asks for it.
+     * \throws OperationCancelledException If the operation was cancelled.
+     */
+    private void checkCancelled() {
+        if (listener.isCancelled()) {
+            throw new OperationCancelledException("Saving was cancelled");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package service;
+
+/**
+ * \class SignatureVerificationResult
+ * \brief Outcome of verifying one of the signatures of a PDF document.
+ *
+ * \param index Position of the signature among the document's signature dictionaries.
+ * \param name The /Name of the signature, may be null.
+ * \param byteRange The /ByteRange of the signature (pairs of offset and length of the signed content).
+ * \param coveredBytes Number of bytes covered by the signature.
+ * \param coversWholeDocument true if the signed ranges reach the end of the file, i.e. nothing was appended after signing.
+ * \param valid true if one of the keys verified the signature.
+ * \param keyIndex Index of the key that verified the signature, -1 if none did.
+ * \param error The exception that prevented verification, null if the signature could be checked.
+ */
+public record SignatureVerificationResult(int index,
+                                          String name,
+                                          int[] byteRange,
+                                          long coveredBytes,
+                                          boolean coversWholeDocument,
+                                          boolean valid,
+                                          int keyIndex,
+                                          Exception error) {
+}
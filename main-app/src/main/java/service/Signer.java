@@ -4,23 +4,49 @@ import exceptions.*;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.ExternalSigningSupport;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.SignatureInterface;
+import service.batch.SigningJob;
+import service.crypto.CryptoEngine;
+import service.crypto.SignatureAlgorithm;
+import service.jfr.PhaseEvent;
+import service.jfr.SignEvent;
+import service.batch.SigningResult;
+import service.metrics.Metrics;
 
 /**
  * \class Signer
- * \brief Service class for signing PDF documents with RSA private keys.
+ * \brief Service class for signing PDF documents with RSA, ECDSA or Ed25519 private keys.
  *
- * This class provides functionality to sign PDF documents using provided RSA private key and configured signature object.
+ * This class provides functionality to sign PDF documents using provided private key and configured signature object.
+ * The signature algorithm follows from the type of the key, see SignatureAlgorithm.
  * It handles the signing process, including loading the PDF document, applying the signature, and saving the signed document.
  */
 public class Signer {
-    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";  /**< Algorithm used for signing the PDF. */
+    static final String DIGEST_ALGORITHM = "SHA-256";  /**< Digest of the RSA and ECDSA signatures, used by two-phase signing. */
+    static final byte[] SHA256_DIGEST_INFO_PREFIX = {
+            0x30, 0x31, 0x30, 0x0d, 0x06, 0x09, 0x60, (byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x01, 0x05, 0x00, 0x04, 0x20
+    };  /**< DER DigestInfo header of a SHA-256 digest, see RFC 8017 section 9.2. */
+    private static final ThreadLocal<byte[]> CONTENT_BUFFER =
+            ThreadLocal.withInitial(() -> new byte[ByteRangeReader.CHUNK_SIZE]);  /**< Per-thread buffer the signed content is read through. */
 
     /**
      * \brief Signs a PDF file with the given private key and signature.
@@ -43,21 +69,110 @@ public class Signer {
                      PDSignature signature,
                      File outputDoc)
             throws SigningException, InvalidKeyException, PdfFileOpeningException, PdfFileSavingException, FileNotFoundException {
-        if (inputDoc == null || key == null || signature == null || outputDoc == null) {
-            throw new IllegalStateException("inputDoc, key, signature and outputDoc must not be NULL");
+        sign(inputDoc, key, signature, outputDoc, ProgressListener.NONE);
+    }
+
+    /**
+     * \brief Signs a PDF file with the given private key and signature, reporting progress.
+     *
+     * Progress counts the bytes hashed for the signature followed by the bytes written to the output,
+     * the total is twice the size of the input file. When the listener cancels the operation,
+     * the partially written output file is deleted.
+     *
+     * \param inputDoc The PDF file to be signed.
+     * \param key The file containing the private key to be used for signing.
+     * \param signature The configured signature to be applied to the PDF.
+     * \param outputDoc The output file where the signed PDF will be saved.
+     * \param listener The listener notified about progress and asked for cancellation.
+     *
+     * \throws SigningException If an error occurs during the signing process.
+     * \throws InvalidKeyException If the provided private key is invalid.
+     * \throws PdfFileOpeningException If the PDF file cannot be opened.
+     * \throws PdfFileSavingException If the PDF file cannot be saved.
+     * \throws FileNotFoundException If the output file cannot be found.
+     * \throws OperationCancelledException If the listener cancelled the operation.
+     * \throws IllegalStateException If any of the required input parameters are null.
+     * \throws RunTimeException If the signing algorithm is not available (should never happen).
+     */
+    public static void sign(File inputDoc,
+                     PrivateKey key,
+                     PDSignature signature,
+                     File outputDoc,
+                     ProgressListener listener)
+            throws SigningException, InvalidKeyException, PdfFileOpeningException, PdfFileSavingException, FileNotFoundException {
+        if (inputDoc == null || key == null || signature == null || outputDoc == null || listener == null) {
+            throw new IllegalStateException("inputDoc, key, signature, outputDoc and listener must not be NULL");
+        }
+
+        SignatureAlgorithm algorithm = SignatureAlgorithm.of(key);
+        long inputSize = inputDoc.length();
+        long start = System.nanoTime();
+        SignEvent event = new SignEvent();
+        event.begin();
+        event.outcome = "error";
+        Exception failure = null;
+        try {
+            signDocument(inputDoc, key, algorithm, signature, outputDoc, listener, inputSize);
+            event.outcome = "signed";
+            Metrics.SIGN_DOCUMENTS.increment();
+        } catch (OperationCancelledException e) {
+            event.outcome = "cancelled";
+            throw e;
+        } catch (Exception e) {
+            failure = e;
+            Metrics.SIGN_FAILURES.increment();
+            throw e;
+        } finally {
+            Metrics.SIGN_LATENCY.recordSince(start);
+            if (event.shouldCommit()) {
+                event.inputPath = inputDoc.getPath();
+                event.outputPath = outputDoc.getPath();
+                event.fileSize = inputSize;
+                event.byteRangeLength = ByteRangeReader.coveredBytes(signature.getByteRange());
+                event.algorithm = algorithm.name();
+                event.error = failure == null ? null : failure.toString();
+                event.commit();
+            }
         }
+    }
 
+    /**
+     * \brief Signs a PDF file, recording the hash, sign and save phases.
+     *
+     * \param inputDoc The PDF file to be signed.
+     * \param key The private key to be used for signing.
+     * \param algorithm The algorithm of the key.
+     * \param signature The configured signature to be applied to the PDF.
+     * \param outputDoc The output file where the signed PDF will be saved.
+     * \param listener The listener notified about progress and asked for cancellation.
+     * \param inputSize Size of the input file in bytes.
+     *
+     * \see sign(File, PrivateKey, PDSignature, File, ProgressListener)
+     */
+    private static void signDocument(File inputDoc, PrivateKey key, SignatureAlgorithm algorithm, PDSignature signature,
+                                     File outputDoc, ProgressListener listener, long inputSize)
+            throws SigningException, InvalidKeyException, PdfFileOpeningException, PdfFileSavingException, FileNotFoundException {
+        long total = 2 * inputSize;
         try (PDDocument doc = PdfLoaderWrapper.loadPDF(inputDoc)) {
             // Create interface that will sign the document
             SignatureInterface signer = content -> {
                 try {
-                    java.security.Signature signature1 = java.security.Signature.getInstance(SIGNATURE_ALGORITHM);
+                    java.security.Signature signature1 = CryptoEngine.signature(algorithm.contentAlgorithm(), key);
                     signature1.initSign(key);
-                    signature1.update(content.readAllBytes());
-                    return signature1.sign();
+                    PhaseEvent hashPhase = new PhaseEvent();
+                    hashPhase.begin();
+                    long hashed = updateSignature(signature1, content, listener, inputSize, total);
+                    Metrics.HASH_BYTES.add(hashed);
+                    hashPhase.commit(PhaseEvent.SIGN, PhaseEvent.HASH, inputDoc.getPath(), hashed, algorithm.name());
+
+                    PhaseEvent signPhase = new PhaseEvent();
+                    signPhase.begin();
+                    byte[] signatureBytes = signature1.sign();
+                    signPhase.commit(PhaseEvent.SIGN, PhaseEvent.SIGN, inputDoc.getPath(), 0, algorithm.name());
+                    return signatureBytes;
                 } catch (NoSuchAlgorithmException e) {
-                    // This should never happen as the algorithm is hardcoded
-                    // and should be available in all JVMs
+                    // This should never happen as all supported algorithms
+                    // are available in all JVMs
                     // If it happens, it's a programming error
                     throw new RuntimeException(e);
                 } catch (SignatureException e) {
@@ -74,9 +189,13 @@ public class Signer {
             // Add the signature to the document
             try {
                 doc.addSignature(signature, signer);
-                // Save the signed document
-                try {
-                    doc.saveIncremental(new FileOutputStream(outputDoc));
+                // Save the signed document, the original part is copied by the kernel and only the update is written
+                PhaseEvent savePhase = new PhaseEvent();
+                savePhase.begin();
+                try (IncrementalFileOutputStream file = new IncrementalFileOutputStream(inputDoc, outputDoc);
+                     OutputStream output = new ProgressOutputStream(file, listener, inputSize, total)) {
+                    doc.saveIncremental(output);
+                    savePhase.commit(PhaseEvent.SIGN, PhaseEvent.SAVE, outputDoc.getPath(), file.size(), algorithm.name());
                 } catch (FileNotFoundException e) {
                     // rethrown to get around the IOException from the saveIncremental method and bring the FileNotFoundException to the caller
                     throw e;
@@ -94,13 +213,347 @@ public class Signer {
             // rethrown to inform the caller that the PDF file could not be opened
             // doc will be closed automatically after the try block
             throw e;
+        } catch (OperationCancelledException e) {
+            // don't leave a half-written document behind
+            outputDoc.delete();
+            throw e;
         } catch (InvalidKeyFileException e) {
-            // rethrown to inform the caller that the private key is invalid
-            throw new InvalidKeyException(e);
+            // only carries the InvalidKeyException of the signing interface, which is rethrown as it is
+            throw e.getCause() instanceof InvalidKeyException cause ? cause : new InvalidKeyException(e);
         } catch (IOException e) {
             // catch additional IOExceptions that might be thrown while loading the PDF file
             // and rethrow them as PdfFileOpeningException to inform the caller of their origin
             throw new PdfFileOpeningException(e);
         }
     }
+
+    /**
+     * \brief First phase of two-phase signing: reserves the signature and computes the digest to be signed.
+     *
+     * The document is saved with an empty signature placeholder and closed before returning,
+     * so the signing itself can happen later or elsewhere without keeping the PDF open.
+     *
+     * \param inputDoc The PDF file to be signed.
+     * \param signature The configured signature to be applied to the PDF.
+     * \param preparedDoc The output file where the prepared PDF will be saved.
+     *
+     * \return Description of the prepared document with the SHA-256 digest of the signed content.
+     *
+     * \throws SigningException If an error occurs while reserving the signature.
+     * \throws PdfFileOpeningException If the PDF file cannot be opened.
+     * \throws PdfFileSavingException If the PDF file cannot be saved.
+     * \throws FileNotFoundException If the output file cannot be found.
+     * \throws IllegalStateException If any of the required input parameters are null.
+     */
+    public static PreparedSignature prepare(File inputDoc, PDSignature signature, File preparedDoc)
+            throws SigningException, PdfFileOpeningException, PdfFileSavingException, FileNotFoundException {
+        if (inputDoc == null || signature == null || preparedDoc == null) {
+            throw new IllegalStateException("inputDoc, signature and preparedDoc must not be NULL");
+        }
+
+        try (PDDocument doc = PdfLoaderWrapper.loadPDF(inputDoc)) {
+            try {
+                doc.addSignature(signature);
+            } catch (IOException e) {
+                throw new SigningException("Couldn't create signature\n" + e.getMessage());
+            } catch (IllegalStateException e) {
+                throw new SigningException("A signature is already present in this document\nDocuments can only have ONE signature");
+            }
+
+            try (OutputStream output = new IncrementalFileOutputStream(inputDoc, preparedDoc)) {
+                ExternalSigningSupport externalSigning = doc.saveIncrementalForExternalSigning(output);
+                MessageDigest digest = CryptoEngine.messageDigest(DIGEST_ALGORITHM);
+                byte[] buffer = CONTENT_BUFFER.get();
+                int read;
+                long hashed = 0;
+                try (InputStream content = externalSigning.getContent()) {
+                    while ((read = content.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                        hashed += read;
+                    }
+                }
+                Metrics.HASH_BYTES.add(hashed);
+                // leave the placeholder empty, the signature is written by complete()
+                externalSigning.setSignature(new byte[0]);
+                return new PreparedSignature(preparedDoc, signature.getByteRange(), digest.digest());
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException | IllegalStateException e) {
+                throw new PdfFileSavingException(e);
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-256 is available in every JVM
+                throw new RuntimeException(e);
+            }
+        } catch (PdfFileOpeningException | FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            // closing the document failed
+            throw new PdfFileOpeningException(e);
+        }
+    }
+
+    /**
+     * \brief Signs a SHA-256 digest produced by prepare.
+     *
+     * The result is identical to signing the content itself with SHA256withRSA or SHA256withECDSA,
+     * so it can be used on a machine that never sees the document.
+     * Ed25519 keys cannot sign a digest, as Ed25519 hashes the content itself.
+     *
+     * \param digest The SHA-256 digest of the signed content.
+     * \param key The private key to be used for signing.
+     *
+     * \return The raw signature bytes.
+     *
+     * \throws SigningException If an error occurs during the signing process or the key cannot sign digests.
+     * \throws InvalidKeyException If the provided private key is invalid.
+     * \throws IllegalStateException If any of the required input parameters are null.
+     * \throws IllegalArgumentException If the digest is not a SHA-256 digest.
+     */
+    public static byte[] signDigest(byte[] digest, PrivateKey key) throws SigningException, InvalidKeyException {
+        if (digest == null || key == null) {
+            throw new IllegalStateException("digest and key must not be NULL");
+        }
+        if (digest.length != 32) {
+            throw new IllegalArgumentException("Expected a SHA-256 digest of 32 bytes, got " + digest.length);
+        }
+
+        SignatureAlgorithm algorithm = SignatureAlgorithm.of(key);
+        if (!algorithm.signsDigests()) {
+            throw new SigningException(algorithm + " keys cannot sign a precomputed digest");
+        }
+
+        try {
+            java.security.Signature rawSignature = CryptoEngine.signature(algorithm.digestAlgorithm(), key);
+            rawSignature.initSign(key);
+            updateWithDigest(rawSignature, algorithm, digest);
+            return rawSignature.sign();
+        } catch (NoSuchAlgorithmException e) {
+            // NONEwithRSA and NONEwithECDSA are available in every JVM
+            throw new RuntimeException(e);
+        } catch (SignatureException e) {
+            throw new SigningException(e);
+        }
+    }
+
+    /**
+     * \brief Second phase of two-phase signing: writes the signature into the placeholder of a prepared document.
+     *
+     * \param prepared The document returned by prepare.
+     * \param signatureBytes The signature of the prepared digest.
+     *
+     * \throws SigningException If the signature doesn't fit the placeholder or the placeholder is missing.
+     * \throws PdfFileSavingException If the signature cannot be written.
+     * \throws FileNotFoundException If the prepared file cannot be found.
+     * \throws IllegalStateException If any of the required input parameters are null.
+     */
+    public static void complete(PreparedSignature prepared, byte[] signatureBytes)
+            throws SigningException, PdfFileSavingException, FileNotFoundException {
+        if (prepared == null || signatureBytes == null) {
+            throw new IllegalStateException("prepared and signatureBytes must not be NULL");
+        }
+
+        byte[] hex = HexFormat.of().withUpperCase().formatHex(signatureBytes).getBytes(StandardCharsets.US_ASCII);
+        if (hex.length > prepared.contentsLength()) {
+            throw new SigningException("Signature of " + signatureBytes.length + " bytes doesn't fit the reserved space");
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(prepared.document(), "rw")) {
+            file.seek(prepared.contentsOffset() - 1);
+            if (file.read() != '<') {
+                throw new SigningException("No signature placeholder at the expected position");
+            }
+            file.write(hex);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new PdfFileSavingException(e);
+        }
+    }
+
+    /**
+     * \brief Feeds a SHA-256 digest to a signature of the algorithm's digestAlgorithm.
+     *
+     * RSA signs the DER DigestInfo of the digest, ECDSA signs the digest as it is.
+     *
+     * \param signature The initialized signature object to be updated.
+     * \param algorithm The algorithm of the key the signature was initialized with.
+     * \param digest The SHA-256 digest of the signed content.
+     * \throws SignatureException If the signature object is not initialized.
+     */
+    static void updateWithDigest(java.security.Signature signature, SignatureAlgorithm algorithm, byte[] digest)
+            throws SignatureException {
+        if (algorithm == SignatureAlgorithm.RSA) {
+            signature.update(SHA256_DIGEST_INFO_PREFIX);
+        }
+        signature.update(digest);
+    }
+
+    /**
+     * \brief Feeds the content to be signed to the signature in fixed-size chunks.
+     *
+     * The content is read through a buffer reused by the calling thread,
+     * so the document is never materialised on the heap as a whole.
+     *
+     * \param signature The initialized signature object to be updated.
+     * \param content The stream of bytes covered by the signature.
+     * \param listener The listener notified about progress and asked for cancellation.
+     * \param limit Highest progress value reported while hashing.
+     * \param total Expected total progress of the whole operation.
+     * \return Number of bytes fed to the signature.
+     * \throws IOException If an error occurs while reading the content.
+     * \throws SignatureException If the signature object is not initialized.
+     * \throws OperationCancelledException If the listener cancelled the operation.
+     */
+    private static long updateSignature(java.security.Signature signature, InputStream content,
+                                        ProgressListener listener, long limit, long total)
+            throws IOException, SignatureException {
+        byte[] buffer = CONTENT_BUFFER.get();
+        long processed = 0;
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            if (listener.isCancelled()) {
+                throw new OperationCancelledException("Signing was cancelled");
+            }
+            signature.update(buffer, 0, read);
+            processed += read;
+            listener.onProgress(Math.min(processed, limit), total);
+        }
+        return processed;
+    }
+
+    /**
+     * \brief Signs many PDF files with the same private key using a pool of worker threads.
+     *
+     * Every job is signed independently, a failure of one document does not stop the others.
+     * Each job gets its own signature object from the supplied factory, as PDSignature instances
+     * are bound to the document they are added to.
+     *
+     * \param jobs The input/output pairs to be signed.
+     * \param key The private key used for all documents, loaded once by the caller.
+     * \param signatureFactory Factory creating a configured signature for each document.
+     * \param threads Number of worker threads, must be positive.
+     *
+     * \return Results in the same order as the jobs.
+     *
+     * \throws IllegalStateException If any of the required input parameters are null.
+     * \throws IllegalArgumentException If the number of threads is not positive.
+     */
+    public static List<SigningResult> signAll(List<SigningJob> jobs,
+                                              PrivateKey key,
+                                              Supplier<PDSignature> signatureFactory,
+                                              int threads) {
+        return signAll(jobs, key, signatureFactory, threads, result -> {});
+    }
+
+    /**
+     * \brief Signs many PDF files like signAll(List, PrivateKey, Supplier, int), reporting every result as soon as it is known.
+     *
+     * \param jobs The input/output pairs to be signed.
+     * \param key The private key used for all documents, loaded once by the caller.
+     * \param signatureFactory Factory creating a configured signature for each document.
+     * \param threads Number of worker threads, must be positive.
+     * \param resultListener Called with the result of every job in completion order, from the worker threads.
+     *
+     * \return Results in the same order as the jobs.
+     *
+     * \throws IllegalStateException If any of the required input parameters are null.
+     * \throws IllegalArgumentException If the number of threads is not positive.
+     */
+    public static List<SigningResult> signAll(List<SigningJob> jobs,
+                                              PrivateKey key,
+                                              Supplier<PDSignature> signatureFactory,
+                                              int threads,
+                                              Consumer<SigningResult> resultListener) {
+        if (jobs == null || key == null || signatureFactory == null || resultListener == null) {
+            throw new IllegalStateException("jobs, key, signatureFactory and resultListener must not be NULL");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive, got " + threads);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(jobs.size(), 1)));
+        try {
+            List<Future<SigningResult>> futures = new ArrayList<>(jobs.size());
+            for (SigningJob job : jobs) {
+                futures.add(executor.submit(() -> {
+                    SigningResult result = signJob(job, key, signatureFactory);
+                    resultListener.accept(result);
+                    return result;
+                }));
+            }
+
+            List<SigningResult> results = new ArrayList<>(jobs.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // signJob catches everything it can, only Errors and failures of the listener end up here
+                    results.add(new SigningResult(jobs.get(i), new SigningException(e.getCause()), 0));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(new SigningResult(jobs.get(i), new SigningException("Batch signing was interrupted"), 0));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * \brief Signs every PDF file in a directory, saving the signed copies under the same names in another directory.
+     *
+     * \param inputDir The directory containing PDF files to be signed (not searched recursively).
+     * \param outputDir The directory where the signed PDF files will be saved, created if missing.
+     * \param key The private key used for all documents, loaded once by the caller.
+     * \param signatureFactory Factory creating a configured signature for each document.
+     * \param threads Number of worker threads, must be positive.
+     *
+     * \return Results for every PDF file found, sorted by file name.
+     *
+     * \throws FileNotFoundException If the input directory doesn't exist or the output directory cannot be created.
+     * \throws IllegalStateException If any of the required input parameters are null.
+     * \throws IllegalArgumentException If the number of threads is not positive.
+     */
+    public static List<SigningResult> signAll(File inputDir,
+                                              File outputDir,
+                                              PrivateKey key,
+                                              Supplier<PDSignature> signatureFactory,
+                                              int threads) throws FileNotFoundException {
+        if (inputDir == null || outputDir == null) {
+            throw new IllegalStateException("inputDir and outputDir must not be NULL");
+        }
+
+        File[] inputFiles = inputDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+        if (inputFiles == null) {
+            throw new FileNotFoundException("Not a directory: " + inputDir.getPath());
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new FileNotFoundException("Couldn't create output directory: " + outputDir.getPath());
+        }
+
+        Arrays.sort(inputFiles);
+        List<SigningJob> jobs = new ArrayList<>(inputFiles.length);
+        for (File inputFile : inputFiles) {
+            jobs.add(new SigningJob(inputFile, new File(outputDir, inputFile.getName())));
+        }
+        return signAll(jobs, key, signatureFactory, threads);
+    }
+
+    /**
+     * \brief Signs a single batch job, turning any failure into a result instead of an exception.
+     * \param job The job to be signed.
+     * \param key The private key to be used for signing.
+     * \param signatureFactory Factory creating the signature for the document.
+     * \return The result of the job.
+     */
+    private static SigningResult signJob(SigningJob job, PrivateKey key, Supplier<PDSignature> signatureFactory) {
+        long start = System.nanoTime();
+        try {
+            sign(job.inputDoc(), key, signatureFactory.get(), job.outputDoc());
+            return new SigningResult(job, null, System.nanoTime() - start);
+        } catch (Exception e) {
+            return new SigningResult(job, e, System.nanoTime() - start);
+        }
+    }
 }
@@ -0,0 +1,323 @@
+package service;
+
+import service.crypto.CryptoEngine;
+import service.crypto.KeyFingerprint;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * \class VerificationCache
+ * \brief Persistent cache of signature verification results.
+ *
+ * Archived documents are often verified again and again with the same keys.
+ * This class remembers the outcome of every verification in a file, so a repeated check
+ * of the same content, signature and key is answered without the public key operation.
+ * An entry is identified by the SHA-256 hash of the signed content, the signature bytes
+ * and the fingerprint of the public key, so a modified document or another key never hits a stale entry.
+ *
+ * The file starts with a 4-byte magic followed by fixed-size records appended as results come in:
+ * 32 bytes of entry identifier, 1 byte of result and 8 bytes of timestamp (milliseconds since the epoch).
+ * All records are indexed in memory when the cache is opened. A truncated last record (e.g. after a crash) is dropped.
+ * When the cache is full the least recently used entries are evicted, and the file is rewritten
+ * with the live entries once it holds twice as many records as allowed.
+ *
+ * The methods are safe to call from many threads, but a file must not be opened by two caches at once.
+ */
+public class VerificationCache implements Closeable {
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;  /**< Default maximal number of remembered results. */
+
+    private static final byte[] MAGIC = {'P', 'V', 'C', '1'};  /**< Identifies the file format and its version. */
+    private static final int ID_LENGTH = 32;
+    private static final int RECORD_LENGTH = ID_LENGTH + 1 + Long.BYTES;
+
+    private final Path path;
+    private final int maxEntries;
+    private final Map<ByteBuffer, Entry> index;
+    private FileChannel channel;
+    private long records;
+
+    /**
+     * \brief Remembered outcome of a verification.
+     * \param valid Whether the signature was valid.
+     * \param timestamp Time of the verification in milliseconds since the epoch.
+     */
+    public record Entry(boolean valid, long timestamp) {}
+
+    /**
+     * \brief Constructor for VerificationCache with the default size.
+     * \param file The cache file, created if it doesn't exist.
+     * \throws IOException If the file cannot be read or created, or is not a cache file.
+     */
+    public VerificationCache(File file) throws IOException {
+        this(file, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * \brief Constructor for VerificationCache.
+     * \param file The cache file, created if it doesn't exist.
+     * \param maxEntries Maximal number of remembered results, least recently used ones are evicted first.
+     * \throws IOException If the file cannot be read or created, or is not a cache file.
+     * \throws IllegalStateException If the file is null.
+     * \throws IllegalArgumentException If maxEntries is not positive.
+     */
+    public VerificationCache(File file, int maxEntries) throws IOException {
+        if (file == null) {
+            throw new IllegalStateException("file must not be NULL");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+
+        this.path = file.toPath();
+        this.maxEntries = maxEntries;
+        this.index = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Entry> eldest) {
+                return size() > VerificationCache.this.maxEntries;
+            }
+        };
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            load();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * \brief Looks up the result of an earlier verification.
+     * \param contentDigest SHA-256 digest of the content covered by the signature.
+     * \param signature The signature bytes.
+     * \param key The public key used for verification.
+     * \return The remembered result, or null if this combination was not verified before.
+     */
+    public synchronized Entry lookup(byte[] contentDigest, byte[] signature, PublicKey key) {
+        checkOpen();
+        return index.get(ByteBuffer.wrap(identifier(contentDigest, signature, key)));
+    }
+
+    /**
+     * \brief Remembers the result of a verification.
+     * \param contentDigest SHA-256 digest of the content covered by the signature.
+     * \param signature The signature bytes.
+     * \param key The public key used for verification.
+     * \param valid Whether the signature was valid.
+     * \throws IOException If the record cannot be written to the file.
+     */
+    public synchronized void record(byte[] contentDigest, byte[] signature, PublicKey key, boolean valid)
+            throws IOException {
+        checkOpen();
+        byte[] id = identifier(contentDigest, signature, key);
+        Entry entry = new Entry(valid, System.currentTimeMillis());
+        index.put(ByteBuffer.wrap(id), entry);
+        append(id, entry);
+        records++;
+
+        if (records > 2L * maxEntries) {
+            compact();
+        }
+    }
+
+    /**
+     * \brief Returns the number of remembered results.
+     * \return Number of entries in the in-memory index.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * \brief Forgets all results and empties the file.
+     * \throws IOException If the file cannot be truncated.
+     */
+    public synchronized void clear() throws IOException {
+        checkOpen();
+        index.clear();
+        channel.truncate(MAGIC.length);
+        records = 0;
+    }
+
+    /**
+     * \brief Closes the cache file.
+     * \throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * \brief Reads all records of the file into the index, initializing a new file.
+     * \throws IOException If the file cannot be read or is not a cache file.
+     */
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            channel.write(ByteBuffer.wrap(MAGIC), 0);
+            channel.position(MAGIC.length);
+            return;
+        }
+
+        ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+        channel.read(magic, 0);
+        if (magic.hasRemaining() || !magic.flip().equals(ByteBuffer.wrap(MAGIC))) {
+            throw new IOException("Not a verification cache file: " + path);
+        }
+
+        records = (size - MAGIC.length) / RECORD_LENGTH;
+        long end = MAGIC.length + records * RECORD_LENGTH;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_LENGTH * 1024);
+        long position = MAGIC.length;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of verification cache file: " + path);
+                }
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_LENGTH) {
+                byte[] id = new byte[ID_LENGTH];
+                buffer.get(id);
+                boolean valid = buffer.get() != 0;
+                long timestamp = buffer.getLong();
+                // later records of the same identifier replace the earlier ones
+                index.put(ByteBuffer.wrap(id), new Entry(valid, timestamp));
+            }
+            position += buffer.limit();
+        }
+
+        if (end != size) {
+            // drop the partially written last record
+            channel.truncate(end);
+        }
+        channel.position(end);
+    }
+
+    /**
+     * \brief Appends a record at the end of the file.
+     * \param id The entry identifier.
+     * \param entry The remembered result.
+     * \throws IOException If the record cannot be written.
+     */
+    private void append(byte[] id, Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_LENGTH);
+        buffer.put(id).put((byte) (entry.valid() ? 1 : 0)).putLong(entry.timestamp()).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * \brief Rewrites the file with the entries still in the index, dropping evicted and superseded records.
+     *
+     * The new file is written next to the old one and moved over it, so a crash leaves either of them intact.
+     * The channel of the new file stays open through the move and replaces the old one only when the move
+     * succeeded. On failure the temporary file is deleted and the cache keeps appending to the old file.
+     *
+     * \throws IOException If the file cannot be rewritten.
+     */
+    private void compact() throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        FileChannel compacted = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_LENGTH * 1024);
+            buffer.put(MAGIC);
+            for (Map.Entry<ByteBuffer, Entry> entry : index.entrySet()) {
+                if (buffer.remaining() < RECORD_LENGTH) {
+                    flush(compacted, buffer);
+                }
+                buffer.put(entry.getKey().duplicate())
+                        .put((byte) (entry.getValue().valid() ? 1 : 0))
+                        .putLong(entry.getValue().timestamp());
+            }
+            flush(compacted, buffer);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            compacted.close();
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException deleteError) {
+                e.addSuppressed(deleteError);
+            }
+            throw e;
+        }
+
+        // the position of the new channel is already at the end of the written records
+        FileChannel old = channel;
+        channel = compacted;
+        records = index.size();
+        try {
+            old.close();
+        } catch (IOException e) {
+            // the old file is replaced, nothing is lost
+        }
+    }
+
+    /**
+     * \brief Writes the buffered bytes to the channel and clears the buffer.
+     * \param out The channel to be written to.
+     * \param buffer The buffer in write mode.
+     * \throws IOException If the bytes cannot be written.
+     */
+    private static void flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * \brief Computes the identifier of an entry.
+     * \param contentDigest SHA-256 digest of the signed content.
+     * \param signature The signature bytes.
+     * \param key The public key.
+     * \return SHA-256 of the content digest, the signature and the key fingerprint.
+     * \throws IllegalStateException If any of the parameters is null.
+     */
+    private static byte[] identifier(byte[] contentDigest, byte[] signature, PublicKey key) {
+        if (contentDigest == null || signature == null || key == null) {
+            throw new IllegalStateException("contentDigest, signature and key must not be NULL");
+        }
+        byte[] fingerprint = KeyFingerprint.of(key);
+        try {
+            MessageDigest sha = CryptoEngine.messageDigest("SHA-256");
+            sha.update(contentDigest);
+            sha.update(signature);
+            sha.update(fingerprint);
+            return sha.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available in every JVM
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * \brief Throws if the cache was closed.
+     * \throws IllegalStateException If the cache was closed.
+     */
+    private void checkOpen() {
+        if (channel == null) {
+            throw new IllegalStateException("VerificationCache already closed");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package service;
+
+/**
+ * \class VerificationOutcome
+ * \brief Result of verifying a document, returned instead of thrown for batch callers.
+ *
+ * Verifier.verify reports a document that cannot be verified with an exception, which is the right thing
+ * for a single document picked by the user. When thousands of documents of an archive are checked,
+ * unsigned and damaged ones are ordinary results, so Verifier.verifyOutcome returns them as values:
+ *
+ * \code
+ * switch (Verifier.verifyOutcome(file, key)) {
+ *     case VerificationOutcome.Valid valid -> ...
+ *     case VerificationOutcome.Invalid invalid -> ...
+ *     case VerificationOutcome.NotSigned notSigned -> ...
+ *     case VerificationOutcome.Failed failed -> ... failed.reason() ...
+ * }
+ * \endcode
+ */
+public sealed interface VerificationOutcome {
+    /**
+     * \brief The signature matches the document and the key.
+     * \param cached true if the result was taken from the verification cache.
+     */
+    record Valid(boolean cached) implements VerificationOutcome {}
+
+    /**
+     * \brief The signature doesn't match the document or the key.
+     * \param cached true if the result was taken from the verification cache.
+     */
+    record Invalid(boolean cached) implements VerificationOutcome {}
+
+    /**
+     * \brief The document has no signature dictionary.
+     */
+    record NotSigned() implements VerificationOutcome {}
+
+    /**
+     * \brief The document couldn't be verified.
+     * \param reason Category of the failure.
+     * \param exception The exception describing the failure, created without a stack trace where the failure is expected.
+     */
+    record Failed(Reason reason, Exception exception) implements VerificationOutcome {
+        /**
+         * \brief Constructor for Failed.
+         * \throws IllegalStateException If the reason or the exception is null.
+         */
+        public Failed {
+            if (reason == null || exception == null) {
+                throw new IllegalStateException("reason and exception must not be NULL");
+            }
+        }
+
+        /**
+         * \brief Returns a one-line description of the failure.
+         * \return The message of the exception, or its class name if it has none.
+         */
+        public String message() {
+            return exception.getMessage() == null ? exception.getClass().getSimpleName() : exception.getMessage();
+        }
+    }
+
+    /**
+     * \enum Reason
+     * \brief Category of a failed verification.
+     */
+    enum Reason {
+        UNREADABLE_DOCUMENT,  /**< The file is not a PDF document or is damaged (PdfFileOpeningException, PdfFileReadingException). */
+        MALFORMED_SIGNATURE,  /**< The signature dictionary cannot be checked (SignatureVerificationException). */
+        UNSUPPORTED_KEY       /**< The key doesn't fit the signature or is of an unsupported type (InvalidKeyException). */
+    }
+
+    /**
+     * \brief Checks whether the signature was verified as valid.
+     * \return true for Valid, false for every other outcome.
+     */
+    default boolean isValid() {
+        return this instanceof Valid;
+    }
+}
@@ -1,31 +1,56 @@
 package service;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.SignatureException;
-import java.util.Arrays;
-import java.util.NoSuchElementException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import exceptions.OperationCancelledException;
 import exceptions.PdfFileOpeningException;
 import exceptions.PdfFileReadingException;
 import exceptions.SignatureVerificationException;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
+import service.crypto.CryptoEngine;
+import service.crypto.SignatureAlgorithm;
+import service.jfr.PhaseEvent;
+import service.jfr.VerifyEvent;
+import service.metrics.Metrics;
 
 /**
  * \class Verifier
  * \brief Service class for verifying signatures in PDF documents.
  *
  * This class provides functionality to verify signatures in PDF documents using a specified public key.
+ * The signature algorithm follows from the type of the key, see SignatureAlgorithm.
  */
 public class Verifier {
-    public static final int KEY_SIZE = 4096;
-    public static final String ALGORITHM = "SHA256withRSA";
+    private static final ExecutorService SIGNATURE_VERIFIERS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("pades-verify-signature-", 0).daemon().factory());  /**< Verifies the signatures of multi-signature documents, shared by all calls. */
+
+    /**
+     * \brief Values of a signature dictionary read while its document is open.
+     *
+     * PDFBox resolves indirect Contents and ByteRange entries from the document source on access,
+     * so they cannot be read from a PDSignature after the document is closed.
+     *
+     * \param name The name of the signer, may be null.
+     * \param byteRange The byte ranges covered by the signature, may be null.
+     * \param contents The zero-padded signature.
+     */
+    private record SignatureData(String name, int[] byteRange, byte[] contents) {}
 
     /**
      * \brief Verifies the signature of a PDF file with the given public key.
@@ -44,21 +69,72 @@ public class Verifier {
      */
     public static boolean verify(File inputDoc, PublicKey key)
             throws InvalidKeyException, SignatureVerificationException, PdfFileOpeningException, PdfFileReadingException {
-        if (inputDoc == null || key == null) {
+        return verify(inputDoc, key, ProgressListener.NONE);
+    }
+
+    /**
+     * \brief Verifies the signature of a PDF file with the given public key, reporting the bytes hashed.
+     *
+     * \param inputDoc The PDF file to be verified.
+     * \param key The file containing the public key to be used for verification.
+     * \param listener The listener notified about progress and asked for cancellation.
+     *
+     * \return true if the signature is valid, false otherwise.
+     *
+     * \throws InvalidKeyException If the provided public key is invalid.
+     * \throws SignatureVerificationException If an error occurs during the signature verification process.
+     * \throws PdfFileOpeningException If the PDF file cannot be opened.
+     * \throws PdfFileReadingException If the PDF file cannot be read.
+     * \throws OperationCancelledException If the listener cancelled the operation.
+     * \throws RuntimeException If the signature algorithm is not available (should never happen).
+     * \throws IllegalStateException If any of the required input parameters are null.
+     */
+    public static boolean verify(File inputDoc, PublicKey key, ProgressListener listener)
+            throws InvalidKeyException, SignatureVerificationException, PdfFileOpeningException, PdfFileReadingException {
+        if (inputDoc == null || key == null || listener == null) {
             throw new IllegalStateException("Both inputDoc and key must be supplied before verifying");
         }
+        return validOrThrow(recordVerification(inputDoc, event -> verifyDocument(inputDoc, key, listener, event)));
+    }
 
+    /**
+     * \brief Verifies the signature of a PDF file, recording the hash and verify phases.
+     * \param inputDoc The PDF file to be verified.
+     * \param key The public key to be used for verification.
+     * \param listener The listener notified about progress and asked for cancellation.
+     * \param event The event of the whole verification, given the byte range length and algorithm.
+     * \return Valid, Invalid or NotSigned, other failures are thrown.
+     * \see verify(File, PublicKey, ProgressListener)
+     */
+    private static VerificationOutcome verifyDocument(File inputDoc, PublicKey key, ProgressListener listener, VerifyEvent event)
+            throws InvalidKeyException, SignatureVerificationException, PdfFileOpeningException, PdfFileReadingException {
         try (PDDocument doc = PdfLoaderWrapper.loadPDF(inputDoc)) {
-            PDSignature signature = doc.getSignatureDictionaries().getFirst();
-            byte[] signatureBytes = Arrays.copyOfRange(signature.getContents(), 0, KEY_SIZE / 8);
-            // Contents field is always 96 bytes long, but we only need the first KEY_SIZE bytes
+            List<PDSignature> signatures = doc.getSignatureDictionaries();
+            if (signatures.isEmpty()) {
+                return new VerificationOutcome.NotSigned();
+            }
+            PDSignature signature = signatures.getFirst();
+            SignatureAlgorithm algorithm = SignatureAlgorithm.of(key);
+            event.algorithm = algorithm.name();
+            event.byteRangeLength = ByteRangeReader.coveredBytes(signature.getByteRange());
+            // Contents field is reserved larger than any signature and padded with zeros
+            byte[] signatureBytes = algorithm.extractSignature(signature.getContents(), key);
 
-            java.security.Signature signatureVerifier = java.security.Signature.getInstance(ALGORITHM);
+            java.security.Signature signatureVerifier = CryptoEngine.signature(algorithm.contentAlgorithm());
             signatureVerifier.initVerify(key);
-            try {
-                ByteArrayInputStream bis = new ByteArrayInputStream(Files.readAllBytes(inputDoc.toPath()));
-                signatureVerifier.update(signature.getSignedContent(bis));
-                return signatureVerifier.verify(signatureBytes);
+            // stream the signed byte ranges from disk instead of loading the whole file to memory
+            try (FileChannel channel = FileChannel.open(inputDoc.toPath(), StandardOpenOption.READ)) {
+                PhaseEvent hashPhase = new PhaseEvent();
+                hashPhase.begin();
+                long hashed = ByteRangeReader.update(signatureVerifier, channel, signature.getByteRange(), listener);
+                Metrics.HASH_BYTES.add(hashed);
+                hashPhase.commit(PhaseEvent.VERIFY, PhaseEvent.HASH, inputDoc.getPath(), hashed, algorithm.name());
+
+                PhaseEvent verifyPhase = new PhaseEvent();
+                verifyPhase.begin();
+                boolean valid = signatureVerifier.verify(signatureBytes);
+                verifyPhase.commit(PhaseEvent.VERIFY, PhaseEvent.VERIFY, inputDoc.getPath(), 0, algorithm.name());
+                return valid ? new VerificationOutcome.Valid(false) : new VerificationOutcome.Invalid(false);
             } catch (IOException e) {
                 throw new PdfFileReadingException("Couldn't read: " + inputDoc.getName(), e);
             }
@@ -67,7 +143,7 @@ public class Verifier {
             // doc will be closed automatically after the try block
             throw e;
         } catch (NoSuchAlgorithmException e) {
-            // SHA256withRSA is a valid algorithm, so this exception should never be thrown
+            // all supported algorithms are available in every JVM, so this exception should never be thrown
             // if it is thrown nonetheless, nothing can be done about it
             throw new RuntimeException(e);
         } catch (IOException e) {
@@ -77,9 +153,477 @@ public class Verifier {
         } catch (SignatureException e) {
             // error occurred while verifying the signature
             throw new SignatureVerificationException(e);
-        } catch (NoSuchElementException e) {
-            // no signature found in the PDF file
-            throw new SignatureVerificationException("No signature found in the provided PDF file");
         }
     }
+
+    /**
+     * \brief Verifies the signature of a PDF file, answering repeated checks from the cache.
+     *
+     * The signed content is hashed and looked up in the cache together with the signature and the key,
+     * only unknown combinations are checked with the public key and then recorded.
+     * Ed25519 signatures cannot be checked against the digest, the content is read a second time for them.
+     * Failing to write the cache doesn't fail the verification.
+     *
+     * \param inputDoc The PDF file to be verified.
+     * \param key The public key to be used for verification.
+     * \param cache The cache of earlier results.
+     *
+     * \return true if the signature is valid, false otherwise.
+     *
+     * \throws InvalidKeyException If the provided public key is invalid.
+     * \throws SignatureVerificationException If an error occurs during the signature verification process.
+     * \throws PdfFileOpeningException If the PDF file cannot be opened.
+     * \throws PdfFileReadingException If the PDF file cannot be read.
+     * \throws IllegalStateException If any of the required input parameters are null.
+     */
+    public static boolean verify(File inputDoc, PublicKey key, VerificationCache cache)
+            throws InvalidKeyException, SignatureVerificationException, PdfFileOpeningException, PdfFileReadingException {
+        if (inputDoc == null || key == null || cache == null) {
+            throw new IllegalStateException("inputDoc, key and cache must be supplied before verifying");
+        }
+        return validOrThrow(recordVerification(inputDoc, event -> verifyCached(inputDoc, key, cache, event)));
+    }
+
+    /**
+     * \brief Verifies the signature of a PDF file, returning failures instead of throwing them.
+     *
+     * Meant for batch callers, which treat unsigned, damaged and foreign documents as ordinary results.
+     * The exceptions of expected failures are created without a stack trace, so a failed document
+     * costs little more than a verified one.
+     *
+     * \param inputDoc The PDF file to be verified.
+     * \param key The public key to be used for verification.
+     *
+     * \return The outcome of the verification.
+     *
+     * \throws RuntimeException If the signature algorithm is not available (should never happen).
+     * \throws IllegalStateException If any of the required input parameters are null.
+     */
+    public static VerificationOutcome verifyOutcome(File inputDoc, PublicKey key) {
+        if (inputDoc == null || key == null) {
+            throw new IllegalStateException("Both inputDoc and key must be supplied before verifying");
+        }
+        return recordVerification(inputDoc, event -> verifyDocument(inputDoc, key, ProgressListener.NONE, event));
+    }
+
+    /**
+     * \brief Verifies the signature of a PDF file through the cache, returning failures instead of throwing them.
+     *
+     * \param inputDoc The PDF file to be verified.
+     * \param key The public key to be used for verification.
+     * \param cache The cache of earlier results.
+     *
+     * \return The outcome of the verification.
+     *
+     * \throws IllegalStateException If any of the required input parameters are null.
+     *
+     * \see verifyOutcome(File, PublicKey)
+     * \see verify(File, PublicKey, VerificationCache)
+     */
+    public static VerificationOutcome verifyOutcome(File inputDoc, PublicKey key, VerificationCache cache) {
+        if (inputDoc == null || key == null || cache == null) {
+            throw new IllegalStateException("inputDoc, key and cache must be supplied before verifying");
+        }
+        return recordVerification(inputDoc, event -> verifyCached(inputDoc, key, cache, event));
+    }
+
+    /**
+     * \brief Converts an outcome to the result of the throwing verify methods.
+     * \param outcome The outcome of the verification.
+     * \return true if the signature is valid, false if it doesn't match.
+     * \throws InvalidKeyException If the key doesn't fit the signature.
+     * \throws PdfFileOpeningException If the PDF file cannot be opened.
+     * \throws PdfFileReadingException If the PDF file cannot be read.
+     * \throws SignatureVerificationException If the document is not signed or the signature is malformed.
+     */
+    private static boolean validOrThrow(VerificationOutcome outcome) throws InvalidKeyException, PdfFileOpeningException {
+        return switch (outcome) {
+            case VerificationOutcome.Valid valid -> true;
+            case VerificationOutcome.Invalid invalid -> false;
+            case VerificationOutcome.NotSigned notSigned ->
+                    throw new SignatureVerificationException("No signature found in the provided PDF file");
+            case VerificationOutcome.Failed failed -> {
+                switch (failed.exception()) {
+                    case InvalidKeyException e -> throw e;
+                    case PdfFileOpeningException e -> throw e;
+                    case RuntimeException e -> throw e;
+                    default -> throw new IllegalStateException(failed.exception());
+                }
+            }
+        };
+    }
+
+    /**
+     * \brief Verifies the signature of a PDF file through the cache, recording the hash, cache and verify phases.
+     * \param inputDoc The PDF file to be verified.
+     * \param key The public key to be used for verification.
+     * \param cache The cache of earlier results.
+     * \param event The event of the whole verification, given the byte range length, algorithm and cache hit.
+     * \return Valid, Invalid or NotSigned, other failures are thrown.
+     * \see verify(File, PublicKey, VerificationCache)
+     */
+    private static VerificationOutcome verifyCached(File inputDoc, PublicKey key, VerificationCache cache, VerifyEvent event)
+            throws InvalidKeyException, SignatureVerificationException, PdfFileOpeningException, PdfFileReadingException {
+        try (PDDocument doc = PdfLoaderWrapper.loadPDF(inputDoc)) {
+            List<PDSignature> signatures = doc.getSignatureDictionaries();
+            if (signatures.isEmpty()) {
+                return new VerificationOutcome.NotSigned();
+            }
+            PDSignature signature = signatures.getFirst();
+            SignatureAlgorithm algorithm = SignatureAlgorithm.of(key);
+            event.algorithm = algorithm.name();
+            event.byteRangeLength = ByteRangeReader.coveredBytes(signature.getByteRange());
+            byte[] signatureBytes = algorithm.extractSignature(signature.getContents(), key);
+
+            try (FileChannel channel = FileChannel.open(inputDoc.toPath(), StandardOpenOption.READ)) {
+                PhaseEvent hashPhase = new PhaseEvent();
+                hashPhase.begin();
+                MessageDigest digest = CryptoEngine.messageDigest(Signer.DIGEST_ALGORITHM);
+                long hashed = ByteRangeReader.update(digest, channel, signature.getByteRange());
+                byte[] contentDigest = digest.digest();
+                Metrics.HASH_BYTES.add(hashed);
+                hashPhase.commit(PhaseEvent.VERIFY, PhaseEvent.HASH, inputDoc.getPath(), hashed, algorithm.name());
+
+                PhaseEvent cachePhase = new PhaseEvent();
+                cachePhase.begin();
+                VerificationCache.Entry cached = cache.lookup(contentDigest, signatureBytes, key);
+                cachePhase.commit(PhaseEvent.VERIFY, PhaseEvent.CACHE, inputDoc.getPath(), 0, algorithm.name());
+                if (cached != null) {
+                    event.cached = true;
+                    return cached.valid() ? new VerificationOutcome.Valid(true) : new VerificationOutcome.Invalid(true);
+                }
+
+                PhaseEvent verifyPhase = new PhaseEvent();
+                verifyPhase.begin();
+                boolean valid = algorithm.signsDigests()
+                        ? verifyDigest(key, algorithm, contentDigest, signatureBytes)
+                        : verifyContent(key, algorithm, channel, signature.getByteRange(), signatureBytes);
+                verifyPhase.commit(PhaseEvent.VERIFY, PhaseEvent.VERIFY, inputDoc.getPath(),
+                        algorithm.signsDigests() ? 0 : hashed, algorithm.name());
+                try {
+                    cache.record(contentDigest, signatureBytes, key, valid);
+                } catch (IOException e) {
+                    // the result is still correct, it just won't be remembered
+                }
+                return valid ? new VerificationOutcome.Valid(false) : new VerificationOutcome.Invalid(false);
+            } catch (IOException e) {
+                throw new PdfFileReadingException("Couldn't read: " + inputDoc.getName(), e);
+            }
+        } catch (PdfFileOpeningException | PdfFileReadingException e) {
+            throw e;
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 and all supported signature algorithms are available in every JVM
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new PdfFileOpeningException(e);
+        } catch (SignatureException e) {
+            throw new SignatureVerificationException(e);
+        }
+    }
+
+    /**
+     * \brief A single verification run inside recordVerification.
+     */
+    @FunctionalInterface
+    private interface Verification {
+        /**
+         * \brief Verifies the document.
+         * \param event The event of the whole verification, to be given the byte range length and algorithm.
+         * \return Valid, Invalid or NotSigned, other failures are thrown.
+         */
+        VerificationOutcome run(VerifyEvent event) throws InvalidKeyException, PdfFileOpeningException;
+    }
+
+    /**
+     * \brief Runs a verification and records it as a VerifyEvent and in the verification metrics.
+     *
+     * Expected failures are turned into a Failed outcome, cancellation and unexpected errors are thrown.
+     * The file attributes are only looked up while a recording is running.
+     *
+     * \param inputDoc The PDF file to be verified.
+     * \param verification The verification to be run.
+     * \return The outcome of the verification.
+     */
+    private static VerificationOutcome recordVerification(File inputDoc, Verification verification) {
+        long start = System.nanoTime();
+        VerifyEvent event = new VerifyEvent();
+        event.begin();
+        event.outcome = "error";
+        Exception failure = null;
+        try {
+            VerificationOutcome outcome;
+            try {
+                outcome = verification.run(event);
+            } catch (PdfFileOpeningException | PdfFileReadingException e) {
+                outcome = new VerificationOutcome.Failed(VerificationOutcome.Reason.UNREADABLE_DOCUMENT, e);
+            } catch (SignatureVerificationException e) {
+                outcome = new VerificationOutcome.Failed(VerificationOutcome.Reason.MALFORMED_SIGNATURE, e);
+            } catch (InvalidKeyException e) {
+                outcome = new VerificationOutcome.Failed(VerificationOutcome.Reason.UNSUPPORTED_KEY, e);
+            }
+
+            switch (outcome) {
+                case VerificationOutcome.Valid valid -> {
+                    event.outcome = "valid";
+                    Metrics.VERIFY_DOCUMENTS.increment();
+                }
+                case VerificationOutcome.Invalid invalid -> {
+                    event.outcome = "invalid";
+                    Metrics.VERIFY_INVALID.increment();
+                }
+                case VerificationOutcome.NotSigned notSigned -> {
+                    event.outcome = "unsigned";
+                    Metrics.VERIFY_FAILURES.increment();
+                }
+                case VerificationOutcome.Failed failed -> {
+                    failure = failed.exception();
+                    Metrics.VERIFY_FAILURES.increment();
+                }
+            }
+            if (event.cached) {
+                Metrics.VERIFY_CACHE_HITS.increment();
+            }
+            return outcome;
+        } catch (OperationCancelledException e) {
+            event.outcome = "cancelled";
+            throw e;
+        } catch (RuntimeException e) {
+            failure = e;
+            Metrics.VERIFY_FAILURES.increment();
+            throw e;
+        } finally {
+            Metrics.VERIFY_LATENCY.recordSince(start);
+            if (event.shouldCommit()) {
+                event.path = inputDoc.getPath();
+                event.fileSize = inputDoc.length();
+                event.error = failure == null ? null : failure.toString();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * \brief Verifies every signature of a PDF file with the given public key.
+     *
+     * \param inputDoc The PDF file to be verified.
+     * \param key The public key to be used for verification.
+     *
+     * \return One result per signature dictionary, in document order.
+     *
+     * \see verifyAll(File, List)
+     */
+    public static List<SignatureVerificationResult> verifyAll(File inputDoc, PublicKey key)
+            throws PdfFileOpeningException, PdfFileReadingException {
+        if (key == null) {
+            throw new IllegalStateException("Both inputDoc and key must be supplied before verifying");
+        }
+        return verifyAll(inputDoc, List.of(key));
+    }
+
+    /**
+     * \brief Verifies every signature of a PDF file, e.g. a contract signed by several parties.
+     *
+     * The document is parsed once to collect the signature dictionaries and closed again,
+     * then the signatures are verified concurrently on a pool shared by all calls,
+     * each reading its byte ranges straight from the file.
+     * The signed content of every signature is hashed once, however many RSA and ECDSA keys are tried,
+     * Ed25519 keys read the content again as they cannot check a digest.
+     * A signature is valid if any of the keys verifies it. A signature that cannot be checked
+     * doesn't stop the others, its result carries the error instead.
+     * In the metrics the document counts as verified if all its signatures are valid,
+     * as failed if any of them couldn't be checked and as invalid otherwise.
+     *
+     * \param inputDoc The PDF file to be verified.
+     * \param keys The public keys of the expected signers.
+     *
+     * \return One result per signature dictionary, in document order, empty if the document is not signed.
+     *
+     * \throws PdfFileOpeningException If the PDF file cannot be opened.
+     * \throws PdfFileReadingException If the PDF file cannot be read.
+     * \throws IllegalStateException If any of the required input parameters are null or no key is given.
+     */
+    public static List<SignatureVerificationResult> verifyAll(File inputDoc, List<PublicKey> keys)
+            throws PdfFileOpeningException, PdfFileReadingException {
+        if (inputDoc == null || keys == null || keys.isEmpty()) {
+            throw new IllegalStateException("Both inputDoc and key must be supplied before verifying");
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<SignatureVerificationResult> results = verifySignatures(inputDoc, keys);
+            if (results.stream().anyMatch(result -> result.error() != null)) {
+                Metrics.VERIFY_FAILURES.increment();
+            } else if (!results.isEmpty() && results.stream().allMatch(SignatureVerificationResult::valid)) {
+                Metrics.VERIFY_DOCUMENTS.increment();
+            } else {
+                Metrics.VERIFY_INVALID.increment();
+            }
+            return results;
+        } catch (RuntimeException | PdfFileOpeningException e) {
+            Metrics.VERIFY_FAILURES.increment();
+            throw e;
+        } finally {
+            Metrics.VERIFY_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * \brief Verifies every signature of a PDF file concurrently.
+     * \param inputDoc The PDF file to be verified.
+     * \param keys The public keys of the expected signers.
+     * \return One result per signature dictionary, in document order.
+     * \see verifyAll(File, List)
+     */
+    private static List<SignatureVerificationResult> verifySignatures(File inputDoc, List<PublicKey> keys)
+            throws PdfFileOpeningException, PdfFileReadingException {
+        List<SignatureData> signatures = new ArrayList<>();
+        try (PDDocument doc = PdfLoaderWrapper.loadPDF(inputDoc)) {
+            for (PDSignature signature : doc.getSignatureDictionaries()) {
+                signatures.add(new SignatureData(signature.getName(), signature.getByteRange(), signature.getContents()));
+            }
+        } catch (PdfFileOpeningException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new PdfFileOpeningException(e);
+        }
+        if (signatures.isEmpty()) {
+            return List.of();
+        }
+
+        // positional reads on a FileChannel are safe to run concurrently
+        try (FileChannel channel = FileChannel.open(inputDoc.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (signatures.size() == 1) {
+                // nothing to run in parallel, spare the hand-off to the pool
+                return List.of(verifySignature(0, signatures.getFirst(), channel, fileSize, keys));
+            }
+
+            List<Future<SignatureVerificationResult>> futures = new ArrayList<>(signatures.size());
+            try {
+                for (int i = 0; i < signatures.size(); i++) {
+                    int index = i;
+                    SignatureData signature = signatures.get(i);
+                    futures.add(SIGNATURE_VERIFIERS.submit(() -> verifySignature(index, signature, channel, fileSize, keys)));
+                }
+
+                List<SignatureVerificationResult> results = new ArrayList<>(futures.size());
+                for (Future<SignatureVerificationResult> future : futures) {
+                    results.add(future.get());
+                }
+                return results;
+            } catch (ExecutionException e) {
+                // verifySignature catches everything it can, only Errors end up here
+                throw new SignatureVerificationException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SignatureVerificationException("Verification was interrupted", e);
+            } finally {
+                // the channel is closed on return, stop whatever still reads from it
+                for (Future<SignatureVerificationResult> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        } catch (IOException e) {
+            throw new PdfFileReadingException("Couldn't read: " + inputDoc.getName(), e);
+        }
+    }
+
+    /**
+     * \brief Verifies a single signature dictionary against the keys, turning failures into a result.
+     * \param index Position of the signature in the document.
+     * \param signature The values of the signature dictionary.
+     * \param channel The channel of the signed PDF file.
+     * \param fileSize Size of the file.
+     * \param keys The public keys to be tried.
+     * \return The result of the verification.
+     */
+    private static SignatureVerificationResult verifySignature(int index, SignatureData signature, FileChannel channel,
+                                                               long fileSize, List<PublicKey> keys) {
+        int[] byteRange = signature.byteRange();
+        long coveredBytes = ByteRangeReader.coveredBytes(byteRange);
+        boolean coversWholeDocument = false;
+        if (byteRange != null && byteRange.length >= 2) {
+            coversWholeDocument = byteRange[0] == 0
+                    && (long) byteRange[byteRange.length - 2] + byteRange[byteRange.length - 1] == fileSize;
+        }
+
+        try {
+            byte[] contents = signature.contents();
+            byte[] contentDigest = null;
+
+            for (int keyIndex = 0; keyIndex < keys.size(); keyIndex++) {
+                PublicKey key = keys.get(keyIndex);
+                SignatureAlgorithm algorithm = SignatureAlgorithm.of(key);
+                boolean valid;
+                try {
+                    byte[] signatureBytes = algorithm.extractSignature(contents, key);
+                    if (algorithm.signsDigests()) {
+                        // hash the signed content once, then check the digest against every key
+                        if (contentDigest == null) {
+                            MessageDigest digest = CryptoEngine.messageDigest(Signer.DIGEST_ALGORITHM);
+                            Metrics.HASH_BYTES.add(ByteRangeReader.update(digest, channel, byteRange));
+                            contentDigest = digest.digest();
+                        }
+                        valid = verifyDigest(key, algorithm, contentDigest, signatureBytes);
+                    } else {
+                        valid = verifyContent(key, algorithm, channel, byteRange, signatureBytes);
+                    }
+                } catch (SignatureException e) {
+                    // malformed for this key (e.g. a different key size or algorithm), try the next one
+                    valid = false;
+                }
+                if (valid) {
+                    return new SignatureVerificationResult(index, signature.name(), byteRange, coveredBytes,
+                            coversWholeDocument, true, keyIndex, null);
+                }
+            }
+            return new SignatureVerificationResult(index, signature.name(), byteRange, coveredBytes,
+                    coversWholeDocument, false, -1, null);
+        } catch (Exception e) {
+            return new SignatureVerificationResult(index, signature.name(), byteRange, coveredBytes,
+                    coversWholeDocument, false, -1, e);
+        }
+    }
+
+    /**
+     * \brief Verifies a signature of a precomputed SHA-256 digest.
+     * \param key The public key to be used for verification.
+     * \param algorithm The algorithm of the key, one that signs digests.
+     * \param contentDigest SHA-256 digest of the signed content.
+     * \param signatureBytes The signature bytes.
+     * \return true if the signature is valid, false otherwise.
+     * \throws InvalidKeyException If the provided public key is invalid.
+     * \throws SignatureException If the signature is malformed.
+     * \throws NoSuchAlgorithmException If the digest algorithm is not available (should never happen).
+     */
+    private static boolean verifyDigest(PublicKey key, SignatureAlgorithm algorithm, byte[] contentDigest,
+                                        byte[] signatureBytes)
+            throws InvalidKeyException, SignatureException, NoSuchAlgorithmException {
+        java.security.Signature signatureVerifier = CryptoEngine.signature(algorithm.digestAlgorithm());
+        signatureVerifier.initVerify(key);
+        Signer.updateWithDigest(signatureVerifier, algorithm, contentDigest);
+        return signatureVerifier.verify(signatureBytes);
+    }
+
+    /**
+     * \brief Verifies a signature by reading the signed byte ranges again.
+     * \param key The public key to be used for verification.
+     * \param algorithm The algorithm of the key.
+     * \param channel The channel of the signed PDF file.
+     * \param byteRange The byte ranges covered by the signature.
+     * \param signatureBytes The signature bytes.
+     * \return true if the signature is valid, false otherwise.
+     * \throws InvalidKeyException If the provided public key is invalid.
+     * \throws SignatureException If the signature is malformed.
+     * \throws NoSuchAlgorithmException If the algorithm is not available (should never happen).
+     * \throws IOException If the file cannot be read.
+     */
+    private static boolean verifyContent(PublicKey key, SignatureAlgorithm algorithm, FileChannel channel,
+                                         int[] byteRange, byte[] signatureBytes)
+            throws InvalidKeyException, SignatureException, NoSuchAlgorithmException, IOException {
+        java.security.Signature signatureVerifier = CryptoEngine.signature(algorithm.contentAlgorithm());
+        signatureVerifier.initVerify(key);
+        Metrics.HASH_BYTES.add(ByteRangeReader.update(signatureVerifier, channel, byteRange));
+        return signatureVerifier.verify(signatureBytes);
+    }
 }
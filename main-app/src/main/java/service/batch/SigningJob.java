@@ -0,0 +1,22 @@
+package service.batch;
+
+import java.io.File;
+
+/**
+ * \class SigningJob
+ * \brief Single input/output pair processed by a batch signing run.
+ *
+ * \param inputDoc The PDF file to be signed.
+ * \param outputDoc The output file where the signed PDF will be saved.
+ */
+public record SigningJob(File inputDoc, File outputDoc) {
+    /**
+     * \brief Creates a job, rejecting missing files.
+     * \throws IllegalStateException If any of the files is null.
+     */
+    public SigningJob {
+        if (inputDoc == null || outputDoc == null) {
+            throw new IllegalStateException("inputDoc and outputDoc must not be NULL");
+        }
+    }
+}
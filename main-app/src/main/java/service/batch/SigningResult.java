@@ -0,0 +1,22 @@
+package service.batch;
+
+/**
+ * \class SigningResult
+ * \brief Outcome of signing a single document in a batch signing run.
+ *
+ * A failed job carries the exception that stopped it, a successful one has no error.
+ *
+ * \param job The job this result belongs to.
+ * \param error The exception that caused the job to fail, null if the document was signed.
+ * \param durationNanos Wall-clock time spent on the job in nanoseconds.
+ */
+public record SigningResult(SigningJob job, Exception error, long durationNanos) {
+
+    /**
+     * \brief Checks whether the document was signed successfully.
+     * \return true if no error occurred, false otherwise.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,226 @@
+package service.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * \class CryptoEngine
+ * \brief Source of the JCA objects used by the signing, verification and key loading services.
+ *
+ * Looking up a provider and constructing a Signature, KeyFactory, MessageDigest or Cipher
+ * on every call is wasteful when thousands of documents are processed.
+ * This class keeps one instance of each algorithm per thread and hands it out again on later calls.
+ * The objects are not thread-safe, so they must not be passed to other threads,
+ * and every user has to initialize them (initSign, initVerify, init) before use, which also resets their state.
+ * Signatures of algorithms that collect the whole message before signing it (Ed25519, see SignatureAlgorithm.signsDigests)
+ * are not cached: their buffer keeps the size of the largest message after a reset, and a long-lived worker thread
+ * would hold on to a copy of the largest document it ever handled.
+ *
+ * The preferred JCA provider (e.g. "SunRsaSign" or "BC") can be chosen with setProvider
+ * or the "pades.crypto.provider" system property. The provider has to be registered in java.security.Security.
+ * Algorithms the preferred provider doesn't offer are taken from the default providers.
+ */
+public class CryptoEngine {
+    public static final String PROVIDER_PROPERTY = "pades.crypto.provider";  /**< System property selecting the preferred provider. */
+
+    private static volatile Provider provider = resolveProvider(System.getProperty(PROVIDER_PROPERTY));
+    private static final ThreadLocal<Map<String, Object>> INSTANCES = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * \brief Selects the preferred JCA provider.
+     *
+     * Instances cached by threads for the previous provider are not used anymore.
+     *
+     * \param name Name of a registered provider, or null to use the default provider order.
+     * \throws IllegalArgumentException If no provider with the given name is registered.
+     */
+    public static void setProvider(String name) {
+        provider = resolveProvider(name);
+    }
+
+    /**
+     * \brief Returns the name of the preferred JCA provider.
+     * \return The provider name, or null if the default provider order is used.
+     */
+    public static String getProvider() {
+        Provider current = provider;
+        return current == null ? null : current.getName();
+    }
+
+    /**
+     * \brief Returns the calling thread's Signature object for the algorithm.
+     *
+     * Algorithms collecting the whole message (Ed25519) get a new Signature on every call.
+     *
+     * \param algorithm The signature algorithm, e.g. "SHA256withRSA".
+     * \return The Signature, to be initialized with initSign or initVerify before use.
+     * \throws NoSuchAlgorithmException If no provider supports the algorithm.
+     */
+    public static Signature signature(String algorithm) throws NoSuchAlgorithmException {
+        Provider preferred = provider;
+        if (buffersMessage(algorithm)) {
+            return supports(preferred, "Signature", algorithm)
+                    ? Signature.getInstance(algorithm, preferred)
+                    : Signature.getInstance(algorithm);
+        }
+        Object cached = INSTANCES.get().get(cacheKey("Signature", algorithm, preferred));
+        if (cached != null) {
+            return (Signature) cached;
+        }
+        Signature signature = supports(preferred, "Signature", algorithm)
+                ? Signature.getInstance(algorithm, preferred)
+                : Signature.getInstance(algorithm);
+        INSTANCES.get().put(cacheKey("Signature", algorithm, preferred), signature);
+        return signature;
+    }
+
+    /**
+     * \brief Returns a Signature object for the algorithm that can be initialized with the given key.
+     *
+     * Keys that never leave a hardware token (PKCS#11) have no encoding and can only be used by the provider
+     * of the token. For them a new Signature is returned, which picks the provider when initialized with the key,
+     * as a cached instance is already bound to a software provider. Any other key gets the Signature
+     * of signature(String), cached by the calling thread unless the algorithm collects the whole message.
+     *
+     * \param algorithm The signature algorithm, e.g. "SHA256withRSA".
+     * \param key The key the Signature will be initialized with.
+     * \return The Signature, to be initialized with initSign or initVerify before use.
+     * \throws NoSuchAlgorithmException If no provider supports the algorithm.
+     * \throws IllegalStateException If the key is null.
+     */
+    public static Signature signature(String algorithm, Key key) throws NoSuchAlgorithmException {
+        if (key == null) {
+            throw new IllegalStateException("key must not be NULL");
+        }
+        if (key.getFormat() == null) {
+            return Signature.getInstance(algorithm);
+        }
+        return signature(algorithm);
+    }
+
+    /**
+     * \brief Returns the calling thread's KeyFactory for the algorithm.
+     * \param algorithm The key algorithm, e.g. "RSA".
+     * \return The KeyFactory.
+     * \throws NoSuchAlgorithmException If no provider supports the algorithm.
+     */
+    public static KeyFactory keyFactory(String algorithm) throws NoSuchAlgorithmException {
+        Provider preferred = provider;
+        Object cached = INSTANCES.get().get(cacheKey("KeyFactory", algorithm, preferred));
+        if (cached != null) {
+            return (KeyFactory) cached;
+        }
+        KeyFactory keyFactory = supports(preferred, "KeyFactory", algorithm)
+                ? KeyFactory.getInstance(algorithm, preferred)
+                : KeyFactory.getInstance(algorithm);
+        INSTANCES.get().put(cacheKey("KeyFactory", algorithm, preferred), keyFactory);
+        return keyFactory;
+    }
+
+    /**
+     * \brief Returns the calling thread's MessageDigest for the algorithm, reset to its initial state.
+     * \param algorithm The digest algorithm, e.g. "SHA-256".
+     * \return The MessageDigest.
+     * \throws NoSuchAlgorithmException If no provider supports the algorithm.
+     */
+    public static MessageDigest messageDigest(String algorithm) throws NoSuchAlgorithmException {
+        Provider preferred = provider;
+        Object cached = INSTANCES.get().get(cacheKey("MessageDigest", algorithm, preferred));
+        if (cached != null) {
+            MessageDigest digest = (MessageDigest) cached;
+            digest.reset();
+            return digest;
+        }
+        MessageDigest digest = supports(preferred, "MessageDigest", algorithm)
+                ? MessageDigest.getInstance(algorithm, preferred)
+                : MessageDigest.getInstance(algorithm);
+        INSTANCES.get().put(cacheKey("MessageDigest", algorithm, preferred), digest);
+        return digest;
+    }
+
+    /**
+     * \brief Returns the calling thread's Cipher for the transformation.
+     * \param transformation The cipher transformation, e.g. "AES".
+     * \return The Cipher, to be initialized with init before use.
+     * \throws NoSuchAlgorithmException If no provider supports the transformation.
+     * \throws NoSuchPaddingException If the padding of the transformation is not supported.
+     */
+    public static Cipher cipher(String transformation) throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Provider preferred = provider;
+        Object cached = INSTANCES.get().get(cacheKey("Cipher", transformation, preferred));
+        if (cached != null) {
+            return (Cipher) cached;
+        }
+        Cipher cipher = supports(preferred, "Cipher", transformation)
+                ? Cipher.getInstance(transformation, preferred)
+                : Cipher.getInstance(transformation);
+        INSTANCES.get().put(cacheKey("Cipher", transformation, preferred), cipher);
+        return cipher;
+    }
+
+    /**
+     * \brief Builds the key under which a thread caches an instance.
+     * \param type The JCA service type.
+     * \param algorithm The algorithm or transformation.
+     * \param preferred The preferred provider at the time of the call.
+     * \return The cache key.
+     */
+    private static String cacheKey(String type, String algorithm, Provider preferred) {
+        return type + '/' + algorithm + '@' + (preferred == null ? "" : preferred.getName());
+    }
+
+    /**
+     * \brief Checks whether a signature algorithm collects the whole message before signing or verifying it.
+     * \param algorithm The signature algorithm.
+     * \return true for the content algorithms that cannot sign digests, e.g. "Ed25519".
+     */
+    private static boolean buffersMessage(String algorithm) {
+        for (SignatureAlgorithm signatureAlgorithm : SignatureAlgorithm.values()) {
+            if (!signatureAlgorithm.signsDigests() && signatureAlgorithm.contentAlgorithm().equalsIgnoreCase(algorithm)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * \brief Checks whether the provider offers the service.
+     * \param preferred The provider to be checked, may be null.
+     * \param type The JCA service type.
+     * \param algorithm The algorithm or transformation (only the algorithm part of a transformation is checked).
+     * \return true if the provider is set and offers the algorithm, false otherwise.
+     */
+    private static boolean supports(Provider preferred, String type, String algorithm) {
+        if (preferred == null) {
+            return false;
+        }
+        String name = algorithm.contains("/") ? algorithm.substring(0, algorithm.indexOf('/')) : algorithm;
+        return preferred.getService(type, name) != null;
+    }
+
+    /**
+     * \brief Looks up a registered provider by name.
+     * \param name The provider name, may be null or empty.
+     * \return The provider, or null if no name was given.
+     * \throws IllegalArgumentException If no provider with the given name is registered.
+     */
+    private static Provider resolveProvider(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        Provider found = Security.getProvider(name);
+        if (found == null) {
+            throw new IllegalArgumentException("JCA provider not registered: " + name);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,43 @@
+package service.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.HexFormat;
+
+/**
+ * \class KeyFingerprint
+ * \brief Utility class computing fingerprints identifying public keys.
+ *
+ * The fingerprint is the SHA-256 hash of the X.509 encoding of the key,
+ * so the same key gives the same fingerprint whichever file or provider it was loaded from.
+ */
+public class KeyFingerprint {
+    /**
+     * \brief Computes the fingerprint of a public key.
+     * \param key The public key.
+     * \return SHA-256 of the encoded key (32 bytes).
+     * \throws IllegalStateException If the key is null or cannot be encoded.
+     */
+    public static byte[] of(PublicKey key) {
+        if (key == null || key.getEncoded() == null) {
+            throw new IllegalStateException("Key must be supplied and encodable to compute its fingerprint");
+        }
+        try {
+            return CryptoEngine.messageDigest("SHA-256").digest(key.getEncoded());
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available in every JVM
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * \brief Computes the fingerprint of a public key as a hexadecimal string.
+     * \param key The public key.
+     * \return Lowercase hexadecimal SHA-256 of the encoded key (64 characters).
+     * \throws IllegalStateException If the key is null or cannot be encoded.
+     */
+    public static String hex(PublicKey key) {
+        return HexFormat.of().formatHex(of(key));
+    }
+}
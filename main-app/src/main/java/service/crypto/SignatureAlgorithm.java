@@ -0,0 +1,170 @@
+package service.crypto;
+
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.SignatureException;
+import java.security.interfaces.EdECKey;
+import java.security.interfaces.RSAKey;
+import java.util.Arrays;
+
+/**
+ * \class SignatureAlgorithm
+ * \brief Signature algorithms supported by the signing, verification and key loading services.
+ *
+ * The algorithm is never configured separately, it follows from the type of the key:
+ * an RSA key signs with SHA256withRSA, an EC key (P-256 as generated by the key generator application)
+ * with SHA256withECDSA and an Ed25519 key with Ed25519.
+ *
+ * The signature is stored in the Contents entry of the signature dictionary, which is reserved
+ * larger than any signature and padded with zeros. Every algorithm knows how to find the end
+ * of its signature in the padded value.
+ *
+ * ECDSA and Ed25519 sign an order of magnitude faster than 4096-bit RSA and their signatures
+ * are 64 to 72 bytes instead of 512. Verification stays cheap with RSA, as its public exponent is small,
+ * while ECDSA verification is several times slower than RSA or Ed25519 verification.
+ * Ed25519 needs the whole signed content at once, the JDK keeps it in memory while signing or verifying,
+ * and copies the buffer as it grows, so signing or verifying an Ed25519 document needs free heap
+ * of several times its size (a 64 MiB heap handles documents of about 12 MiB).
+ * Documents of hundreds of megabytes need RSA or ECDSA, which hash the content in chunks.
+ */
+public enum SignatureAlgorithm {
+    RSA("RSA", "SHA256withRSA", "NONEwithRSA"),         /**< RSA PKCS#1 v1.5 with SHA-256. */
+    ECDSA("EC", "SHA256withECDSA", "NONEwithECDSA"),    /**< ECDSA with SHA-256, DER encoded signatures. */
+    ED25519("Ed25519", "Ed25519", null);                /**< Pure Ed25519, hashes the content with SHA-512 itself. */
+
+    private static final int ED25519_SIGNATURE_LENGTH = 64;
+
+    private final String keyAlgorithm;
+    private final String contentAlgorithm;
+    private final String digestAlgorithm;
+
+    SignatureAlgorithm(String keyAlgorithm, String contentAlgorithm, String digestAlgorithm) {
+        this.keyAlgorithm = keyAlgorithm;
+        this.contentAlgorithm = contentAlgorithm;
+        this.digestAlgorithm = digestAlgorithm;
+    }
+
+    /**
+     * \brief Returns the algorithm matching the type of a key.
+     * \param key A private or public key.
+     * \return The algorithm the key signs or verifies with.
+     * \throws InvalidKeyException If the key is of an unsupported type, e.g. DSA or Ed448.
+     * \throws IllegalStateException If the key is null.
+     */
+    public static SignatureAlgorithm of(Key key) throws InvalidKeyException {
+        if (key == null) {
+            throw new IllegalStateException("key must not be NULL");
+        }
+
+        // providers name the same key types differently, e.g. BouncyCastle uses "ECDSA" and the JDK "EdDSA"
+        return switch (key.getAlgorithm()) {
+            case "RSA" -> RSA;
+            case "EC", "ECDSA" -> ECDSA;
+            case "Ed25519" -> ED25519;
+            case "EdDSA" -> {
+                if (key instanceof EdECKey edKey && "Ed25519".equalsIgnoreCase(edKey.getParams().getName())) {
+                    yield ED25519;
+                }
+                throw new InvalidKeyException("Unsupported EdDSA curve, only Ed25519 keys can be used");
+            }
+            default -> throw new InvalidKeyException("Unsupported key algorithm: " + key.getAlgorithm());
+        };
+    }
+
+    /**
+     * \brief Returns the KeyFactory algorithm decoding keys of this type.
+     * \return The key algorithm, e.g. "RSA".
+     */
+    public String keyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    /**
+     * \brief Returns the Signature algorithm signing the content itself.
+     * \return The signature algorithm, e.g. "SHA256withRSA".
+     */
+    public String contentAlgorithm() {
+        return contentAlgorithm;
+    }
+
+    /**
+     * \brief Returns the Signature algorithm signing a precomputed SHA-256 digest of the content.
+     *
+     * The signature is identical to the one made by contentAlgorithm over the content.
+     * For RSA the digest has to be preceded by its DER DigestInfo header.
+     *
+     * \return The signature algorithm, e.g. "NONEwithRSA", or null if the algorithm can only sign the content itself.
+     */
+    public String digestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    /**
+     * \brief Checks whether signatures can be made and checked from a SHA-256 digest of the content.
+     *
+     * Ed25519 hashes the content itself, so it needs the whole content for signing and verification,
+     * two-phase signing is not possible with it.
+     *
+     * \return true if digestAlgorithm is available.
+     */
+    public boolean signsDigests() {
+        return digestAlgorithm != null;
+    }
+
+    /**
+     * \brief Cuts the signature out of the zero-padded Contents of a signature dictionary.
+     *
+     * RSA signatures are as long as the modulus of the key, ECDSA signatures are a DER sequence
+     * carrying its own length and Ed25519 signatures are always 64 bytes long.
+     *
+     * \param contents The Contents of the signature dictionary.
+     * \param key The key the signature is going to be verified with.
+     * \return The signature bytes.
+     * \throws SignatureException If the contents cannot hold a signature of this algorithm.
+     * \throws InvalidKeyException If the key is not a key of this algorithm.
+     */
+    public byte[] extractSignature(byte[] contents, Key key) throws SignatureException, InvalidKeyException {
+        int length = switch (this) {
+            case RSA -> {
+                if (!(key instanceof RSAKey rsaKey)) {
+                    throw new InvalidKeyException("Not an RSA key: " + key.getAlgorithm());
+                }
+                // an RSA signature is as long as the modulus, shorter contents fail the verification itself
+                yield Math.min(contents.length, (rsaKey.getModulus().bitLength() + 7) / 8);
+            }
+            case ECDSA -> derSequenceLength(contents);
+            case ED25519 -> ED25519_SIGNATURE_LENGTH;
+        };
+        if (length > contents.length) {
+            throw new SignatureException("Signature contents too short for " + name() + ": " + contents.length + " bytes");
+        }
+        return Arrays.copyOf(contents, length);
+    }
+
+    /**
+     * \brief Reads the total length of the DER SEQUENCE at the start of the contents.
+     * \param contents The Contents of the signature dictionary.
+     * \return Length of the sequence including its tag and length bytes.
+     * \throws SignatureException If the contents don't start with a DER SEQUENCE.
+     */
+    private static int derSequenceLength(byte[] contents) throws SignatureException {
+        if (contents.length < 2 || contents[0] != 0x30) {
+            throw new SignatureException("Malformed ECDSA signature, expected a DER sequence");
+        }
+        int first = contents[1] & 0xff;
+        if (first < 0x80) {
+            return 2 + first;
+        }
+
+        // long form, ECDSA signatures never need more than two length bytes
+        int lengthBytes = first & 0x7f;
+        if (lengthBytes == 0 || lengthBytes > 2 || contents.length < 2 + lengthBytes) {
+            throw new SignatureException("Malformed ECDSA signature length");
+        }
+        int length = 0;
+        for (int i = 0; i < lengthBytes; i++) {
+            length = (length << 8) | (contents[2 + i] & 0xff);
+        }
+        return 2 + lengthBytes + length;
+    }
+}
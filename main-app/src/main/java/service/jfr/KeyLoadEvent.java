@@ -0,0 +1,53 @@
+package service.jfr;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * \class KeyLoadEvent
+ * \brief Flight Recorder event covering the loading of a key file, including decrypting a private key.
+ */
+@Name("pades.KeyLoad")
+@Label("Key Load")
+@Category({"PAdES", "Keys"})
+@Description("Reading, decrypting and decoding a key file")
+@StackTrace(false)
+public class KeyLoadEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Key Type")
+    @Description("\"private\" or \"public\"")
+    public String keyType;
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Outcome")
+    @Description("\"loaded\" or \"error\"")
+    public String outcome;
+
+    @Label("Error")
+    public String error;
+
+    /**
+     * \brief Ends the loading and commits the event if the recording settings let it pass.
+     *
+     * Does nothing when no recording is running.
+     *
+     * \param file The key file.
+     * \param keyType "private" or "public".
+     */
+    public void commit(File file, String keyType) {
+        if (shouldCommit()) {
+            this.path = file.getPath();
+            this.keyType = keyType;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * \class PdfLoadEvent
+ * \brief Flight Recorder event covering the parsing of a PDF document by PdfLoaderWrapper.
+ */
+@Name("pades.PdfLoad")
+@Label("PDF Load")
+@Category({"PAdES", "Documents"})
+@Description("Opening and parsing a PDF document")
+@StackTrace(false)
+public class PdfLoadEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileSize;
+
+    @Label("Memory Setting")
+    public String memorySetting;
+
+    @Label("Memory Mapped")
+    public boolean memoryMapped;
+
+    @Label("Outcome")
+    @Description("\"loaded\" or \"error\"")
+    public String outcome;
+}
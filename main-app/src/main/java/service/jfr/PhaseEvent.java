@@ -0,0 +1,69 @@
+package service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * \class PhaseEvent
+ * \brief Flight Recorder event covering one phase of signing or verification.
+ *
+ * The phases are "hash" (reading and hashing the signed byte ranges), "sign" and "verify"
+ * (the private or public key operation), "cache" (the verification cache lookup) and "save"
+ * (writing the signed document, which contains the hash and sign phases as PDFBox signs while saving).
+ */
+@Name("pades.Phase")
+@Label("Signature Phase")
+@Category({"PAdES", "Phases"})
+@Description("A single phase of signing or verifying a PDF document")
+@StackTrace(false)
+public class PhaseEvent extends jdk.jfr.Event {
+    public static final String HASH = "hash";      /**< Reading and hashing the signed byte ranges. */
+    public static final String SIGN = "sign";      /**< The private key operation. */
+    public static final String VERIFY = "verify";  /**< The public key operation. */
+    public static final String CACHE = "cache";    /**< Looking the result up in the verification cache. */
+    public static final String SAVE = "save";      /**< Writing the signed document. */
+
+    @Label("Operation")
+    @Description("\"sign\" or \"verify\"")
+    public String operation;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Bytes")
+    @Description("Bytes processed by the phase, 0 where not applicable")
+    @DataAmount
+    public long bytes;
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    /**
+     * \brief Ends the phase and commits the event if the recording settings let it pass.
+     *
+     * Does nothing when no recording is running.
+     *
+     * \param operation SIGN or VERIFY.
+     * \param phase One of the phase constants.
+     * \param path Path of the document.
+     * \param bytes Bytes processed by the phase.
+     * \param algorithm Name of the signature algorithm.
+     */
+    public void commit(String operation, String phase, String path, long bytes, String algorithm) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.phase = phase;
+            this.path = path;
+            this.bytes = bytes;
+            this.algorithm = algorithm;
+            commit();
+        }
+    }
+}
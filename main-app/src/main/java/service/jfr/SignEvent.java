@@ -0,0 +1,47 @@
+package service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * \class SignEvent
+ * \brief Flight Recorder event covering a whole Signer.sign call.
+ *
+ * The loading, hashing, signing and saving inside it are recorded as PdfLoadEvent and PhaseEvent
+ * on the same thread.
+ */
+@Name("pades.Sign")
+@Label("Sign Document")
+@Category({"PAdES", "Signing"})
+@Description("Signing a PDF document")
+@StackTrace(false)
+public class SignEvent extends jdk.jfr.Event {
+    @Label("Input Path")
+    public String inputPath;
+
+    @Label("Output Path")
+    public String outputPath;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileSize;
+
+    @Label("Byte Range Length")
+    @Description("Number of bytes covered by the signature")
+    @DataAmount
+    public long byteRangeLength;
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Outcome")
+    @Description("\"signed\", \"cancelled\" or \"error\"")
+    public String outcome;
+
+    @Label("Error")
+    public String error;
+}
@@ -0,0 +1,48 @@
+package service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * \class VerifyEvent
+ * \brief Flight Recorder event covering a whole Verifier.verify call.
+ *
+ * The loading, hashing and verification inside it are recorded as PdfLoadEvent and PhaseEvent
+ * on the same thread.
+ */
+@Name("pades.Verify")
+@Label("Verify Document")
+@Category({"PAdES", "Verification"})
+@Description("Verifying the signature of a PDF document")
+@StackTrace(false)
+public class VerifyEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileSize;
+
+    @Label("Byte Range Length")
+    @Description("Number of bytes covered by the signature")
+    @DataAmount
+    public long byteRangeLength;
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Cached")
+    @Description("The result was answered by the verification cache")
+    public boolean cached;
+
+    @Label("Outcome")
+    @Description("\"valid\", \"invalid\", \"unsigned\", \"cancelled\" or \"error\"")
+    public String outcome;
+
+    @Label("Error")
+    public String error;
+}
@@ -0,0 +1,225 @@
+package service.key_loading;
+
+import exceptions.InvalidKeyFileException;
+import service.metrics.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * \class CachingKeyLoader
+ * \brief KeyLoader decorator that keeps decoded keys in memory.
+ *
+ * Loading a private key means reading the file, deriving the AES key from the PIN, decrypting
+ * and decoding the key, which is wasteful when the same key signs many documents.
+ * This class remembers the keys returned by the wrapped loader.
+ * Entries are identified by the canonical path and modification time of the key file
+ * (so a replaced file is loaded again) and, for private keys, by a salted hash of the PIN.
+ * Entries expire after a fixed time and the least recently used ones are evicted when the cache is full.
+ * Hits and misses are counted in Metrics.KEY_CACHE_HITS and Metrics.KEY_CACHE_MISSES.
+ */
+public class CachingKeyLoader implements KeyLoader {
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);  /**< Default lifetime of a cache entry. */
+    public static final int DEFAULT_MAX_ENTRIES = 16;  /**< Default maximal number of cached keys. */
+
+    private static CachingKeyLoader shared;
+
+    private final KeyLoader delegate;
+    private final long ttlNanos;
+    private final byte[] pinSalt;
+    private final Map<CacheKey, CacheEntry> cache;
+
+    /**
+     * \brief Identifies a cached key.
+     * \param path Canonical path of the key file.
+     * \param lastModified Modification time of the key file.
+     * \param pinHash Salted hash of the PIN, null for public keys.
+     */
+    private record CacheKey(String path, long lastModified, String pinHash) {}
+
+    /**
+     * \brief Cached key together with its expiry time.
+     * \param key The decoded key.
+     * \param expiresAt Value of System.nanoTime() after which the entry is stale.
+     */
+    private record CacheEntry(Key key, long expiresAt) {}
+
+    /**
+     * \brief Constructor for CachingKeyLoader with default lifetime and size.
+     * \param delegate The loader used when a key is not cached.
+     */
+    public CachingKeyLoader(KeyLoader delegate) {
+        this(delegate, DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * \brief Constructor for CachingKeyLoader.
+     * \param delegate The loader used when a key is not cached.
+     * \param ttl Time after which a cached key is loaded again.
+     * \param maxEntries Maximal number of cached keys, least recently used ones are evicted first.
+     * \throws IllegalStateException If the delegate or ttl is null.
+     * \throws IllegalArgumentException If ttl or maxEntries is not positive.
+     */
+    public CachingKeyLoader(KeyLoader delegate, Duration ttl, int maxEntries) {
+        if (delegate == null || ttl == null) {
+            throw new IllegalStateException("delegate and ttl must not be NULL");
+        }
+        if (ttl.isNegative() || ttl.isZero() || maxEntries < 1) {
+            throw new IllegalArgumentException("ttl and maxEntries must be positive");
+        }
+
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.pinSalt = PinDigest.newSalt();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * \brief Returns the cache of local key files shared by the whole application.
+     *
+     * The GUI builds new frames for every task, so the cache lives outside of them.
+     * It is created on first use with the default lifetime and size and wraps a LocalKeyLoader.
+     *
+     * \return The shared loader.
+     */
+    public static synchronized CachingKeyLoader shared() {
+        if (shared == null) {
+            shared = new CachingKeyLoader(new LocalKeyLoader());
+        }
+        return shared;
+    }
+
+    /**
+     * \brief Loads a private key, using the cached one if the file and PIN didn't change.
+     * \param file The file from which the private key is to be loaded.
+     * \param pin The PIN used to access the private key.
+     * \return The loaded PrivateKey.
+     * \throws InvalidKeyFileException If an error occurs while loading the private key.
+     */
+    @Override
+    public PrivateKey loadPrivateKey(File file, String pin) throws InvalidKeyFileException {
+        CacheKey cacheKey = cacheKey(file, hashPin(pin));
+        Key cached = lookup(cacheKey);
+        if (cached instanceof PrivateKey privateKey) {
+            Metrics.KEY_CACHE_HITS.increment();
+            return privateKey;
+        }
+        Metrics.KEY_CACHE_MISSES.increment();
+
+        PrivateKey privateKey = delegate.loadPrivateKey(file, pin);
+        store(cacheKey, privateKey);
+        return privateKey;
+    }
+
+    /**
+     * \brief Loads a public key, using the cached one if the file didn't change.
+     * \param file The file from which the public key is to be loaded.
+     * \return The loaded PublicKey.
+     * \throws InvalidKeyFileException If an error occurs while loading the public key.
+     */
+    @Override
+    public PublicKey loadPublicKey(File file) throws InvalidKeyFileException {
+        CacheKey cacheKey = cacheKey(file, null);
+        Key cached = lookup(cacheKey);
+        if (cached instanceof PublicKey publicKey) {
+            Metrics.KEY_CACHE_HITS.increment();
+            return publicKey;
+        }
+        Metrics.KEY_CACHE_MISSES.increment();
+
+        PublicKey publicKey = delegate.loadPublicKey(file);
+        store(cacheKey, publicKey);
+        return publicKey;
+    }
+
+    /**
+     * \brief Removes every cached key loaded from the specified file.
+     * \param file The key file whose entries are to be removed.
+     * \throws InvalidKeyFileException If the canonical path of the file cannot be resolved.
+     */
+    public synchronized void invalidate(File file) throws InvalidKeyFileException {
+        String path = canonicalPath(file);
+        cache.keySet().removeIf(key -> key.path().equals(path));
+    }
+
+    /**
+     * \brief Removes all cached keys.
+     */
+    public synchronized void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * \brief Returns the cached key, dropping it if it has expired.
+     * \param cacheKey The identifier of the key.
+     * \return The cached key, or null if there is no valid entry.
+     */
+    private synchronized Key lookup(CacheKey cacheKey) {
+        CacheEntry entry = cache.get(cacheKey);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt() > 0) {
+            cache.remove(cacheKey);
+            return null;
+        }
+        return entry.key();
+    }
+
+    /**
+     * \brief Stores a freshly loaded key in the cache.
+     * \param cacheKey The identifier of the key.
+     * \param key The key to be cached.
+     */
+    private synchronized void store(CacheKey cacheKey, Key key) {
+        cache.put(cacheKey, new CacheEntry(key, System.nanoTime() + ttlNanos));
+    }
+
+    /**
+     * \brief Builds the cache identifier of a key file.
+     * \param file The key file.
+     * \param pinHash Salted hash of the PIN, null for public keys.
+     * \return The cache identifier.
+     * \throws InvalidKeyFileException If the file is null or its canonical path cannot be resolved.
+     */
+    private static CacheKey cacheKey(File file, String pinHash) throws InvalidKeyFileException {
+        return new CacheKey(canonicalPath(file), file.lastModified(), pinHash);
+    }
+
+    /**
+     * \brief Resolves the canonical path of a key file.
+     * \param file The key file.
+     * \return The canonical path.
+     * \throws InvalidKeyFileException If the file is null or its canonical path cannot be resolved.
+     */
+    private static String canonicalPath(File file) throws InvalidKeyFileException {
+        if (file == null) {
+            throw new InvalidKeyFileException("No key file provided");
+        }
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            throw new InvalidKeyFileException(e.getMessage());
+        }
+    }
+
+    /**
+     * \brief Hashes the PIN with the per-instance salt so the PIN itself is never kept in memory.
+     * \param pin The PIN to be hashed.
+     * \return Base64 encoded SHA-256 of the salt and the PIN.
+     */
+    private String hashPin(String pin) {
+        return PinDigest.hash(pinSalt, pin);
+    }
+}
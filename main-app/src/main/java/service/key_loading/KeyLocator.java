@@ -0,0 +1,248 @@
+package service.key_loading;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * \class KeyLocator
+ * \brief Keeps track of private key files on mounted USB drives.
+ *
+ * Removable media are mounted below a few well-known directories: /media/<user>/<volume> or /media/<volume>
+ * on Debian and Ubuntu, /run/media/<user>/<volume> on Fedora and other udisks2 systems, /mnt/<volume>
+ * for manual mounts and /Volumes/<volume> on macOS. The locator indexes the directories up to two levels
+ * below these roots that contain a private_key.txt file and watches the roots and their subdirectories,
+ * so mounting, unmounting or copying a key updates the index and notifies the listeners.
+ *
+ * Lookups are answered from the index. Only when it is empty or the indexed file has disappeared
+ * are the roots scanned again, as some platforms deliver file system events late (macOS polls for them).
+ * Symbolic links are not followed, so e.g. /Volumes/Macintosh HD (a link to /) is skipped.
+ */
+public class KeyLocator implements AutoCloseable {
+    public static final String PRIVATE_KEY_FILE_NAME = "private_key.txt";  /**< Name of the private key file on the drive. */
+    public static final List<Path> DEFAULT_ROOTS = List.of(
+            Path.of("/media"), Path.of("/run/media"), Path.of("/mnt"), Path.of("/Volumes"));  /**< Mount roots of Linux and macOS. */
+    private static final int VOLUME_DEPTH = 2;  /**< Deepest level below a root at which a volume is looked for. */
+
+    private static KeyLocator shared;
+
+    private final List<Path> roots;
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> watchedDirectories = new HashMap<>();
+    private final List<Consumer<List<File>>> listeners = new CopyOnWriteArrayList<>();
+    private final Thread watcher;
+    private volatile List<File> keyFiles = List.of();
+
+    /**
+     * \brief Constructor for KeyLocator, indexes the roots and starts watching them.
+     *
+     * If the file system cannot be watched (e.g. the inotify limit is reached), the locator still works,
+     * but finds new drives only when a lookup misses.
+     *
+     * \param roots The directories below which volumes are mounted, missing ones are skipped.
+     * \throws IllegalStateException If the roots are null.
+     */
+    public KeyLocator(List<Path> roots) {
+        if (roots == null) {
+            throw new IllegalStateException("roots must not be NULL");
+        }
+
+        this.roots = List.copyOf(roots);
+        this.watchService = newWatchService(this.roots);
+        rescan();
+        this.watcher = Thread.ofPlatform().name("pades-key-locator").daemon().start(this::watch);
+    }
+
+    /**
+     * \brief Returns the locator of the default mount roots shared by the whole application.
+     *
+     * The locator is created on first use and runs until the application exits.
+     *
+     * \return The shared locator.
+     */
+    public static synchronized KeyLocator shared() {
+        if (shared == null) {
+            shared = new KeyLocator(DEFAULT_ROOTS);
+        }
+        return shared;
+    }
+
+    /**
+     * \brief Finds the private key file on a mounted drive.
+     *
+     * If several drives carry a key, the one with the alphabetically first path is returned.
+     *
+     * \return The key file, or empty if no mounted drive carries one.
+     */
+    public Optional<File> findPrivateKey() {
+        List<File> current = keyFiles;
+        if (!current.isEmpty() && current.getFirst().isFile()) {
+            return Optional.of(current.getFirst());
+        }
+        // the change may not have been reported yet
+        current = rescan();
+        return current.isEmpty() ? Optional.empty() : Optional.of(current.getFirst());
+    }
+
+    /**
+     * \brief Returns all indexed private key files without checking the drives again.
+     * \return The key files sorted by path.
+     */
+    public List<File> privateKeys() {
+        return keyFiles;
+    }
+
+    /**
+     * \brief Registers a listener called with the key files whenever the index changes.
+     *
+     * The listener is called on the thread that noticed the change and must not block.
+     *
+     * \param listener The listener.
+     * \throws IllegalStateException If the listener is null.
+     */
+    public void addListener(Consumer<List<File>> listener) {
+        if (listener == null) {
+            throw new IllegalStateException("listener must not be NULL");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * \brief Removes a listener registered by addListener.
+     * \param listener The listener.
+     */
+    public void removeListener(Consumer<List<File>> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * \brief Stops watching the mount roots.
+     * \throws IOException If the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        watcher.interrupt();
+    }
+
+    /**
+     * \brief Creates the watch service of the file system of the roots.
+     * \param roots The mount roots.
+     * \return The watch service, or null if there are no roots or the file system cannot be watched.
+     */
+    private static WatchService newWatchService(List<Path> roots) {
+        if (roots.isEmpty()) {
+            return null;
+        }
+        try {
+            return roots.getFirst().getFileSystem().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * \brief Waits for file system events and updates the index after each batch of them.
+     */
+    private void watch() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // the roots are scanned again as a whole, the individual events don't matter
+                key.pollEvents();
+                key.reset();
+                rescan();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * \brief Scans the roots again, watching new directories, and notifies the listeners of changes.
+     * \return The key files found.
+     */
+    private synchronized List<File> rescan() {
+        // unmounted or removed directories are no longer watched
+        watchedDirectories.values().removeIf(key -> !key.isValid());
+
+        List<File> found = new ArrayList<>();
+        for (Path root : roots) {
+            scan(root, 0, found);
+        }
+        found.sort(null);
+
+        List<File> result = List.copyOf(found);
+        if (!result.equals(keyFiles)) {
+            keyFiles = result;
+            for (Consumer<List<File>> listener : listeners) {
+                listener.accept(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * \brief Watches a directory and looks for the key file in it and in its subdirectories.
+     * \param directory The directory to be scanned.
+     * \param depth Level of the directory below its root, 0 for the root itself.
+     * \param found The list the key files are added to.
+     */
+    private void scan(Path directory, int depth, List<File> found) {
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        watchDirectory(directory);
+
+        if (depth > 0 && Files.isRegularFile(directory.resolve(PRIVATE_KEY_FILE_NAME))) {
+            found.add(directory.resolve(PRIVATE_KEY_FILE_NAME).toFile());
+            return;
+        }
+        if (depth == VOLUME_DEPTH) {
+            return;
+        }
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (Path child : children) {
+                scan(child, depth + 1, found);
+            }
+        } catch (IOException e) {
+            // e.g. another user's directory in /media, there is nothing to find in it
+        }
+    }
+
+    /**
+     * \brief Registers a directory with the watch service unless it is watched already.
+     * \param directory The directory.
+     */
+    private void watchDirectory(Path directory) {
+        if (watchService == null || watchedDirectories.containsKey(directory)) {
+            return;
+        }
+        try {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirectories.put(directory, key);
+        } catch (IOException | ClosedWatchServiceException e) {
+            // the directory is still indexed, changes in it are picked up by the next lookup miss
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package service.key_loading;
+
+import exceptions.InvalidKeyFileException;
+import service.crypto.SignatureAlgorithm;
+import service.jfr.KeyLoadEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.Charset.defaultCharset;
+
+/**
+ * \class KeyStoreKeyLoader
+ * \brief Base class of the KeyLoader implementations reading keys from a java.security.KeyStore.
+ *
+ * Opening a keystore is the expensive part of using it: a PKCS#12 file is decrypted with a key derived
+ * from the PIN by many thousand hash iterations, a PKCS#11 token logs the user in. The loader therefore
+ * opens every keystore once and keeps it open as a session, identified by the canonical path of the file.
+ * Later calls with the same file and PIN return the key of the session; a different PIN is rejected
+ * without touching the keystore. If the file is modified, the session is closed and the keystore opened again.
+ * Sessions stay open until close is called.
+ *
+ * The returned keys may be used by several threads at the same time, each with its own Signature.
+ * Subclasses decide how a keystore is opened and released.
+ */
+public abstract class KeyStoreKeyLoader implements KeyLoader, AutoCloseable {
+    private final String alias;
+    private final byte[] pinSalt = PinDigest.newSalt();
+    private final Map<String, Session> sessions = new HashMap<>();
+
+    /**
+     * \brief An open keystore.
+     * \param lastModified Modification time of the file when the keystore was opened.
+     * \param pinHash Salted hash of the PIN the keystore was opened with.
+     * \param keyStore The open keystore.
+     * \param privateKey The private key of the entry used for signing.
+     * \param certificate The certificate of the entry, null if the keystore has none.
+     */
+    private record Session(long lastModified, String pinHash, KeyStore keyStore, PrivateKey privateKey,
+                           Certificate certificate) {}
+
+    /**
+     * \brief Constructor for KeyStoreKeyLoader.
+     * \param alias Alias of the entry used for signing, or null to use the first private key entry.
+     */
+    protected KeyStoreKeyLoader(String alias) {
+        this.alias = alias;
+    }
+
+    /**
+     * \brief Opens the keystore of a file.
+     * \param file The file given to loadPrivateKey.
+     * \param pin The PIN, to be cleared by the caller after the call.
+     * \return The loaded keystore.
+     * \throws IOException If the file cannot be read or the PIN is wrong.
+     * \throws GeneralSecurityException If the keystore cannot be opened.
+     */
+    protected abstract KeyStore open(File file, char[] pin) throws IOException, GeneralSecurityException;
+
+    /**
+     * \brief Releases a keystore returned by open when its session ends.
+     *
+     * Does nothing by default, as a keystore loaded from a file holds no resources.
+     *
+     * \param keyStore The keystore.
+     */
+    protected void release(KeyStore keyStore) {
+    }
+
+    /**
+     * \brief Loads the private key of a keystore, opening the keystore unless it is open already.
+     * \param file The keystore file.
+     * \param pin The PIN of the keystore.
+     * \return The private key of the configured alias or the first private key entry.
+     * \throws InvalidKeyFileException If the keystore cannot be opened, the PIN is wrong
+     *         or the keystore has no usable private key.
+     * \throws IllegalStateException If the file is null.
+     */
+    @Override
+    public PrivateKey loadPrivateKey(File file, String pin) throws InvalidKeyFileException {
+        if (file == null) {
+            throw new IllegalStateException("file must not be NULL");
+        }
+
+        long start = System.nanoTime();
+        KeyLoadEvent event = new KeyLoadEvent();
+        event.begin();
+        event.outcome = "error";
+        try {
+            PrivateKey key = session(file, pin).privateKey();
+            event.outcome = "loaded";
+            event.algorithm = key.getAlgorithm();
+            return key;
+        } catch (InvalidKeyFileException e) {
+            event.error = e.toString();
+            throw e;
+        } finally {
+            event.commit(file, "private");
+            LocalKeyLoader.recordMetrics(start, event);
+        }
+    }
+
+    /**
+     * \brief Loads a public key for verification.
+     *
+     * For a keystore opened by loadPrivateKey this is the key of the certificate of the signing entry.
+     * Any other file is read as an X.509 certificate (PEM or DER) or, failing that,
+     * as a public key file of LocalKeyLoader.
+     *
+     * \param file The keystore, certificate or public key file.
+     * \return The loaded PublicKey.
+     * \throws InvalidKeyFileException If the file contains no public key.
+     * \throws IllegalStateException If the file is null.
+     */
+    @Override
+    public PublicKey loadPublicKey(File file) throws InvalidKeyFileException {
+        if (file == null) {
+            throw new IllegalStateException("file must not be NULL");
+        }
+
+        long start = System.nanoTime();
+        KeyLoadEvent event = new KeyLoadEvent();
+        event.begin();
+        event.outcome = "error";
+        try {
+            PublicKey key = openCertificate(file);
+            if (key == null) {
+                key = readCertificate(file);
+            }
+            event.outcome = "loaded";
+            event.algorithm = key.getAlgorithm();
+            return key;
+        } catch (InvalidKeyFileException e) {
+            event.error = e.toString();
+            throw e;
+        } finally {
+            event.commit(file, "public");
+            LocalKeyLoader.recordMetrics(start, event);
+        }
+    }
+
+    /**
+     * \brief Closes all sessions.
+     */
+    @Override
+    public void close() {
+        List<Session> closed;
+        synchronized (sessions) {
+            closed = new ArrayList<>(sessions.values());
+            sessions.clear();
+        }
+        for (Session session : closed) {
+            release(session.keyStore());
+        }
+    }
+
+    /**
+     * \brief Returns the open session of a keystore file, opening it if needed.
+     * \param file The keystore file.
+     * \param pin The PIN of the keystore.
+     * \return The session.
+     * \throws InvalidKeyFileException If the keystore cannot be opened or the PIN doesn't match the session.
+     */
+    private Session session(File file, String pin) throws InvalidKeyFileException {
+        String path;
+        try {
+            path = file.getCanonicalPath();
+        } catch (IOException e) {
+            throw new InvalidKeyFileException(e.getMessage(), e);
+        }
+        long lastModified = file.lastModified();
+        String pinHash = PinDigest.hash(pinSalt, pin);
+
+        // sessions are opened one at a time, a token may not allow two logins of the same user
+        synchronized (sessions) {
+            Session session = sessions.get(path);
+            if (session != null && session.lastModified() == lastModified) {
+                if (!session.pinHash().equals(pinHash)) {
+                    throw new InvalidKeyFileException("Wrong PIN for " + file.getPath());
+                }
+                return session;
+            }
+            if (session != null) {
+                sessions.remove(path);
+                release(session.keyStore());
+            }
+
+            session = openSession(file, pin, lastModified, pinHash);
+            sessions.put(path, session);
+            return session;
+        }
+    }
+
+    /**
+     * \brief Opens a keystore and finds the signing entry in it.
+     * \param file The keystore file.
+     * \param pin The PIN of the keystore.
+     * \param lastModified Modification time of the file.
+     * \param pinHash Salted hash of the PIN.
+     * \return The new session.
+     * \throws InvalidKeyFileException If the keystore cannot be opened or has no usable private key.
+     */
+    private Session openSession(File file, String pin, long lastModified, String pinHash)
+            throws InvalidKeyFileException {
+        char[] password = (pin == null ? "" : pin).toCharArray();
+        KeyStore keyStore = null;
+        try {
+            keyStore = open(file, password);
+            String entry = alias != null ? alias : firstKeyAlias(keyStore);
+            if (entry == null || !keyStore.isKeyEntry(entry)) {
+                throw new InvalidKeyFileException("No private key entry "
+                        + (alias != null ? "'" + alias + "' " : "") + "in " + file.getPath());
+            }
+            Key key = keyStore.getKey(entry, password);
+            if (!(key instanceof PrivateKey privateKey)) {
+                throw new InvalidKeyFileException("Entry '" + entry + "' of " + file.getPath() + " is not a private key");
+            }
+            // reject unsupported keys now rather than when signing
+            SignatureAlgorithm.of(privateKey);
+            return new Session(lastModified, pinHash, keyStore, privateKey, keyStore.getCertificate(entry));
+        } catch (InvalidKeyFileException e) {
+            releaseOpened(keyStore);
+            throw e;
+        } catch (IOException | GeneralSecurityException e) {
+            releaseOpened(keyStore);
+            throw new InvalidKeyFileException(e.getMessage(), e);
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * \brief Releases a keystore whose session couldn't be set up.
+     * \param keyStore The keystore, null if opening it failed.
+     */
+    private void releaseOpened(KeyStore keyStore) {
+        if (keyStore != null) {
+            release(keyStore);
+        }
+    }
+
+    /**
+     * \brief Finds the first private key entry of a keystore.
+     * \param keyStore The keystore.
+     * \return The alias of the entry, or null if there is none.
+     * \throws GeneralSecurityException If the entries cannot be listed.
+     */
+    private static String firstKeyAlias(KeyStore keyStore) throws GeneralSecurityException {
+        // aliases are sorted, so the choice doesn't depend on the order in the keystore
+        List<String> aliases = Collections.list(keyStore.aliases());
+        aliases.sort(null);
+        for (String entry : aliases) {
+            if (keyStore.isKeyEntry(entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * \brief Returns the public key of the certificate of an open session.
+     * \param file The keystore file.
+     * \return The public key, or null if the file has no open session.
+     * \throws InvalidKeyFileException If the signing entry of the session has no certificate.
+     */
+    private PublicKey openCertificate(File file) throws InvalidKeyFileException {
+        Session session;
+        try {
+            synchronized (sessions) {
+                session = sessions.get(file.getCanonicalPath());
+            }
+        } catch (IOException e) {
+            throw new InvalidKeyFileException(e.getMessage(), e);
+        }
+        if (session == null) {
+            return null;
+        }
+        if (session.certificate() == null) {
+            throw new InvalidKeyFileException("The private key entry of " + file.getPath() + " has no certificate");
+        }
+        return session.certificate().getPublicKey();
+    }
+
+    /**
+     * \brief Reads the public key of a certificate file or of a public key file.
+     * \param file The file.
+     * \return The public key.
+     * \throws InvalidKeyFileException If the file cannot be read or contains no public key.
+     */
+    private static PublicKey readCertificate(File file) throws InvalidKeyFileException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return CertificateFactory.getInstance("X.509").generateCertificate(in).getPublicKey();
+        } catch (CertificateException e) {
+            // not a certificate, try the public key format of LocalKeyLoader
+            try {
+                return LocalKeyLoader.parsePublicKey(Files.readString(file.toPath(), defaultCharset()));
+            } catch (IOException ignored) {
+                throw new InvalidKeyFileException(file.getPath() + " is neither a certificate nor a public key file", e);
+            }
+        } catch (IOException e) {
+            throw new InvalidKeyFileException(e.getMessage(), e);
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package service.key_loading;
 
 import exceptions.InvalidKeyFileException;
+import service.crypto.CryptoEngine;
+import service.crypto.SignatureAlgorithm;
+import service.jfr.KeyLoadEvent;
+import service.metrics.Metrics;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -25,6 +29,7 @@ import static java.nio.charset.Charset.defaultCharset;
  * It assumes that the keys are stored in PEM format and are not password-protected,
  * as such the PIN for the private key file is never used.
  * The class provides methods to load private and public keys from specified local PEM files.
+ * RSA, EC and Ed25519 keys are recognised from their encoding.
  */
 public class LocalKeyLoader implements KeyLoader {
 
@@ -39,7 +44,7 @@ public class LocalKeyLoader implements KeyLoader {
      * \throws Exception If the SHA-256 algorithm is not available.
      */
     public static SecretKey deriveKeyFromPin(String pin) throws Exception {
-        MessageDigest sha = MessageDigest.getInstance("SHA-256");
+        MessageDigest sha = CryptoEngine.messageDigest("SHA-256");
         byte[] key = sha.digest(pin.getBytes(StandardCharsets.UTF_8));
 
         return new SecretKeySpec(key, "AES");
@@ -58,7 +63,7 @@ public class LocalKeyLoader implements KeyLoader {
      */
     public static String decryptPrivateKey(String encryptedPrivateKey, String pin) throws Exception {
         SecretKey secretKey = deriveKeyFromPin(pin);
-        Cipher cipher = Cipher.getInstance("AES");
+        Cipher cipher = CryptoEngine.cipher("AES");
         cipher.init(Cipher.DECRYPT_MODE, secretKey);
         byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedPrivateKey));
         return new String(decryptedBytes);
@@ -72,17 +77,41 @@ public class LocalKeyLoader implements KeyLoader {
      * \throws InvalidKeyFileException If an error occurs while loading the private key.
      */
     public PrivateKey loadPrivateKey(File file, String pin) throws InvalidKeyFileException {
+        long start = System.nanoTime();
+        KeyLoadEvent event = new KeyLoadEvent();
+        event.begin();
+        event.outcome = "error";
         try {
             String encryptedKey = Files.readString(file.toPath());
             String decryptedKey = LocalKeyLoader.decryptPrivateKey(encryptedKey, pin);
             byte[] keyBytes = Base64.getDecoder().decode(decryptedKey);
 
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            return keyFactory.generatePrivate(new PKCS8EncodedKeySpec(keyBytes));
+            PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(keyBytes);
+            PrivateKey key = decodeKey(keyFactory -> keyFactory.generatePrivate(keySpec));
+            event.outcome = "loaded";
+            event.algorithm = key.getAlgorithm();
+            return key;
         } catch (InvalidKeySpecException | IOException e) {
+            event.error = e.toString();
             throw new InvalidKeyFileException(e.getMessage());
         } catch (Exception e) {
+            event.error = e.toString();
             throw new RuntimeException(e);
+        } finally {
+            event.commit(file, "private");
+            recordMetrics(start, event);
+        }
+    }
+
+    /**
+     * \brief Records the duration and outcome of loading a key file in the key loading metrics.
+     * \param start The System.nanoTime() value when loading started.
+     * \param event The finished event of the load.
+     */
+    static void recordMetrics(long start, KeyLoadEvent event) {
+        Metrics.KEY_LOAD_LATENCY.recordSince(start);
+        if (!"loaded".equals(event.outcome)) {
+            Metrics.KEY_LOAD_FAILURES.increment();
         }
     }
 
@@ -93,11 +122,39 @@ public class LocalKeyLoader implements KeyLoader {
      * \throws InvalidKeyFileException If an error occurs while loading the public key.
      */
     public PublicKey loadPublicKey(File file) throws InvalidKeyFileException {
+        long start = System.nanoTime();
+        KeyLoadEvent event = new KeyLoadEvent();
+        event.begin();
+        event.outcome = "error";
         try {
-            byte[] keyBytes = LocalKeyLoader.parseKey(file, "PUBLIC");
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            return keyFactory.generatePublic(new X509EncodedKeySpec(keyBytes));
-        } catch (InvalidKeySpecException | IOException e) {
+            PublicKey key = LocalKeyLoader.parsePublicKey(Files.readString(file.toPath(), defaultCharset()));
+            event.outcome = "loaded";
+            event.algorithm = key.getAlgorithm();
+            return key;
+        } catch (IOException e) {
+            event.error = e.toString();
+            throw new InvalidKeyFileException(e.getMessage());
+        } finally {
+            event.commit(file, "public");
+            recordMetrics(start, event);
+        }
+    }
+
+    /**
+     * \brief Parses a public key written as text, in the format of the public key files.
+     * \param text The Base64 encoded X.509 key, optionally between PEM header and footer lines.
+     * \return The parsed PublicKey.
+     * \throws InvalidKeyFileException If the text is not a valid public key.
+     */
+    public static PublicKey parsePublicKey(String text) throws InvalidKeyFileException {
+        try {
+            String keyString = text
+                    .replace("-----BEGIN PUBLIC KEY-----", "")
+                    .replace("-----END PUBLIC KEY-----", "")
+                    .replaceAll("\\s", "");
+            X509EncodedKeySpec keySpec = new X509EncodedKeySpec(Base64.getDecoder().decode(keyString));
+            return decodeKey(keyFactory -> keyFactory.generatePublic(keySpec));
+        } catch (InvalidKeySpecException | IllegalArgumentException e) {
             throw new InvalidKeyFileException(e.getMessage());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
@@ -105,17 +162,37 @@ public class LocalKeyLoader implements KeyLoader {
     }
 
     /**
-     * \brief Parses the key written as text from the specified file.
-     * \param file The file from which the key text are to be parsed.
-     * \param keyType The type of the key (PRIVATE or PUBLIC).
-     * \return The parsed key bytes.
-     * \throws IOException If an error occurs while reading the file.
+     * \brief Decodes a key with the KeyFactory of every supported algorithm until one accepts it.
+     *
+     * The key files don't name the algorithm, it is only given by the identifier inside the encoding.
+     * RSA is tried first, as most keys are RSA keys.
+     *
+     * \param decoder Decodes the key with the given KeyFactory.
+     * \return The decoded key.
+     * \throws InvalidKeySpecException If no supported algorithm accepts the key.
+     * \throws NoSuchAlgorithmException If a KeyFactory is not available (should never happen).
+     */
+    private static <K extends Key> K decodeKey(KeyDecoder<K> decoder)
+            throws InvalidKeySpecException, NoSuchAlgorithmException {
+        InvalidKeySpecException failure = null;
+        for (SignatureAlgorithm algorithm : SignatureAlgorithm.values()) {
+            try {
+                return decoder.decode(CryptoEngine.keyFactory(algorithm.keyAlgorithm()));
+            } catch (InvalidKeySpecException e) {
+                // not a key of this algorithm, report the RSA failure if none matches
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * \brief Decodes a key spec with a KeyFactory.
      */
-    private static byte[] parseKey(File file, String keyType) throws IOException {
-        String keyString = Files.readString(file.toPath(), defaultCharset())
-                .replace("-----BEGIN " + keyType + " KEY-----", "")
-                .replaceAll(System.lineSeparator(), "")
-                .replace("-----END " + keyType + " KEY-----", "");
-        return Base64.getDecoder().decode(keyString);
+    @FunctionalInterface
+    private interface KeyDecoder<K extends Key> {
+        K decode(KeyFactory keyFactory) throws InvalidKeySpecException;
     }
 }
@@ -0,0 +1,48 @@
+package service.key_loading;
+
+import service.crypto.CryptoEngine;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * \class PinDigest
+ * \brief Salted hashes of PINs, so loaders remembering which PIN unlocked a key never keep the PIN itself.
+ */
+final class PinDigest {
+    private static final int SALT_LENGTH = 32;
+
+    private PinDigest() {
+    }
+
+    /**
+     * \brief Generates a random salt, one per loader instance.
+     * \return The salt.
+     */
+    static byte[] newSalt() {
+        byte[] salt = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * \brief Hashes a PIN with a salt.
+     * \param salt The salt of the loader.
+     * \param pin The PIN to be hashed, null is hashed like an empty PIN.
+     * \return Base64 encoded SHA-256 of the salt and the PIN.
+     */
+    static String hash(byte[] salt, String pin) {
+        try {
+            MessageDigest sha = CryptoEngine.messageDigest("SHA-256");
+            sha.update(salt);
+            sha.update((pin == null ? "" : pin).getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available in every JVM
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package service.key_loading;
+
+import javax.security.auth.login.LoginException;
+import java.io.File;
+import java.io.IOException;
+import java.security.AuthProvider;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.Provider;
+import java.security.ProviderException;
+import java.security.Security;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * \class Pkcs11KeyLoader
+ * \brief Implementation of KeyLoader interface for using keys on PKCS#11 tokens (smart cards, HSMs) through SunPKCS11.
+ *
+ * The file given to loadPrivateKey is a SunPKCS11 configuration naming the PKCS#11 library and the slot, e.g.
+ * \code
+ * name = SoftHSM
+ * library = /usr/lib/softhsm/libsofthsm2.so
+ * slotListIndex = 0
+ * \endcode
+ * and the PIN is the user PIN of the token. SunPKCS11 offers only private keys that have a certificate
+ * on the token, keytool -genkeypair -storetype PKCS11 creates both.
+ *
+ * The first call configures a SunPKCS11 provider for the configuration and registers it
+ * in java.security.Security, where it stays until the JVM exits, as a PKCS#11 library
+ * cannot be initialized twice in one process (changes of the configuration take effect after a restart).
+ * Each session logs in once; later calls reuse the login until the loader is closed, which logs out.
+ * The private key never leaves the token, signing with it is done by the token (see CryptoEngine.signature(String, Key)).
+ *
+ * The key can be used by several threads at once: SunPKCS11 runs every signature in a token session of its own,
+ * opening sessions as needed, and all of them share the single login. Tokens that allow only a few sessions
+ * (many smart cards allow one) fail operations beyond that number, so the number of signing threads
+ * has to be limited to what the token allows.
+ */
+public class Pkcs11KeyLoader extends KeyStoreKeyLoader {
+    private static final String PROVIDER_NAME = "SunPKCS11";
+    private static final Map<String, Provider> PROVIDERS = new HashMap<>();  /**< Configured providers by canonical path of their configuration. */
+
+    /**
+     * \brief Constructor for Pkcs11KeyLoader using the first private key on the token.
+     */
+    public Pkcs11KeyLoader() {
+        this(null);
+    }
+
+    /**
+     * \brief Constructor for Pkcs11KeyLoader.
+     * \param alias Label of the key used for signing, or null to use the first private key on the token.
+     */
+    public Pkcs11KeyLoader(String alias) {
+        super(alias);
+    }
+
+    @Override
+    protected KeyStore open(File file, char[] pin) throws IOException, GeneralSecurityException {
+        Provider provider = provider(file);
+        try {
+            KeyStore keyStore = KeyStore.getInstance("PKCS11", provider);
+            keyStore.load(null, pin);
+            return keyStore;
+        } catch (IOException e) {
+            // SunPKCS11 reports a failed login as "load failed"
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof LoginException) {
+                    throw new IOException("Login to the token failed, maybe the PIN is wrong?", e);
+                }
+            }
+            throw e;
+        } catch (ProviderException e) {
+            // e.g. the token was removed
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void release(KeyStore keyStore) {
+        try {
+            if (keyStore.getProvider() instanceof AuthProvider authProvider) {
+                authProvider.logout();
+            }
+        } catch (LoginException e) {
+            // the token was removed, there is no login left to end
+        }
+    }
+
+    /**
+     * \brief Returns the provider of a configuration, configuring and registering it on first use.
+     * \param file The SunPKCS11 configuration.
+     * \return The provider.
+     * \throws IOException If the configuration cannot be read or the PKCS#11 library cannot be loaded.
+     */
+    private static Provider provider(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        synchronized (PROVIDERS) {
+            Provider provider = PROVIDERS.get(path);
+            if (provider != null) {
+                return provider;
+            }
+
+            Provider template = Security.getProvider(PROVIDER_NAME);
+            if (template == null) {
+                throw new IOException(PROVIDER_NAME + " provider is not available in this JVM");
+            }
+            try {
+                provider = template.configure(path);
+            } catch (IllegalArgumentException | ProviderException e) {
+                // a missing or invalid configuration, or a library that cannot be loaded
+                throw new IOException("Cannot configure PKCS#11 token from " + file.getPath() + ": " + e.getMessage(), e);
+            }
+            // the provider has to be registered, the token key is only accepted by Signature objects found through Security
+            if (Security.addProvider(provider) == -1) {
+                throw new IOException("A provider named " + provider.getName()
+                        + " is registered already, give the token another name in " + file.getPath());
+            }
+            PROVIDERS.put(path, provider);
+            return provider;
+        }
+    }
+}
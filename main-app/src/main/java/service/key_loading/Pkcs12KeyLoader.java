@@ -0,0 +1,48 @@
+package service.key_loading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+/**
+ * \class Pkcs12KeyLoader
+ * \brief Implementation of KeyLoader interface for loading keys from PKCS#12 keystores (.p12, .pfx).
+ *
+ * The PIN is the password of the keystore and of its key entry. Such keystores are exported
+ * by most certificate authorities and can be created with keytool, e.g.
+ * \code
+ * keytool -genkeypair -storetype PKCS12 -keystore signer.p12 -alias signer -keyalg RSA -keysize 4096 -dname CN=Signer
+ * \endcode
+ * The keystore is decrypted once and kept in memory until the loader is closed.
+ * The public key for verification is taken from the certificate of the key entry
+ * or from a certificate file exported with keytool -exportcert.
+ */
+public class Pkcs12KeyLoader extends KeyStoreKeyLoader {
+
+    /**
+     * \brief Constructor for Pkcs12KeyLoader using the first private key entry of a keystore.
+     */
+    public Pkcs12KeyLoader() {
+        this(null);
+    }
+
+    /**
+     * \brief Constructor for Pkcs12KeyLoader.
+     * \param alias Alias of the entry used for signing, or null to use the first private key entry.
+     */
+    public Pkcs12KeyLoader(String alias) {
+        super(alias);
+    }
+
+    @Override
+    protected KeyStore open(File file, char[] pin) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            keyStore.load(in, pin);
+        }
+        return keyStore;
+    }
+}
@@ -0,0 +1,44 @@
+package service.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * \class Counter
+ * \brief Monotonic counter that many threads can increment without contending.
+ *
+ * Backed by a LongAdder, so increments only touch a per-thread cell and reading the value sums the cells.
+ */
+public class Counter implements CounterMBean {
+    private final LongAdder adder = new LongAdder();
+
+    /**
+     * \brief Adds one to the counter.
+     */
+    public void increment() {
+        adder.increment();
+    }
+
+    /**
+     * \brief Adds a number to the counter.
+     * \param amount The number to be added, e.g. a number of bytes.
+     * \throws IllegalArgumentException If the amount is negative.
+     */
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("amount must not be negative");
+        }
+        adder.add(amount);
+    }
+
+    /**
+     * \brief Sets the counter back to zero.
+     */
+    public void reset() {
+        adder.reset();
+    }
+
+    @Override
+    public long getCount() {
+        return adder.sum();
+    }
+}
@@ -0,0 +1,13 @@
+package service.metrics;
+
+/**
+ * \class CounterMBean
+ * \brief JMX view of a Counter.
+ */
+public interface CounterMBean {
+    /**
+     * \brief Returns the current value of the counter.
+     * \return The sum of all increments.
+     */
+    long getCount();
+}
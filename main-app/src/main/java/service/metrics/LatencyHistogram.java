@@ -0,0 +1,202 @@
+package service.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * \class LatencyHistogram
+ * \brief Lock-free histogram of durations with a bounded relative error, in the manner of HdrHistogram.
+ *
+ * Durations are counted in log-linear buckets: every power of two is split into 32 equal sub-buckets,
+ * so a reported percentile is at most about 3 % above the real value, whatever the magnitude.
+ * Durations up to 2^40 ns (about 18 minutes) are told apart, longer ones share the last bucket.
+ *
+ * Recording never blocks. The bucket counters are striped over several arrays picked by the thread id,
+ * so threads recording at the same time rarely update the same cache line.
+ * A snapshot taken while others record may miss the latest durations, but is never inconsistent
+ * beyond that.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final int stripeMask;
+    private final AtomicLongArray counts;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * \brief Snapshot of a histogram, all durations in nanoseconds.
+     * \param count Number of recorded durations.
+     * \param mean Mean duration, 0 if nothing was recorded.
+     * \param max Longest recorded duration.
+     * \param p50 Median.
+     * \param p99 99th percentile.
+     * \param p999 99.9th percentile.
+     */
+    public record Snapshot(long count, double mean, long max, long p50, long p99, long p999) {}
+
+    /**
+     * \brief Constructor for LatencyHistogram, with one stripe per processor up to 8.
+     */
+    public LatencyHistogram() {
+        int stripes = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()));
+        this.stripeMask = stripes - 1;
+        this.counts = new AtomicLongArray(stripes * BUCKETS);
+    }
+
+    /**
+     * \brief Records a duration.
+     * \param nanos The duration in nanoseconds, negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int stripe = (int) Thread.currentThread().threadId() & stripeMask;
+        counts.getAndIncrement(stripe * BUCKETS + bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * \brief Records the time elapsed since a System.nanoTime() reading.
+     * \param startNanos The System.nanoTime() value at the start.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * \brief Computes the count, mean, maximum and percentiles of the recorded durations.
+     * \return The snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] merged = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long bucketCount = counts.get(i);
+            merged[i % BUCKETS] += bucketCount;
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, 0);
+        }
+
+        long maxValue = max.get();
+        return new Snapshot(total, (double) sum.sum() / count.sum(), maxValue,
+                percentile(merged, total, 0.50, maxValue),
+                percentile(merged, total, 0.99, maxValue),
+                percentile(merged, total, 0.999, maxValue));
+    }
+
+    /**
+     * \brief Forgets all recorded durations.
+     *
+     * Durations recorded while resetting may be partially kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return toMillis(snapshot().mean());
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return toMillis(max.get());
+    }
+
+    @Override
+    public double getP50Millis() {
+        return toMillis(snapshot().p50());
+    }
+
+    @Override
+    public double getP99Millis() {
+        return toMillis(snapshot().p99());
+    }
+
+    @Override
+    public double getP999Millis() {
+        return toMillis(snapshot().p999());
+    }
+
+    /**
+     * \brief Finds the bucket of a duration.
+     * \param value The duration in nanoseconds, not negative.
+     * \return Index of the bucket.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            // the first buckets are exact
+            return (int) value;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        if (exponent == MAX_EXPONENT && value >= 2L << MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * \brief Returns the highest duration counted in a bucket.
+     * \param index Index of the bucket.
+     * \return The upper bound of the bucket in nanoseconds.
+     */
+    private static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowest + width - 1;
+    }
+
+    /**
+     * \brief Finds the duration below which the given fraction of the recorded durations lie.
+     * \param merged Bucket counts of all stripes.
+     * \param total Sum of the bucket counts.
+     * \param fraction The percentile as a fraction, e.g. 0.99.
+     * \param maxValue The longest recorded duration, the result never exceeds it.
+     * \return The percentile in nanoseconds.
+     */
+    private static long percentile(long[] merged, long total, double fraction, long maxValue) {
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < merged.length; i++) {
+            seen += merged[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * \brief Converts nanoseconds to fractional milliseconds for JMX clients.
+     * \param nanos The duration in nanoseconds.
+     * \return The duration in milliseconds.
+     */
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
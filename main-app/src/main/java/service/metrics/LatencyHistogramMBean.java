@@ -0,0 +1,43 @@
+package service.metrics;
+
+/**
+ * \class LatencyHistogramMBean
+ * \brief JMX view of a LatencyHistogram, durations in milliseconds.
+ */
+public interface LatencyHistogramMBean {
+    /**
+     * \brief Returns the number of recorded durations.
+     * \return The count.
+     */
+    long getCount();
+
+    /**
+     * \brief Returns the mean duration.
+     * \return The mean in milliseconds, 0 if nothing was recorded.
+     */
+    double getMeanMillis();
+
+    /**
+     * \brief Returns the longest recorded duration.
+     * \return The maximum in milliseconds.
+     */
+    double getMaxMillis();
+
+    /**
+     * \brief Returns the median duration.
+     * \return The 50th percentile in milliseconds.
+     */
+    double getP50Millis();
+
+    /**
+     * \brief Returns the 99th percentile of the durations.
+     * \return The 99th percentile in milliseconds.
+     */
+    double getP99Millis();
+
+    /**
+     * \brief Returns the 99.9th percentile of the durations.
+     * \return The 99.9th percentile in milliseconds.
+     */
+    double getP999Millis();
+}
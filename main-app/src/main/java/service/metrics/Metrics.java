@@ -0,0 +1,40 @@
+package service.metrics;
+
+/**
+ * \class Metrics
+ * \brief Process-wide registry and the metrics recorded by the signing, verification and key loading services.
+ *
+ * Recording costs a few uncontended atomic additions, so the services record unconditionally.
+ * Durations are measured from the start of the operation to its end, including reading the document.
+ */
+public final class Metrics {
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final Counter SIGN_DOCUMENTS = REGISTRY.counter("sign.documents");          /**< Documents signed. */
+    public static final Counter SIGN_FAILURES = REGISTRY.counter("sign.failures");            /**< Documents that couldn't be signed, cancellations excluded. */
+    public static final LatencyHistogram SIGN_LATENCY = REGISTRY.histogram("sign.latency");   /**< Duration of signing a document. */
+
+    public static final Counter VERIFY_DOCUMENTS = REGISTRY.counter("verify.documents");      /**< Documents with a valid signature. */
+    public static final Counter VERIFY_INVALID = REGISTRY.counter("verify.invalid");          /**< Documents whose signature didn't match. */
+    public static final Counter VERIFY_FAILURES = REGISTRY.counter("verify.failures");        /**< Documents that couldn't be verified, cancellations excluded. */
+    public static final Counter VERIFY_CACHE_HITS = REGISTRY.counter("verify.cache.hits");    /**< Results taken from the verification cache. */
+    public static final LatencyHistogram VERIFY_LATENCY = REGISTRY.histogram("verify.latency");  /**< Duration of verifying a document. */
+
+    public static final Counter HASH_BYTES = REGISTRY.counter("hash.bytes");                  /**< Bytes hashed while signing and verifying. */
+
+    public static final Counter KEY_CACHE_HITS = REGISTRY.counter("key.cache.hits");          /**< Keys returned by CachingKeyLoader from memory. */
+    public static final Counter KEY_CACHE_MISSES = REGISTRY.counter("key.cache.misses");      /**< Keys CachingKeyLoader had to load. */
+    public static final Counter KEY_LOAD_FAILURES = REGISTRY.counter("key.load.failures");    /**< Key files that couldn't be loaded. */
+    public static final LatencyHistogram KEY_LOAD_LATENCY = REGISTRY.histogram("key.load.latency");  /**< Duration of loading a key file. */
+
+    private Metrics() {
+    }
+
+    /**
+     * \brief Returns the registry holding all metrics of the process.
+     * \return The registry.
+     */
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+}
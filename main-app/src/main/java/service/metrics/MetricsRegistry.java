@@ -0,0 +1,156 @@
+package service.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * \class MetricsRegistry
+ * \brief Named counters and latency histograms, published over JMX and as a text dump.
+ *
+ * Metrics are created on first use and live as long as the registry. Their names are dotted,
+ * e.g. "sign.latency", and become the name key of the MBean ("pades:type=Histogram,name=sign.latency").
+ */
+public class MetricsRegistry {
+    public static final String JMX_DOMAIN = "pades";  /**< Domain of the registered MBeans. */
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * \brief Returns the counter of the given name, creating it if needed.
+     * \param name The name of the counter.
+     * \return The counter.
+     * \throws IllegalStateException If the name is null.
+     */
+    public Counter counter(String name) {
+        if (name == null) {
+            throw new IllegalStateException("name must not be NULL");
+        }
+        return counters.computeIfAbsent(name, ignored -> new Counter());
+    }
+
+    /**
+     * \brief Returns the histogram of the given name, creating it if needed.
+     * \param name The name of the histogram.
+     * \return The histogram.
+     * \throws IllegalStateException If the name is null.
+     */
+    public LatencyHistogram histogram(String name) {
+        if (name == null) {
+            throw new IllegalStateException("name must not be NULL");
+        }
+        return histograms.computeIfAbsent(name, ignored -> new LatencyHistogram());
+    }
+
+    /**
+     * \brief Resets all counters and histograms.
+     */
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * \brief Registers every metric created so far in the platform MBean server.
+     *
+     * Metrics that are already registered are skipped, so the method can be called again
+     * after new metrics were created.
+     *
+     * \throws JMException If an MBean cannot be registered.
+     */
+    public void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            register(server, "Counter", entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            register(server, "Histogram", entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * \brief Formats all metrics, one per line sorted by name.
+     *
+     * Counters are printed as "name count", histograms as
+     * "name count=.. mean=.. p50=.. p99=.. p999=.. max=.." with durations in milliseconds.
+     *
+     * \return The formatted metrics.
+     */
+    public String format() {
+        StringBuilder builder = new StringBuilder();
+        new TreeMap<>(counters).forEach((name, counter) ->
+                builder.append(name).append(' ').append(counter.getCount()).append('\n'));
+        new TreeMap<>(histograms).forEach((name, histogram) -> {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            builder.append(String.format(Locale.ROOT, "%s count=%d mean=%.3fms p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms%n",
+                    name, snapshot.count(), millis(snapshot.mean()), millis(snapshot.p50()),
+                    millis(snapshot.p99()), millis(snapshot.p999()), millis(snapshot.max())));
+        });
+        return builder.toString();
+    }
+
+    /**
+     * \brief Starts printing the formatted metrics periodically on a background thread.
+     * \param interval Time between two dumps.
+     * \param out The stream the metrics are printed to.
+     * \return Handle stopping the dumps when closed.
+     * \throws IllegalStateException If the interval or the stream is null.
+     * \throws IllegalArgumentException If the interval is not positive.
+     */
+    public AutoCloseable startDump(Duration interval, PrintStream out) {
+        if (interval == null || out == null) {
+            throw new IllegalStateException("interval and out must not be NULL");
+        }
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("pades-metrics").daemon().factory());
+        long period = interval.toMillis();
+        scheduler.scheduleAtFixedRate(() -> out.print(format()), period, period, TimeUnit.MILLISECONDS);
+        return scheduler::shutdownNow;
+    }
+
+    /**
+     * \brief Registers a single metric unless an MBean of the same name exists.
+     * \param server The MBean server.
+     * \param type The type key of the object name.
+     * \param name The name of the metric.
+     * \param mbean The metric.
+     * \throws JMException If the MBean cannot be registered.
+     */
+    private static void register(MBeanServer server, String type, String name, Object mbean) throws JMException {
+        ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + name);
+        if (server.isRegistered(objectName)) {
+            return;
+        }
+        try {
+            server.registerMBean(mbean, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            // registered by another thread in the meantime
+        }
+    }
+
+    /**
+     * \brief Converts nanoseconds to milliseconds.
+     * \param nanos The duration in nanoseconds.
+     * \return The duration in milliseconds.
+     */
+    private static double millis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
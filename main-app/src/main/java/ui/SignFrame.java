@@ -1,13 +1,17 @@
 package ui;
 
+import daemon.SigningClient;
 import exceptions.InvalidKeyFileException;
+import exceptions.OperationCancelledException;
 import exceptions.PdfFileOpeningException;
 import exceptions.PdfFileSavingException;
 import exceptions.SigningException;
+import service.key_loading.CachingKeyLoader;
 import service.key_loading.KeyLoader;
-import service.key_loading.LocalKeyLoader;
+import service.key_loading.KeyLocator;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
 import ui.file_loader.PdfFileLoadTester;
+import service.ProgressListener;
 import service.Signer;
 import ui.file_loader.FileLoaderComponent;
 
@@ -16,7 +20,15 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.file.Path;
 import java.security.InvalidKeyException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * \class SignFrame
@@ -28,10 +40,16 @@ public class SignFrame extends JFrame {
     private FileLoaderComponent inputPdfFileLoader;
 //    private FileLoaderComponent keyFileLoader;
     private JButton signButton;
+    private JButton cancelButton;
     private JButton backButton;
+    private JProgressBar progressBar;
     private JTextArea aboutText;
+    private JLabel keyStatusLabel;
     private final KeyLoader keyLoader;
+    private final KeyLocator keyLocator;
+    private final Consumer<List<File>> keyListener = keys -> SwingUtilities.invokeLater(() -> showKeyStatus(keys));
     private String privateKeyPIN;
+    private SwingWorker<Void, Void> signingWorker;
 
     /**
      * \brief Constructor for SignFrame.
@@ -39,13 +57,16 @@ public class SignFrame extends JFrame {
      * Initializes the components and builds the frame.
      */
     public SignFrame() {
-        keyLoader = new LocalKeyLoader();
+        keyLoader = CachingKeyLoader.shared();
+        keyLocator = KeyLocator.shared();
         privateKeyPIN = "";
 
         initializeComponents();
         buildFrame();
+        showKeyStatus(keyLocator.privateKeys());
+        keyLocator.addListener(keyListener);
         setTitle("Digital Signature Application");
-        setSize(500, 200);
+        setSize(500, 230);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
     }
@@ -66,39 +87,20 @@ public class SignFrame extends JFrame {
         fileLoadersPanel.setLayout(new GridLayout(2, 1));
         fileLoadersPanel.add(inputPdfFileLoader);
 //        fileLoadersPanel.add(keyFileLoader);
+        fileLoadersPanel.add(keyStatusLabel);
         add(fileLoadersPanel, BorderLayout.NORTH);
 
         JPanel buttonPanel = new JPanel();
         buttonPanel.setLayout(new FlowLayout(FlowLayout.CENTER));
         buttonPanel.add(signButton);
+        buttonPanel.add(cancelButton);
         buttonPanel.add(backButton);
-        add(buttonPanel, BorderLayout.SOUTH);
-    }
-
-    /**
-     * \brief Searches for the private key file on connected USB drives.
-     *
-     * Iterates through all mounted volumes in the "/Volumes" directory (macOS-specific)
-     * and checks each volume for a file named "private_key.txt". If found, returns
-     * the file object pointing to it.
-     *
-     * \return File object representing the located private key.
-     * \throws FileNotFoundException if no "private_key.txt" is found on any mounted volume.
-     */
-    private File findPrivateKeyOnUsb() throws FileNotFoundException {
-        File volumesDir = new File("/Volumes");
-        File[] mountedVolumes = volumesDir.listFiles();
-
-        if (mountedVolumes != null) {
-            for (File volume : mountedVolumes) {
-                File keyFile = new File(volume, "private_key.txt");
-                if (keyFile.exists() && keyFile.isFile()) {
-                    return keyFile;
-                }
-            }
-        }
 
-        throw new FileNotFoundException("private_key.txt not found on any USB drive.");
+        JPanel southPanel = new JPanel();
+        southPanel.setLayout(new BorderLayout());
+        southPanel.add(progressBar, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        add(southPanel, BorderLayout.SOUTH);
     }
 
     /**
@@ -154,12 +156,20 @@ public class SignFrame extends JFrame {
             if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
                 reportError("You need to choose a file to save the signed PDF");
             } else {
-                if (sign(fileChooser.getSelectedFile())) {
-                    JOptionPane.showMessageDialog(this, "PDF signed successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
-                }
-                // else an error occurred and message was already shown
+                sign(fileChooser.getSelectedFile());
+                // the result is reported when the background job finishes
             }
         });
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            if (signingWorker != null) {
+                signingWorker.cancel(true);
+            }
+        });
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
         backButton = new JButton("Back");
         backButton.addActionListener(e -> {
             MainFrame mainFrame = new MainFrame();
@@ -168,50 +178,232 @@ public class SignFrame extends JFrame {
         });
         aboutText = new JTextArea("This application allows you to sign a PDF document using a private key.");
         aboutText.setEditable(false);
+        keyStatusLabel = new JLabel();
+        keyStatusLabel.setHorizontalAlignment(SwingConstants.CENTER);
+    }
+
+    /**
+     * \brief Shows whether a private key was found on a USB drive.
+     *
+     * Called when the frame is built and whenever a drive is mounted or unmounted.
+     *
+     * \param keys The private key files on the mounted drives.
+     */
+    private void showKeyStatus(List<File> keys) {
+        keyStatusLabel.setText(keys.isEmpty()
+                ? "Insert the USB drive with " + KeyLocator.PRIVATE_KEY_FILE_NAME
+                : "Private key: " + keys.getFirst().getPath());
+    }
+
+    /**
+     * \brief Stops following the USB drives when the frame is closed.
+     */
+    @Override
+    public void dispose() {
+        keyLocator.removeListener(keyListener);
+        super.dispose();
     }
 
     /**
      * \brief Signs the loaded PDF file and saves it to the specified output file.
+     *
+     * When a signing daemon accepts the connection, the document is signed by it instead, see signWithDaemon.
+     * Otherwise the PIN is asked for on the event dispatch thread, then loading the key, signing and saving
+     * run in a background worker, so the window stays responsive. The progress bar follows the bytes
+     * hashed and written, and the Cancel button aborts the job.
      * Any errors during the signing process are reported to the user using the reportError method.
      * \param outputFile The file to save the signed PDF.
-     * \return true if the signing is successful, false otherwise.
      */
-    private boolean sign(File outputFile) {
+    private void sign(File outputFile) {
+        SigningClient daemonClient;
+        try {
+            daemonClient = connectToDaemon();
+        } catch (IOException e) {
+            reportError("Couldn't connect to the signing daemon\n" + e.getMessage());
+            return;
+        }
+        if (daemonClient != null) {
+            signWithDaemon(daemonClient, outputFile);
+            return;
+        }
+
+        // answered from the index of mounted drives, no need to ask for the PIN without a key
+        Optional<File> keyFile = keyLocator.findPrivateKey();
+        if (keyFile.isEmpty()) {
+            reportError(KeyLocator.PRIVATE_KEY_FILE_NAME + " not found on any USB drive.");
+            return;
+        }
+
+        String pin = promptForPin();
+        if (pin == null || pin.isEmpty()) {
+            reportError("PIN is required to sign the document.");
+            return;
+        }
+        privateKeyPIN = pin;
+        File inputFile = inputPdfFileLoader.getFile();
+        File privateKeyFile = keyFile.get();
+
+        signingWorker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                // create and configure the signature
+                PDSignature signature = new PDSignature();
+                signature.setName("SIG TEST");
+                signature.setFilter(PDSignature.FILTER_ADOBE_PPKLITE);
+                signature.setSubFilter(PDSignature.SUBFILTER_ADBE_PKCS7_DETACHED);
+
+                // sign the file
+                Signer.sign(inputFile,
+                        keyLoader.loadPrivateKey(privateKeyFile, privateKeyPIN),
+                        signature,
+                        outputFile,
+                        new ProgressListener() {
+                            @Override
+                            public void onProgress(long processed, long total) {
+                                setProgress(total == 0 ? 0 : (int) (processed * 100 / total));
+                            }
+
+                            @Override
+                            public boolean isCancelled() {
+                                return signingWorker.isCancelled();
+                            }
+                        });
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                setRunning(false);
+                try {
+                    get();
+                    JOptionPane.showMessageDialog(SignFrame.this, "PDF signed successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
+                } catch (CancellationException e) {
+                    progressBar.setString("Cancelled");
+                } catch (ExecutionException e) {
+                    reportSigningError(e.getCause(), inputFile);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        signingWorker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                progressBar.setValue((Integer) event.getNewValue());
+                progressBar.setString(event.getNewValue() + "%");
+            }
+        });
+
+        setRunning(true);
+        signingWorker.execute();
+    }
+
+    /**
+     * \brief Connects to the signing daemon if one is running.
+     *
+     * The socket file outlives a daemon that crashed, such a file refuses the connection
+     * and the document is signed with the local key instead.
+     *
+     * \return The connected client, or null if no daemon is listening.
+     * \throws IOException If the socket accepts no connection for another reason.
+     */
+    private static SigningClient connectToDaemon() throws IOException {
+        Path socket = SigningClient.defaultSocket();
+        if (!SigningClient.isAvailable(socket)) {
+            return null;
+        }
         try {
-            String pin = promptForPin();
-            if (pin == null || pin.isEmpty()) {
-                reportError("PIN is required to sign the document.");
+            return new SigningClient(socket);
+        } catch (ConnectException e) {
+            return null;
+        }
+    }
+
+    /**
+     * \brief Signs the loaded PDF file through the running signing daemon.
+     *
+     * The daemon already holds the unlocked key, so neither the key file nor the PIN is needed.
+     * The progress of the daemon is not reported, the progress bar only shows that the job is running.
+     * \param client The client connected to the daemon, closed when the job ends.
+     * \param outputFile The file to save the signed PDF.
+     */
+    private void signWithDaemon(SigningClient client, File outputFile) {
+        File inputFile = inputPdfFileLoader.getFile();
+
+        signingWorker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                // cancelling interrupts this thread, which closes the connection
+                try (client) {
+                    client.sign(inputFile, outputFile);
+                }
+                return null;
             }
-            privateKeyPIN = pin;
-
-            // create and configure the signature
-            PDSignature signature = new PDSignature();
-            signature.setName("SIG TEST");
-            signature.setFilter(PDSignature.FILTER_ADOBE_PPKLITE);
-            signature.setSubFilter(PDSignature.SUBFILTER_ADBE_PKCS7_DETACHED);
-
-            // sign the file
-            Signer.sign(inputPdfFileLoader.getFile(),
-                    keyLoader.loadPrivateKey(findPrivateKeyOnUsb(), privateKeyPIN),
-                    signature,
-                    outputFile);
-
-            return true;
-        } catch (PdfFileOpeningException e) {
+
+            @Override
+            protected void done() {
+                setRunning(false);
+                progressBar.setIndeterminate(false);
+                try {
+                    get();
+                    progressBar.setValue(100);
+                    progressBar.setString("100%");
+                    JOptionPane.showMessageDialog(SignFrame.this, "PDF signed successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
+                } catch (CancellationException e) {
+                    progressBar.setString("Cancelled");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        reportError("Couldn't sign through the signing daemon\n" + e.getCause().getMessage());
+                    } else {
+                        reportSigningError(e.getCause(), inputFile);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        setRunning(true);
+        progressBar.setIndeterminate(true);
+        progressBar.setString("Signing via daemon");
+        signingWorker.execute();
+    }
+
+    /**
+     * \brief Switches the controls between the idle and the signing state.
+     * \param running true when a signing job has just started, false when it has finished.
+     */
+    private void setRunning(boolean running) {
+        signButton.setEnabled(!running);
+        backButton.setEnabled(!running);
+        cancelButton.setEnabled(running);
+        if (running) {
+            progressBar.setValue(0);
+            progressBar.setString("0%");
+        }
+    }
+
+    /**
+     * \brief Reports an error thrown by the signing job to the user.
+     * \param error The exception thrown by the background job.
+     * \param inputFile The PDF file that was being signed.
+     */
+    private void reportSigningError(Throwable error, File inputFile) {
+        if (error instanceof OperationCancelledException) {
+            progressBar.setString("Cancelled");
+        } else if (error instanceof PdfFileOpeningException) {
             inputPdfFileLoader.invalidateFile();
-            reportError("Couldn't open provided PDF file: " + inputPdfFileLoader.getFile().getName() + "\n" + e.getMessage());
-        } catch (InvalidKeyException e) {
-            reportError("The provided key is invalid. Maybe the format is incorrect?\n" + e.getMessage());
-        } catch (FileNotFoundException e) {
-            reportError("The output file could not be created\n" + e.getMessage());
-        } catch (SigningException e) {
-            reportError("An error occurred while signing the document\n" + e.getMessage());
-        } catch (PdfFileSavingException e) {
-            reportError("Couldn't save the signed document\n" + e.getMessage());
-        } catch (Exception e) {
-            reportError("An unexpected error occurred\n" + e.getMessage());
+            reportError("Couldn't open provided PDF file: " + inputFile.getName() + "\n" + error.getMessage());
+        } else if (error instanceof InvalidKeyException) {
+            reportError("The provided key is invalid. Maybe the format is incorrect?\n" + error.getMessage());
+        } else if (error instanceof FileNotFoundException) {
+            reportError("The output file could not be created\n" + error.getMessage());
+        } else if (error instanceof SigningException) {
+            reportError("An error occurred while signing the document\n" + error.getMessage());
+        } else if (error instanceof PdfFileSavingException) {
+            reportError("Couldn't save the signed document\n" + error.getMessage());
+        } else {
+            reportError("An unexpected error occurred\n" + error.getMessage());
         }
-        return false;
     }
 
     /**
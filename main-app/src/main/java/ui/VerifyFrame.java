@@ -4,16 +4,21 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import exceptions.InvalidKeyFileException;
+import exceptions.OperationCancelledException;
 import exceptions.PdfFileOpeningException;
 import exceptions.SignatureVerificationException;
+import service.key_loading.CachingKeyLoader;
 import service.key_loading.KeyLoader;
-import service.key_loading.LocalKeyLoader;
 import ui.file_loader.PdfFileLoadTester;
+import service.ProgressListener;
 import service.Verifier;
 import ui.file_loader.FileLoaderComponent;
 
 import java.awt.*;
+import java.io.File;
 import java.security.InvalidKeyException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * \class VerifyFrame
@@ -25,9 +30,12 @@ public class VerifyFrame extends JFrame {
     private FileLoaderComponent pdfLoader;
     private FileLoaderComponent keyFileLoader;
     private JButton verifyButton;
+    private JButton cancelButton;
     private JButton backButton;
+    private JProgressBar progressBar;
     private JTextArea aboutText;
     private final KeyLoader keyLoader;
+    private SwingWorker<Boolean, Void> verificationWorker;
 
     /**
      * \brief Constructor for VerifyFrame.
@@ -35,13 +43,13 @@ public class VerifyFrame extends JFrame {
      * Initializes the components and builds the frame.
      */
     public VerifyFrame() {
-        keyLoader = new LocalKeyLoader();
+        keyLoader = CachingKeyLoader.shared();
 
         // Build the frame
         initializeComponents();
         setupComponents();
         setTitle("Digital Signature Application");
-        setSize(500, 200);
+        setSize(500, 230);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
     }
@@ -67,8 +75,14 @@ public class VerifyFrame extends JFrame {
         JPanel buttonPanel = new JPanel();
         buttonPanel.setLayout(new FlowLayout(FlowLayout.CENTER));
         buttonPanel.add(verifyButton);
+        buttonPanel.add(cancelButton);
         buttonPanel.add(backButton);
-        add(buttonPanel, BorderLayout.SOUTH);
+
+        JPanel southPanel = new JPanel();
+        southPanel.setLayout(new BorderLayout());
+        southPanel.add(progressBar, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        add(southPanel, BorderLayout.SOUTH);
     }
 
     /**
@@ -97,15 +111,19 @@ public class VerifyFrame extends JFrame {
                 return;
             }
 
-            int result = verifyDocument();
-            if (result == 1) {
-                // 1 means the signature is valid
-                JOptionPane.showMessageDialog(this, "The signature is valid", "Success", JOptionPane.INFORMATION_MESSAGE);
-            } else if (result == 0) {
-                // 0 means the signature is invalid
-                JOptionPane.showMessageDialog(this, "The signature is invalid", "Failure", JOptionPane.ERROR_MESSAGE);
-            }  // -1 means an error occurred, and the error message has already been shown
+            verifyDocument();
+            // the result is reported when the background job finishes
+        });
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            if (verificationWorker != null) {
+                verificationWorker.cancel(true);
+            }
         });
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
         backButton = new JButton("Back");
         backButton.addActionListener(e -> {
             MainFrame mainFrame = new MainFrame();
@@ -118,34 +136,97 @@ public class VerifyFrame extends JFrame {
 
     /**
      * \brief Verifies the signature of the loaded PDF file.
-     * Any errors encountered during the verification process are reported to the user.
-     * \return 1 if the signature is valid, 0 if the signature is invalid, -1 if an error occurred.
+     *
+     * Loading the key and verifying run in a background worker, so the window stays responsive.
+     * The progress bar follows the bytes hashed and the Cancel button aborts the job.
+     * The result, or any error encountered during the verification process, is reported to the user when the job finishes.
      */
-    private int verifyDocument() {
-        try {
-            if (Verifier.verify(pdfLoader.getFile(),
-                                keyLoader.loadPublicKey(keyFileLoader.getFile()))) {
-                return 1;
-            } else {
-                return 0;
+    private void verifyDocument() {
+        File pdfFile = pdfLoader.getFile();
+        File keyFile = keyFileLoader.getFile();
+
+        verificationWorker = new SwingWorker<>() {
+            @Override
+            protected Boolean doInBackground() throws Exception {
+                return Verifier.verify(pdfFile,
+                        keyLoader.loadPublicKey(keyFile),
+                        new ProgressListener() {
+                            @Override
+                            public void onProgress(long processed, long total) {
+                                setProgress(total == 0 ? 0 : (int) (processed * 100 / total));
+                            }
+
+                            @Override
+                            public boolean isCancelled() {
+                                return verificationWorker.isCancelled();
+                            }
+                        });
             }
-        } catch (InvalidKeyFileException e) {
+
+            @Override
+            protected void done() {
+                setRunning(false);
+                try {
+                    if (get()) {
+                        JOptionPane.showMessageDialog(VerifyFrame.this, "The signature is valid", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(VerifyFrame.this, "The signature is invalid", "Failure", JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (CancellationException e) {
+                    progressBar.setString("Cancelled");
+                } catch (ExecutionException e) {
+                    reportVerificationError(e.getCause(), pdfFile, keyFile);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        verificationWorker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                progressBar.setValue((Integer) event.getNewValue());
+                progressBar.setString(event.getNewValue() + "%");
+            }
+        });
+
+        setRunning(true);
+        verificationWorker.execute();
+    }
+
+    /**
+     * \brief Switches the controls between the idle and the verifying state.
+     * \param running true when a verification job has just started, false when it has finished.
+     */
+    private void setRunning(boolean running) {
+        verifyButton.setEnabled(!running);
+        backButton.setEnabled(!running);
+        cancelButton.setEnabled(running);
+        if (running) {
+            progressBar.setValue(0);
+            progressBar.setString("0%");
+        }
+    }
+
+    /**
+     * \brief Reports an error thrown by the verification job to the user.
+     * \param error The exception thrown by the background job.
+     * \param pdfFile The verified PDF file.
+     * \param keyFile The public key file used for verification.
+     */
+    private void reportVerificationError(Throwable error, File pdfFile, File keyFile) {
+        if (error instanceof OperationCancelledException) {
+            progressBar.setString("Cancelled");
+        } else if (error instanceof InvalidKeyFileException) {
             keyFileLoader.invalidateFile();
-            reportError("Couldn't read the public key from provided file: " + keyFileLoader.getFile().getName() + "\n" + e.getMessage());
-            return -1;
-        } catch (PdfFileOpeningException e) {
+            reportError("Couldn't read the public key from provided file: " + keyFile.getName() + "\n" + error.getMessage());
+        } else if (error instanceof PdfFileOpeningException) {
             pdfLoader.invalidateFile();
-            reportError("Couldn't open provided PDF file: " + pdfLoader.getFile().getName() + "\n" + e.getMessage());
-            return -1;
-        } catch (InvalidKeyException e) {
-            reportError("The provided key is invalid. Maybe the format is incorrect?\n" + e.getMessage());
-            return -1;
-        } catch (SignatureVerificationException e) {
-            reportError("Couldn't verify the provided PDF file with the provided key\n" + e.getMessage());
-            return -1;
-        } catch (Exception e) {
-            reportError("An unexpected error occurred\n" + e.getMessage());
-            return -1;
+            reportError("Couldn't open provided PDF file: " + pdfFile.getName() + "\n" + error.getMessage());
+        } else if (error instanceof InvalidKeyException) {
+            reportError("The provided key is invalid. Maybe the format is incorrect?\n" + error.getMessage());
+        } else if (error instanceof SignatureVerificationException) {
+            reportError("Couldn't verify the provided PDF file with the provided key\n" + error.getMessage());
+        } else {
+            reportError("An unexpected error occurred\n" + error.getMessage());
         }
     }
 
@@ -2,6 +2,7 @@ package ui.file_loader;
 
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import service.PdfLoaderWrapper;
 
 import java.io.File;
 import java.io.IOException;
@@ -11,6 +12,8 @@ import java.io.IOException;
  * \brief Class for testing the loading of PDF files.
  *
  * This class implements the FileLoadTester interface to provide a method for testing if a PDF file can be loaded successfully.
+ * Well-formed files are only probed (header and cross-reference position), so the document is fully parsed
+ * once, when it is signed or verified. Files failing the probe are given a full parse, as PDFBox can repair many of them.
  */
 public class PdfFileLoadTester implements FileLoadTester {
     /**
@@ -24,6 +27,9 @@ public class PdfFileLoadTester implements FileLoadTester {
         if (!file.getName().endsWith(".pdf")) {
             return false;
         }
+        if (PdfLoaderWrapper.probePDF(file)) {
+            return true;
+        }
 
         try (PDDocument doc = Loader.loadPDF(file)) {
             doc.close();
@@ -0,0 +1,94 @@
+package service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import service.batch.SigningJob;
+import service.batch.SigningResult;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * \class PdfMemorySettingConcurrencyTest
+ * \brief Checks that every PdfMemorySetting mode signs several large documents at once within the test heap.
+ *
+ * The documents are signed by Signer.signAll with the setting as the default of PdfLoaderWrapper,
+ * like the batch commands and daemons do it. The heap is limited to test.heap of the POM.
+ */
+class PdfMemorySettingConcurrencyTest {
+    private static final int THREADS = 4;
+    private static final long MIXED_MAX_MAIN_MEMORY = 4L * 1024 * 1024;
+
+    @TempDir
+    static Path inputDirectory;
+
+    private static File input;
+
+    @TempDir
+    Path outputDirectory;
+
+    private PdfMemorySetting previousSetting;
+
+    @BeforeAll
+    static void createInput() throws Exception {
+        input = TestDocuments.createLargePdf(inputDirectory.resolve("large.pdf").toFile(),
+                TestDocuments.LARGE_CONTENT_SIZE);
+    }
+
+    @BeforeEach
+    void rememberDefault() {
+        previousSetting = PdfLoaderWrapper.getDefaultMemorySetting();
+    }
+
+    @AfterEach
+    void restoreDefault() {
+        PdfLoaderWrapper.setDefaultMemorySetting(previousSetting);
+    }
+
+    @Test
+    void signsConcurrentlyInMainMemory() throws Exception {
+        signConcurrently(PdfMemorySetting.mainMemoryOnly());
+    }
+
+    @Test
+    void signsConcurrentlyInMixedMode() throws Exception {
+        signConcurrently(PdfMemorySetting.mixed(MIXED_MAX_MAIN_MEMORY));
+    }
+
+    @Test
+    void signsConcurrentlyInTempFiles() throws Exception {
+        signConcurrently(PdfMemorySetting.tempFileOnly());
+    }
+
+    /**
+     * \brief Signs THREADS copies of the large document at once and verifies all of them.
+     * \param memorySetting The setting used for loading the documents.
+     * \throws Exception If the key cannot be generated or a signature cannot be verified.
+     */
+    private void signConcurrently(PdfMemorySetting memorySetting) throws Exception {
+        assertTrue(THREADS * input.length() > 2 * Runtime.getRuntime().maxMemory(),
+                "The documents have to be larger than the heap");
+        PdfLoaderWrapper.setDefaultMemorySetting(memorySetting);
+        KeyPair keyPair = TestDocuments.keyPair();
+
+        List<SigningJob> jobs = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            jobs.add(new SigningJob(input, outputDirectory.resolve("signed-" + i + ".pdf").toFile()));
+        }
+        List<SigningResult> results = Signer.signAll(jobs, keyPair.getPrivate(), TestDocuments::createSignature, THREADS);
+
+        for (SigningResult result : results) {
+            assertNull(result.error(), () -> memorySetting + " failed on " + result.job().outputDoc() + ": " + result.error());
+            assertTrue(Verifier.verify(result.job().outputDoc(), keyPair.getPublic()));
+        }
+    }
+}
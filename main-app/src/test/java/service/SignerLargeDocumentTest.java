@@ -0,0 +1,58 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import service.crypto.CryptoEngine;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * \class SignerLargeDocumentTest
+ * \brief Checks that documents several times larger than the heap are signed and verified.
+ *
+ * The tests run with the heap limited to test.heap of the POM. Reading the signed content
+ * of the document into a byte array anywhere on the way ends in an OutOfMemoryError.
+ * Ed25519 keeps the whole signed content in memory (see SignatureAlgorithm), its test document fits the heap.
+ */
+class SignerLargeDocumentTest {
+    private static final long ED25519_CONTENT_SIZE = 8L * 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void signsDocumentLargerThanHeap() throws Exception {
+        File input = TestDocuments.createLargePdf(directory.resolve("large.pdf").toFile(),
+                TestDocuments.LARGE_CONTENT_SIZE);
+        assertTrue(input.length() > 2 * Runtime.getRuntime().maxMemory(),
+                "The document has to be larger than the heap, got " + input.length() + " bytes for a heap of "
+                        + Runtime.getRuntime().maxMemory());
+        KeyPair keyPair = TestDocuments.keyPair();
+        File output = directory.resolve("large-signed.pdf").toFile();
+
+        Signer.sign(input, keyPair.getPrivate(), TestDocuments.createSignature(), output);
+
+        assertTrue(output.length() > input.length());
+        assertTrue(Verifier.verify(output, keyPair.getPublic()));
+    }
+
+    @Test
+    void signsEd25519DocumentThatFitsTheHeap() throws Exception {
+        File input = TestDocuments.createLargePdf(directory.resolve("ed25519.pdf").toFile(), ED25519_CONTENT_SIZE);
+        KeyPair keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+
+        for (int i = 0; i < 3; i++) {
+            File output = directory.resolve("ed25519-signed-" + i + ".pdf").toFile();
+            Signer.sign(input, keyPair.getPrivate(), TestDocuments.createSignature(), output);
+            assertTrue(Verifier.verify(output, keyPair.getPublic()));
+        }
+        // the Signature holds the last document in its buffer, a worker thread must not keep it
+        assertNotSame(CryptoEngine.signature("Ed25519"), CryptoEngine.signature("Ed25519"));
+    }
+}
@@ -0,0 +1,132 @@
+package service;
+
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+
+/**
+ * \class TestDocuments
+ * \brief Generates the documents and keys used by the tests.
+ *
+ * Large documents are written directly to the file instead of through PDFBox,
+ * so generating them doesn't need more heap than the code under test is allowed.
+ */
+final class TestDocuments {
+    static final long LARGE_CONTENT_SIZE = 300L * 1024 * 1024;  /**< Content size of the large test documents, well above the test heap. */
+
+    private static KeyPair sharedKeyPair;
+
+    private TestDocuments() {
+    }
+
+    /**
+     * \brief Returns a 2048-bit RSA key pair shared by all tests of the JVM.
+     * \return The key pair.
+     * \throws GeneralSecurityException If the key cannot be generated.
+     */
+    static synchronized KeyPair keyPair() throws GeneralSecurityException {
+        if (sharedKeyPair == null) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            sharedKeyPair = generator.generateKeyPair();
+        }
+        return sharedKeyPair;
+    }
+
+    /**
+     * \brief Creates a signature configured like the one added by the application.
+     * \return The configured signature.
+     */
+    static PDSignature createSignature() {
+        PDSignature signature = new PDSignature();
+        signature.setName("SIG TEST");
+        signature.setFilter(PDSignature.FILTER_ADOBE_PPKLITE);
+        signature.setSubFilter(PDSignature.SUBFILTER_ADBE_PKCS7_DETACHED);
+        return signature;
+    }
+
+    /**
+     * \brief Writes a single-page PDF whose page content is one uncompressed stream of blanks.
+     * \param file The file the document is written to.
+     * \param contentBytes Length of the content stream in bytes.
+     * \return The written file.
+     * \throws IOException If the file cannot be written.
+     */
+    static File createLargePdf(File file, long contentBytes) throws IOException {
+        String[] objects = {
+                "<< /Type /Catalog /Pages 2 0 R >>",
+                "<< /Type /Pages /Kids [3 0 R] /Count 1 >>",
+                "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Contents 4 0 R >>"
+        };
+        long[] offsets = new long[objects.length + 2];
+        byte[] blanks = new byte[64 * 1024];
+        Arrays.fill(blanks, (byte) ' ');
+
+        try (CountingOutputStream out = new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            out.writeAscii("%PDF-1.7\n");
+            for (int i = 0; i < objects.length; i++) {
+                offsets[i + 1] = out.count;
+                out.writeAscii((i + 1) + " 0 obj\n" + objects[i] + "\nendobj\n");
+            }
+            offsets[objects.length + 1] = out.count;
+            out.writeAscii((objects.length + 1) + " 0 obj\n<< /Length " + contentBytes + " >>\nstream\n");
+            for (long written = 0; written < contentBytes; written += blanks.length) {
+                out.write(blanks, 0, (int) Math.min(blanks.length, contentBytes - written));
+            }
+            out.writeAscii("\nendstream\nendobj\n");
+
+            long xref = out.count;
+            StringBuilder trailer = new StringBuilder("xref\n0 " + offsets.length + "\n0000000000 65535 f \n");
+            for (int i = 1; i < offsets.length; i++) {
+                trailer.append(String.format("%010d 00000 n \n", offsets[i]));
+            }
+            trailer.append("trailer\n<< /Size ").append(offsets.length).append(" /Root 1 0 R >>\n")
+                    .append("startxref\n").append(xref).append("\n%%EOF\n");
+            out.writeAscii(trailer.toString());
+        }
+        return file;
+    }
+
+    /**
+     * \brief Output stream counting the bytes written, for the offsets of the cross-reference table.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeAscii(String text) throws IOException {
+            write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
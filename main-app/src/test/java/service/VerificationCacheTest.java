@@ -0,0 +1,209 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.PublicKey;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * \class VerificationCacheTest
+ * \brief Checks that VerificationCache persists, evicts and compacts its entries.
+ */
+class VerificationCacheTest {
+    private static final int HEADER_LENGTH = 4;
+    private static final int RECORD_LENGTH = 32 + 1 + Long.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void remembersResultsAcrossReopening() throws Exception {
+        File file = directory.resolve("cache.bin").toFile();
+        PublicKey key = TestDocuments.keyPair().getPublic();
+
+        try (VerificationCache cache = new VerificationCache(file)) {
+            assertNull(cache.lookup(digest(1), signature(1), key));
+            cache.record(digest(1), signature(1), key, true);
+            cache.record(digest(2), signature(2), key, false);
+
+            assertTrue(cache.lookup(digest(1), signature(1), key).valid());
+            assertFalse(cache.lookup(digest(2), signature(2), key).valid());
+            // another signature of the same content is a different entry
+            assertNull(cache.lookup(digest(1), signature(2), key));
+        }
+
+        try (VerificationCache cache = new VerificationCache(file)) {
+            assertEquals(2, cache.size());
+            assertTrue(cache.lookup(digest(1), signature(1), key).valid());
+            assertFalse(cache.lookup(digest(2), signature(2), key).valid());
+
+            // a later result replaces the earlier one, also after reopening
+            cache.record(digest(1), signature(1), key, false);
+        }
+
+        try (VerificationCache cache = new VerificationCache(file)) {
+            assertEquals(2, cache.size());
+            assertFalse(cache.lookup(digest(1), signature(1), key).valid());
+        }
+    }
+
+    @Test
+    void rejectsForeignFile() throws Exception {
+        File file = directory.resolve("foreign.bin").toFile();
+        Files.writeString(file.toPath(), "not a cache");
+
+        assertThrows(IOException.class, () -> new VerificationCache(file));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws Exception {
+        File file = directory.resolve("cache.bin").toFile();
+        PublicKey key = TestDocuments.keyPair().getPublic();
+
+        try (VerificationCache cache = new VerificationCache(file, 2)) {
+            cache.record(digest(1), signature(1), key, true);
+            cache.record(digest(2), signature(2), key, true);
+            // entry 1 is used, so entry 2 is the least recently used one
+            assertNotNull(cache.lookup(digest(1), signature(1), key));
+            cache.record(digest(3), signature(3), key, true);
+
+            assertEquals(2, cache.size());
+            assertNotNull(cache.lookup(digest(1), signature(1), key));
+            assertNull(cache.lookup(digest(2), signature(2), key));
+            assertNotNull(cache.lookup(digest(3), signature(3), key));
+        }
+
+        try (VerificationCache cache = new VerificationCache(file, 2)) {
+            assertEquals(2, cache.size());
+            assertNotNull(cache.lookup(digest(3), signature(3), key));
+        }
+    }
+
+    @Test
+    void compactsFileWithLiveEntries() throws Exception {
+        File file = directory.resolve("cache.bin").toFile();
+        PublicKey key = TestDocuments.keyPair().getPublic();
+
+        try (VerificationCache cache = new VerificationCache(file, 2)) {
+            for (int i = 1; i <= 4; i++) {
+                cache.record(digest(i), signature(i), key, true);
+            }
+            assertEquals(HEADER_LENGTH + 4L * RECORD_LENGTH, file.length());
+
+            // the fifth record exceeds twice the maximal size
+            cache.record(digest(5), signature(5), key, false);
+            assertEquals(HEADER_LENGTH + 2L * RECORD_LENGTH, file.length());
+            assertFalse(Files.exists(temporaryFile(file)));
+
+            // records are appended to the compacted file
+            cache.record(digest(6), signature(6), key, true);
+            assertEquals(HEADER_LENGTH + 3L * RECORD_LENGTH, file.length());
+        }
+
+        try (VerificationCache cache = new VerificationCache(file, 2)) {
+            assertEquals(2, cache.size());
+            assertFalse(cache.lookup(digest(5), signature(5), key).valid());
+            assertTrue(cache.lookup(digest(6), signature(6), key).valid());
+            assertNull(cache.lookup(digest(4), signature(4), key));
+        }
+    }
+
+    @Test
+    void keepsWorkingWhenCompactionFails() throws Exception {
+        File file = directory.resolve("cache.bin").toFile();
+        PublicKey key = TestDocuments.keyPair().getPublic();
+
+        try (VerificationCache cache = new VerificationCache(file, 2)) {
+            for (int i = 1; i <= 4; i++) {
+                cache.record(digest(i), signature(i), key, true);
+            }
+
+            // a non-empty directory in place of the file cannot be replaced by the compacted file
+            Files.delete(file.toPath());
+            Files.createDirectories(file.toPath().resolve("blocker"));
+            assertThrows(IOException.class, () -> cache.record(digest(5), signature(5), key, true));
+            assertFalse(Files.exists(temporaryFile(file)));
+
+            // the cache still answers and records
+            assertNotNull(cache.lookup(digest(5), signature(5), key));
+            Files.delete(file.toPath().resolve("blocker"));
+            Files.delete(file.toPath());
+            cache.record(digest(6), signature(6), key, false);
+        }
+
+        try (VerificationCache cache = new VerificationCache(file, 2)) {
+            assertEquals(2, cache.size());
+            assertNotNull(cache.lookup(digest(5), signature(5), key));
+            assertFalse(cache.lookup(digest(6), signature(6), key).valid());
+        }
+    }
+
+    @Test
+    void dropsTruncatedLastRecord() throws Exception {
+        File file = directory.resolve("cache.bin").toFile();
+        PublicKey key = TestDocuments.keyPair().getPublic();
+
+        try (VerificationCache cache = new VerificationCache(file)) {
+            cache.record(digest(1), signature(1), key, true);
+            cache.record(digest(2), signature(2), key, false);
+        }
+        // a crash while a record was written
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[RECORD_LENGTH / 2]));
+        }
+
+        try (VerificationCache cache = new VerificationCache(file)) {
+            assertEquals(2, cache.size());
+            assertEquals(HEADER_LENGTH + 2L * RECORD_LENGTH, file.length());
+            cache.record(digest(3), signature(3), key, true);
+        }
+
+        try (VerificationCache cache = new VerificationCache(file)) {
+            assertEquals(3, cache.size());
+            assertTrue(cache.lookup(digest(1), signature(1), key).valid());
+            assertFalse(cache.lookup(digest(2), signature(2), key).valid());
+            assertTrue(cache.lookup(digest(3), signature(3), key).valid());
+        }
+    }
+
+    /**
+     * \brief Returns a distinct content digest.
+     * \param seed Distinguishes the digests.
+     * \return 32 bytes derived from the seed.
+     */
+    private static byte[] digest(int seed) {
+        return ByteBuffer.allocate(32).putInt(seed).array();
+    }
+
+    /**
+     * \brief Returns distinct signature bytes.
+     * \param seed Distinguishes the signatures.
+     * \return 256 bytes derived from the seed.
+     */
+    private static byte[] signature(int seed) {
+        return ByteBuffer.allocate(256).putInt(0, seed).put(255, (byte) seed).array();
+    }
+
+    /**
+     * \brief Returns the temporary file written during compaction.
+     * \param file The cache file.
+     * \return The path of the temporary file.
+     */
+    private static Path temporaryFile(File file) {
+        return file.toPath().resolveSibling(file.getName() + ".tmp");
+    }
+}
@@ -0,0 +1,97 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * \class VerifierIndirectSignatureTest
+ * \brief Checks that signatures whose Contents and ByteRange are indirect objects are verified.
+ *
+ * PDFBox writes both entries directly into the signature dictionary, other tools don't,
+ * and PDFBox resolves indirect entries only while the document is open.
+ */
+class VerifierIndirectSignatureTest {
+    private static final int CONTENTS_HEX_LENGTH = 1024;
+    private static final String BYTE_RANGE_PLACEHOLDER = "[0000000000 0000000000 0000000000 0000000000]";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void verifiesIndirectContentsAndByteRange() throws Exception {
+        KeyPair keyPair = TestDocuments.keyPair();
+        File document = createIndirectlySignedPdf(directory.resolve("indirect.pdf").toFile(), keyPair);
+
+        List<SignatureVerificationResult> results = Verifier.verifyAll(document, keyPair.getPublic());
+
+        assertEquals(1, results.size());
+        assertNull(results.getFirst().error());
+        assertTrue(results.getFirst().valid());
+        assertTrue(results.getFirst().coversWholeDocument());
+    }
+
+    /**
+     * \brief Writes a PDF signed with SHA256withRSA whose signature dictionary refers to its Contents and ByteRange.
+     * \param file The file the document is written to.
+     * \param keyPair The key pair signing the document.
+     * \return The written file.
+     * \throws Exception If the document cannot be signed or written.
+     */
+    private static File createIndirectlySignedPdf(File file, KeyPair keyPair) throws Exception {
+        String placeholder = "<" + "0".repeat(CONTENTS_HEX_LENGTH) + ">";
+        String[] objects = {
+                "<< /Type /Catalog /Pages 2 0 R /AcroForm << /Fields [4 0 R] /SigFlags 3 >> >>",
+                "<< /Type /Pages /Kids [3 0 R] /Count 1 >>",
+                "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Annots [4 0 R] >>",
+                "<< /FT /Sig /T (Signature1) /V 5 0 R /Type /Annot /Subtype /Widget /Rect [0 0 0 0] /P 3 0 R >>",
+                "<< /Type /Sig /Filter /Adobe.PPKLite /SubFilter /adbe.pkcs7.detached /Name (Indirect)"
+                        + " /ByteRange 6 0 R /Contents 7 0 R >>",
+                BYTE_RANGE_PLACEHOLDER,
+                placeholder
+        };
+        StringBuilder pdf = new StringBuilder("%PDF-1.7\n");
+        long[] offsets = new long[objects.length + 1];
+        for (int i = 0; i < objects.length; i++) {
+            offsets[i + 1] = pdf.length();
+            pdf.append(i + 1).append(" 0 obj\n").append(objects[i]).append("\nendobj\n");
+        }
+        long xref = pdf.length();
+        pdf.append("xref\n0 ").append(offsets.length).append("\n0000000000 65535 f \n");
+        for (int i = 1; i < offsets.length; i++) {
+            pdf.append(String.format("%010d 00000 n \n", offsets[i]));
+        }
+        pdf.append("trailer\n<< /Size ").append(offsets.length).append(" /Root 1 0 R >>\nstartxref\n")
+                .append(xref).append("\n%%EOF\n");
+
+        // the signature covers everything but the hex string of the Contents object
+        int contentsStart = pdf.indexOf(placeholder);
+        int contentsEnd = contentsStart + placeholder.length();
+        int byteRangeStart = pdf.indexOf(BYTE_RANGE_PLACEHOLDER);
+        pdf.replace(byteRangeStart, byteRangeStart + BYTE_RANGE_PLACEHOLDER.length(), String.format(
+                "[%010d %010d %010d %010d]", 0, contentsStart, contentsEnd, pdf.length() - contentsEnd));
+        byte[] bytes = pdf.toString().getBytes(StandardCharsets.US_ASCII);
+
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(bytes, 0, contentsStart);
+        signature.update(bytes, contentsEnd, bytes.length - contentsEnd);
+        byte[] hex = HexFormat.of().formatHex(signature.sign()).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(hex, 0, bytes, contentsStart + 1, hex.length);
+
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+}
@@ -0,0 +1,179 @@
+package service.key_loading;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * \class CachingKeyLoaderTest
+ * \brief Checks when CachingKeyLoader answers from the cache and when it asks the wrapped loader.
+ */
+class CachingKeyLoaderTest {
+    private static final String PIN = "1234";
+    private static final Duration LONG_TTL = Duration.ofMinutes(10);
+
+    private static KeyPair keyPair;
+
+    @TempDir
+    Path directory;
+
+    private CountingKeyLoader delegate;
+    private File keyFile;
+
+    /**
+     * \brief KeyLoader returning the same key pair for every file, counting the loads per file.
+     */
+    private static final class CountingKeyLoader implements KeyLoader {
+        private final Map<String, Integer> loads = new HashMap<>();
+
+        @Override
+        public PrivateKey loadPrivateKey(File file, String pin) {
+            loads.merge(file.getName(), 1, Integer::sum);
+            return keyPair.getPrivate();
+        }
+
+        @Override
+        public PublicKey loadPublicKey(File file) {
+            loads.merge(file.getName(), 1, Integer::sum);
+            return keyPair.getPublic();
+        }
+
+        int loads(File file) {
+            return loads.getOrDefault(file.getName(), 0);
+        }
+    }
+
+    @BeforeAll
+    static void generateKeyPair() throws Exception {
+        keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+    }
+
+    @BeforeEach
+    void createKeyFile() throws Exception {
+        delegate = new CountingKeyLoader();
+        keyFile = createFile("private_key.txt");
+    }
+
+    @Test
+    void answersRepeatedLoadsFromCache() throws Exception {
+        CachingKeyLoader loader = new CachingKeyLoader(delegate, LONG_TTL, 4);
+
+        assertSame(keyPair.getPrivate(), loader.loadPrivateKey(keyFile, PIN));
+        assertSame(keyPair.getPrivate(), loader.loadPrivateKey(keyFile, PIN));
+        assertSame(keyPair.getPublic(), loader.loadPublicKey(keyFile));
+        assertSame(keyPair.getPublic(), loader.loadPublicKey(keyFile));
+
+        // one load for the private and one for the public key of the file
+        assertEquals(2, delegate.loads(keyFile));
+    }
+
+    @Test
+    void loadsAgainAfterTtlExpires() throws Exception {
+        CachingKeyLoader loader = new CachingKeyLoader(delegate, Duration.ofMillis(50), 4);
+
+        loader.loadPrivateKey(keyFile, PIN);
+        loader.loadPrivateKey(keyFile, PIN);
+        assertEquals(1, delegate.loads(keyFile));
+
+        Thread.sleep(100);
+        loader.loadPrivateKey(keyFile, PIN);
+        assertEquals(2, delegate.loads(keyFile));
+    }
+
+    @Test
+    void loadsAgainWhenFileIsModified() throws Exception {
+        CachingKeyLoader loader = new CachingKeyLoader(delegate, LONG_TTL, 4);
+
+        loader.loadPrivateKey(keyFile, PIN);
+        keyFile.setLastModified(keyFile.lastModified() + 10_000);
+        loader.loadPrivateKey(keyFile, PIN);
+
+        assertEquals(2, delegate.loads(keyFile));
+    }
+
+    @Test
+    void doesNotServeKeyForDifferentPin() throws Exception {
+        CachingKeyLoader loader = new CachingKeyLoader(delegate, LONG_TTL, 4);
+
+        loader.loadPrivateKey(keyFile, PIN);
+        loader.loadPrivateKey(keyFile, "4321");
+        assertEquals(2, delegate.loads(keyFile));
+
+        // both PINs have their own entry
+        loader.loadPrivateKey(keyFile, PIN);
+        loader.loadPrivateKey(keyFile, "4321");
+        assertEquals(2, delegate.loads(keyFile));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedKey() throws Exception {
+        CachingKeyLoader loader = new CachingKeyLoader(delegate, LONG_TTL, 2);
+        File first = keyFile;
+        File second = createFile("second.txt");
+        File third = createFile("third.txt");
+
+        loader.loadPublicKey(first);
+        loader.loadPublicKey(second);
+        loader.loadPublicKey(first);
+        // the cache is full, second is the least recently used entry
+        loader.loadPublicKey(third);
+
+        loader.loadPublicKey(first);
+        assertEquals(1, delegate.loads(first));
+        loader.loadPublicKey(second);
+        assertEquals(2, delegate.loads(second));
+    }
+
+    @Test
+    void invalidateDropsOnlyEntriesOfTheFile() throws Exception {
+        CachingKeyLoader loader = new CachingKeyLoader(delegate, LONG_TTL, 4);
+        File other = createFile("other.txt");
+
+        loader.loadPrivateKey(keyFile, PIN);
+        loader.loadPublicKey(keyFile);
+        loader.loadPublicKey(other);
+        loader.invalidate(keyFile);
+
+        loader.loadPrivateKey(keyFile, PIN);
+        loader.loadPublicKey(keyFile);
+        loader.loadPublicKey(other);
+        assertEquals(4, delegate.loads(keyFile));
+        assertEquals(1, delegate.loads(other));
+    }
+
+    @Test
+    void invalidateAllDropsEveryEntry() throws Exception {
+        CachingKeyLoader loader = new CachingKeyLoader(delegate, LONG_TTL, 4);
+
+        loader.loadPrivateKey(keyFile, PIN);
+        loader.invalidateAll();
+        loader.loadPrivateKey(keyFile, PIN);
+
+        assertEquals(2, delegate.loads(keyFile));
+    }
+
+    /**
+     * \brief Creates a key file in the temporary directory, the cache only looks at its path and modification time.
+     * \param name Name of the file.
+     * \return The file.
+     * \throws Exception If the file cannot be written.
+     */
+    private File createFile(String name) throws Exception {
+        return Files.writeString(directory.resolve(name), "key").toFile();
+    }
+}